@@ -0,0 +1,77 @@
+package com.example.testing.comment;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost the rate and concurrency limits add to every request, with several
+ * threads contending on the same counters. The limits are set high enough that
+ * everything is admitted, so this is the path a healthy request takes.
+ */
+@Fork(1)
+@Threads(Threads.MAX)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+public class CommentAdmissionBenchmark {
+
+    private static final int CLIENTS = 1000;
+
+    private CommentRateLimiter rateLimiter;
+    private CommentConcurrencyLimiter concurrencyLimiter;
+    private CommentRateLimiter.Key[] keys;
+
+    @Setup
+    public void setUp() {
+        CommentProperties properties = CommentTestDataFactory.properties(Map.of(
+                "comments.rate-limit.reads-per-second", "1000000000",
+                "comments.rate-limit.read-burst", "1000000",
+                "comments.concurrency-limit.initial-limit", "1000",
+                "comments.concurrency-limit.max-limit", "1000"
+        ));
+        CommentMetrics metrics = new CommentMetrics(new SimpleMeterRegistry(), properties);
+        rateLimiter = new CommentRateLimiter(properties, metrics);
+        concurrencyLimiter = new CommentConcurrencyLimiter(properties, metrics);
+        keys = new CommentRateLimiter.Key[CLIENTS];
+        for (int i = 0; i < CLIENTS; i++) {
+            keys[i] = new CommentRateLimiter.Key("10.0." + i / 256 + "." + i % 256, "GET", "/api/comments/{id}");
+        }
+    }
+
+    @Benchmark
+    public long rateLimit() {
+        return rateLimiter.tryAcquire(keys[ThreadLocalRandom.current().nextInt(CLIENTS)], false, System.nanoTime());
+    }
+
+    // a single client is the worst case: every thread updates the same bucket
+    @Benchmark
+    public long rateLimitSingleClient() {
+        return rateLimiter.tryAcquire(keys[0], false, System.nanoTime());
+    }
+
+    @Benchmark
+    public boolean concurrencyLimit() {
+        boolean admitted = concurrencyLimiter.tryAcquire();
+        if (admitted) {
+            concurrencyLimiter.release(1_000, false, System.nanoTime());
+        }
+        return admitted;
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.example.testing.comment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Fills the comment cache with comments written by a small pool of authors and
+ * reports the live heap it retains, once with {@code comments.intern.enabled}
+ * off and once with it on. Every comment gets its own copies of the author's
+ * name and email, as it would when read from a row or a request body.
+ * <p>
+ * Options (all optional): {@code --comments=1000000}, {@code --authors=10000},
+ * {@code --body-length=64}, {@code --output=target/heap-result.json}. The cache
+ * holds every comment; the {@code heap} execution runs with {@code -Xmx2g}, which
+ * fits about three million.
+ */
+public class CommentHeapFootprintBenchmark {
+
+    private static final int GC_ROUNDS = 3;
+
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int comments = 1_000_000;
+        int authors = 10_000;
+        int bodyLength = 64;
+        String output = "target/heap-result.json";
+        for (String option : args) {
+            String[] pair = option.replaceFirst("^--", "").split("=", 2);
+            String value = pair.length > 1 ? pair[1] : "";
+            switch (pair[0]) {
+                case "comments" -> comments = Integer.parseInt(value);
+                case "authors" -> authors = Integer.parseInt(value);
+                case "body-length" -> bodyLength = Integer.parseInt(value);
+                case "output" -> output = value;
+                default -> throw new IllegalArgumentException("Unknown option " + option);
+            }
+        }
+        new CommentHeapFootprintBenchmark().run(comments, authors, bodyLength, Path.of(output));
+    }
+
+    void run(int comments, int authors, int bodyLength, Path output) throws IOException, InterruptedException {
+        System.out.printf("Caching %d comments by %d authors%n", comments, authors);
+        long plain = retained(comments, authors, bodyLength, false);
+        long interned = retained(comments, authors, bodyLength, true);
+        System.out.printf("plain %d MB, interned %d MB, %.1f%% less%n",
+                plain >> 20, interned >> 20, 100.0 * (plain - interned) / plain);
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        ObjectNode result = objectMapper.createObjectNode();
+        result.put("comments", comments);
+        result.put("authors", authors);
+        result.put("bodyLength", bodyLength);
+        result.put("plainBytes", plain);
+        result.put("internedBytes", interned);
+        result.put("plainBytesPerComment", plain / comments);
+        result.put("internedBytesPerComment", interned / comments);
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        objectMapper.enable(SerializationFeature.INDENT_OUTPUT).writeValue(output.toFile(), result);
+    }
+
+    private long retained(int comments, int authors, int bodyLength, boolean intern) throws InterruptedException {
+        CommentProperties properties = CommentTestDataFactory.properties(Map.of(
+                "comments.cache.maximum-size", String.valueOf(comments),
+                "comments.cache.ttl", "1h"));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        long before = usedAfterGc();
+        CommentCache cache = new CommentCache(properties, registry, new CommentMetrics(registry, properties),
+                new CommentInterner(intern));
+        String body = "b".repeat(bodyLength);
+        for (int i = 0; i < comments; i++) {
+            int author = i % authors;
+            // fresh copies, so nothing is shared unless the cache shares it
+            cache.put(new CommentResponse((long) i + 1, new String("Author " + author),
+                    new String("author" + author + "@example.com"), new String(body), 0));
+        }
+        long used = usedAfterGc() - before;
+        System.out.printf("intern %s: %d MB retained, %d bytes per comment%n",
+                intern, used >> 20, used / comments);
+        if (cache.get(1L).isEmpty()) {
+            throw new IllegalStateException("The cache dropped comments, raise the cache size");
+        }
+        return used;
+    }
+
+    private long usedAfterGc() throws InterruptedException {
+        for (int i = 0; i < GC_ROUNDS; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+}
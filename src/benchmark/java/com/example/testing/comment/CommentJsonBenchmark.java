@@ -0,0 +1,63 @@
+package com.example.testing.comment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+@Fork(1)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+public class CommentJsonBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"128", "4096"})
+    int bodyLength;
+
+    private ObjectMapper objectMapper;
+    private CommentResponse response;
+    private Page<CommentResponse> page;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        String body = CommentTestDataFactory.body(bodyLength);
+        response = new CommentResponse(1L, "benchmark-comment", "email@example.com", body, 0);
+
+        List<CommentResponse> content = LongStream.rangeClosed(1, PAGE_SIZE)
+                .mapToObj(id -> new CommentResponse(id, "comment-" + id, "email@example.com", body, 0))
+                .toList();
+        page = new PageImpl<>(content, PageRequest.of(0, PAGE_SIZE), 10_000);
+    }
+
+    @Benchmark
+    public byte[] serializeResponse() throws Exception {
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] serializePage() throws Exception {
+        return objectMapper.writeValueAsBytes(page);
+    }
+
+}
@@ -0,0 +1,410 @@
+package com.example.testing.comment;
+
+import com.example.testing.UnitAndIntegrationApplication;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.IntStream;
+
+/**
+ * Drives the comment endpoints over HTTP with a weighted operation mix and records
+ * per-operation latency histograms. Without {@code --url} the application is started
+ * in-process on a random port against the H2 benchmark profile.
+ * <p>
+ * Options (all optional): {@code --url}, {@code --concurrency=32}, {@code --warmup=10s},
+ * {@code --duration=30s}, {@code --seed=1000}, {@code --page-size=20},
+ * {@code --mix=list:15,get:50,create:15,update:15,delete:5}, {@code --output=load-result.json}.
+ * <p>
+ * By default every worker sends its next request as soon as the previous one returns, so a
+ * stalled server also stalls the requests that would have measured the stall. {@code --rate=500}
+ * spreads that many requests per second over the workers instead, and times each request from
+ * when it was due rather than when it was sent; a worker that falls behind sends the overdue
+ * requests back to back.
+ * <p>
+ * {@code --ramp=16,64,256,1024} runs one stage per concurrency level and reports the highest
+ * level that stays within {@code --slo=500ms} (p99) and {@code --max-error-rate=0.01}.
+ * For an in-process run, {@code --virtual-threads} enables the virtual-threads profile,
+ * {@code --reactive} the WebFlux and R2DBC stack, and {@code --db-latency=20ms} delays every
+ * JDBC statement to simulate a slow database.
+ */
+public class CommentLoadGenerator implements AutoCloseable {
+
+    enum Operation { LIST, GET, CREATE, UPDATE, DELETE }
+
+    private static final long HISTOGRAM_MAX_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final Options options;
+    private final String baseUrl;
+    private final ExecutorService clientExecutor = Executors.newCachedThreadPool();
+    private final HttpClient client;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private long[] seededIds;
+    private final ConcurrentLinkedQueue<Long> createdIds = new ConcurrentLinkedQueue<>();
+
+    CommentLoadGenerator(Options options, String baseUrl) {
+        this.options = options;
+        this.baseUrl = baseUrl;
+        this.client = HttpClient.newBuilder()
+                .executor(clientExecutor)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        ConfigurableApplicationContext context = null;
+        String url = options.url();
+        if (url == null) {
+            context = startApplication(options);
+            url = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        }
+        try (CommentLoadGenerator generator = new CommentLoadGenerator(options, url + "/api/comments")) {
+            generator.run();
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext startApplication(Options options) {
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(UnitAndIntegrationApplication.class)
+                .profiles("benchmark");
+        if (options.virtualThreads()) {
+            if (Runtime.version().feature() < 21) {
+                System.out.println("WARNING: virtual threads need Java 21+, running on platform threads");
+            }
+            builder.profiles("virtual-threads");
+        }
+        if (options.reactive()) {
+            builder.profiles("reactive");
+        }
+        if (options.dbLatency() != null) {
+            builder.initializers(ctx -> ctx.getBeanFactory()
+                    .addBeanPostProcessor(new SlowDataSourcePostProcessor(options.dbLatency())));
+        }
+        return builder.run("--server.port=0");
+    }
+
+    void run() throws Exception {
+        seed();
+        ObjectNode result = objectMapper.createObjectNode();
+        result.put("url", baseUrl);
+        result.put("virtualThreads", options.virtualThreads());
+        result.put("reactive", options.reactive());
+        result.put("dbLatency", String.valueOf(options.dbLatency()));
+        result.put("durationSeconds", options.duration().toMillis() / 1000.0);
+        result.put("mix", options.mix().toString());
+        result.put("rate", options.rate());
+
+        ArrayNode stages = result.putArray("stages");
+        Integer maxSustainableConcurrency = null;
+        for (int concurrency : options.concurrency()) {
+            ObjectNode stage = runStage(concurrency);
+            stages.add(stage);
+            if (stage.get("errorRate").asDouble() <= options.maxErrorRate()
+                    && stage.get("p99Micros").asLong() <= options.slo().toNanos() / 1000) {
+                maxSustainableConcurrency = concurrency;
+            }
+        }
+        result.put("maxSustainableConcurrency", maxSustainableConcurrency);
+
+        Path output = Path.of(options.output());
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        objectMapper.enable(SerializationFeature.INDENT_OUTPUT).writeValue(output.toFile(), result);
+        System.out.printf("max sustainable concurrency (p99 <= %s, errors <= %.2f%%): %s -> %s%n",
+                options.slo(), options.maxErrorRate() * 100, maxSustainableConcurrency, output.toAbsolutePath());
+    }
+
+    ObjectNode runStage(int concurrency) throws Exception {
+        System.out.printf("Running %s for %s (+%s warmup) with %d workers against %s%n",
+                options.mix(), options.duration(), options.warmup(), concurrency, baseUrl);
+
+        long measureFrom = System.nanoTime() + options.warmup().toNanos();
+        long stopAt = measureFrom + options.duration().toNanos();
+
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        List<Future<Worker>> futures = new ArrayList<>();
+        // with a rate, each worker owns every concurrency-th slot of the schedule
+        long intervalNanos = options.rate() == null ? 0 : TimeUnit.SECONDS.toNanos(concurrency) / options.rate();
+        for (int i = 0; i < concurrency; i++) {
+            long firstDue = System.nanoTime() + (intervalNanos == 0 ? 0 : intervalNanos * i / concurrency);
+            futures.add(workers.submit(new Worker(measureFrom, stopAt, firstDue, intervalNanos)::call));
+        }
+
+        Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+        Map<Operation, Long> errors = new EnumMap<>(Operation.class);
+        for (Future<Worker> future : futures) {
+            Worker worker = future.get();
+            worker.latencies.forEach((op, histogram) ->
+                    latencies.computeIfAbsent(op, k -> newHistogram()).add(histogram));
+            worker.errors.forEach((op, count) -> errors.merge(op, count, Long::sum));
+        }
+        workers.shutdown();
+
+        return report(concurrency, latencies, errors);
+    }
+
+    @Override
+    public void close() {
+        clientExecutor.shutdownNow();
+    }
+
+    void seed() throws IOException, InterruptedException {
+        List<CommentRequest> requests = IntStream.range(0, options.seed())
+                .mapToObj(i -> randomRequest("seed-" + i))
+                .toList();
+        HttpResponse<String> response = client.send(json(HttpRequest.newBuilder(URI.create(baseUrl + "/batch")))
+                .POST(body(requests))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        List<CommentBatchResult> results = objectMapper.readValue(response.body(), new TypeReference<>() {});
+        seededIds = results.stream().mapToLong(CommentBatchResult::id).toArray();
+    }
+
+    private ObjectNode report(int concurrency, Map<Operation, Histogram> latencies, Map<Operation, Long> errors) {
+        double seconds = options.duration().toMillis() / 1000.0;
+        ObjectNode stage = objectMapper.createObjectNode();
+        stage.put("concurrency", concurrency);
+
+        Histogram total = newHistogram();
+        long totalErrors = 0;
+        ObjectNode operations = stage.putObject("operations");
+        for (Operation op : Operation.values()) {
+            Histogram histogram = latencies.get(op);
+            if (histogram == null) {
+                continue;
+            }
+            long errorCount = errors.getOrDefault(op, 0L);
+            total.add(histogram);
+            totalErrors += errorCount;
+            putLatencies(operations.putObject(op.name().toLowerCase()), histogram, errorCount, seconds);
+            System.out.printf("%-7s count=%-8d rps=%-10.1f errors=%-6d p50=%-8d p99=%-8d p999=%-8d max=%d (us)%n",
+                    op, histogram.getTotalCount(), histogram.getTotalCount() / seconds, errorCount,
+                    histogram.getValueAtPercentile(50), histogram.getValueAtPercentile(99),
+                    histogram.getValueAtPercentile(99.9), histogram.getMaxValue());
+        }
+        putLatencies(stage, total, totalErrors, seconds);
+        System.out.printf("total   rps=%.1f errorRate=%.4f p99=%d (us)%n",
+                total.getTotalCount() / seconds, stage.get("errorRate").asDouble(), total.getValueAtPercentile(99));
+        return stage;
+    }
+
+    private static void putLatencies(ObjectNode node, Histogram histogram, long errorCount, double seconds) {
+        long count = histogram.getTotalCount();
+        node.put("count", count);
+        node.put("throughput", count / seconds);
+        node.put("errorRate", count == 0 ? 0 : (double) errorCount / count);
+        node.put("p50Micros", histogram.getValueAtPercentile(50));
+        node.put("p99Micros", histogram.getValueAtPercentile(99));
+        node.put("p999Micros", histogram.getValueAtPercentile(99.9));
+        node.put("maxMicros", histogram.getMaxValue());
+        node.put("meanMicros", histogram.getMean());
+    }
+
+    // mostly small bodies with a long tail of large ones
+    private static CommentRequest randomRequest(String name) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int roll = random.nextInt(100);
+        int bodyLength = roll < 80 ? random.nextInt(100, 1_000)
+                : roll < 95 ? random.nextInt(1_000, 8_000)
+                : random.nextInt(8_000, 64_000);
+        return CommentTestDataFactory.request(name, bodyLength);
+    }
+
+    private static Histogram newHistogram() {
+        return new Histogram(HISTOGRAM_MAX_MICROS, 3);
+    }
+
+    private static HttpRequest.Builder json(HttpRequest.Builder builder) {
+        return builder.header("Content-Type", "application/json").timeout(Duration.ofSeconds(30));
+    }
+
+    private HttpRequest.BodyPublisher body(Object value) throws IOException {
+        return HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(value));
+    }
+
+    private class Worker {
+
+        private final long measureFrom;
+        private final long stopAt;
+        private final long intervalNanos;
+        private long due;
+        private final Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+        private final Map<Operation, Long> errors = new EnumMap<>(Operation.class);
+
+        Worker(long measureFrom, long stopAt, long firstDue, long intervalNanos) {
+            this.measureFrom = measureFrom;
+            this.stopAt = stopAt;
+            this.due = firstDue;
+            this.intervalNanos = intervalNanos;
+        }
+
+        Worker call() throws IOException {
+            long start;
+            while ((start = nextStart()) < stopAt) {
+                Operation op = options.mix().next();
+                Boolean ok;
+                try {
+                    ok = execute(op);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (IOException ex) {
+                    ok = false;
+                }
+                long end = System.nanoTime();
+                // null: nothing was sent, e.g. a delete with no comment created yet to delete
+                if (ok != null && start >= measureFrom) {
+                    latencies.computeIfAbsent(op, k -> newHistogram())
+                            .recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(end - start), HISTOGRAM_MAX_MICROS));
+                    if (!ok) {
+                        errors.merge(op, 1L, Long::sum);
+                    }
+                }
+            }
+            return this;
+        }
+
+        // closed loop: now; at a fixed rate: when the next request was due, after waiting for it
+        private long nextStart() {
+            if (intervalNanos == 0) {
+                return System.nanoTime();
+            }
+            long start = due;
+            due += intervalNanos;
+            long wait = start - System.nanoTime();
+            if (wait > 0 && start < stopAt) {
+                LockSupport.parkNanos(wait);
+            }
+            return start;
+        }
+
+        private Boolean execute(Operation op) throws IOException, InterruptedException {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            HttpRequest request = switch (op) {
+                case LIST -> HttpRequest.newBuilder(URI.create(baseUrl + "?page=" + random.nextInt(Math.max(1, seededIds.length / options.pageSize()))
+                        + "&size=" + options.pageSize())).GET().build();
+                case GET -> HttpRequest.newBuilder(URI.create(baseUrl + "/" + randomSeededId())).GET().build();
+                case CREATE -> json(HttpRequest.newBuilder(URI.create(baseUrl)))
+                        .POST(body(randomRequest("load-comment"))).build();
+                case UPDATE -> json(HttpRequest.newBuilder(URI.create(baseUrl + "/" + randomSeededId())))
+                        .PUT(body(randomRequest("updated-comment"))).build();
+                case DELETE -> {
+                    Long id = createdIds.poll();
+                    yield id == null ? null : HttpRequest.newBuilder(URI.create(baseUrl + "/" + id)).DELETE().build();
+                }
+            };
+            if (request == null) {
+                return null;
+            }
+
+            HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            if (op == Operation.CREATE && response.statusCode() == 201) {
+                JsonNode created = objectMapper.readTree(response.body());
+                createdIds.add(created.get("id").asLong());
+            }
+            return response.statusCode() < 400;
+        }
+
+        private long randomSeededId() {
+            return seededIds[ThreadLocalRandom.current().nextInt(seededIds.length)];
+        }
+
+    }
+
+    record Options(String url, List<Integer> concurrency, Duration warmup, Duration duration, int seed,
+                   int pageSize, Mix mix, Integer rate, boolean virtualThreads, boolean reactive, Duration dbLatency, Duration slo,
+                   double maxErrorRate, String output) {
+
+        static Options parse(String[] args) {
+            Map<String, String> values = new LinkedHashMap<>();
+            for (String arg : args) {
+                if (arg.startsWith("--") && arg.contains("=")) {
+                    values.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+                } else if (arg.startsWith("--")) {
+                    values.put(arg.substring(2), "true");
+                }
+            }
+            String concurrency = values.getOrDefault("ramp", values.getOrDefault("concurrency", "32"));
+            return new Options(
+                    values.get("url"),
+                    Arrays.stream(concurrency.split(",")).map(String::trim).map(Integer::valueOf).toList(),
+                    duration(values.getOrDefault("warmup", "10s")),
+                    duration(values.getOrDefault("duration", "30s")),
+                    Integer.parseInt(values.getOrDefault("seed", "1000")),
+                    Integer.parseInt(values.getOrDefault("page-size", "20")),
+                    Mix.parse(values.getOrDefault("mix", "list:15,get:50,create:15,update:15,delete:5")),
+                    values.containsKey("rate") ? Integer.valueOf(values.get("rate")) : null,
+                    Boolean.parseBoolean(values.getOrDefault("virtual-threads", "false")),
+                    Boolean.parseBoolean(values.getOrDefault("reactive", "false")),
+                    values.containsKey("db-latency") ? duration(values.get("db-latency")) : null,
+                    duration(values.getOrDefault("slo", "500ms")),
+                    Double.parseDouble(values.getOrDefault("max-error-rate", "0.01")),
+                    values.getOrDefault("output", "load-result.json")
+            );
+        }
+
+        private static Duration duration(String value) {
+            return DurationStyle.detectAndParse(value);
+        }
+
+    }
+
+    record Mix(Map<Operation, Integer> weights, Operation[] table) {
+
+        static Mix parse(String value) {
+            Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+            for (String entry : value.split(",")) {
+                String[] parts = entry.split(":");
+                weights.put(Operation.valueOf(parts[0].trim().toUpperCase()), Integer.parseInt(parts[1].trim()));
+            }
+            Operation[] table = weights.entrySet().stream()
+                    .flatMap(e -> IntStream.range(0, e.getValue()).mapToObj(i -> e.getKey()))
+                    .toArray(Operation[]::new);
+            return new Mix(weights, table);
+        }
+
+        Operation next() {
+            return table[ThreadLocalRandom.current().nextInt(table.length)];
+        }
+
+        @Override
+        public String toString() {
+            return weights.toString();
+        }
+
+    }
+
+}
@@ -0,0 +1,92 @@
+package com.example.testing.comment;
+
+import com.example.testing.UnitAndIntegrationApplication;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Concurrent {@link CommentService#getCommentById} calls with the comment cache
+ * turned off, so every call is a miss that goes to the lookup batcher. A window
+ * of 0s still shares queries for the same id; the hot case reads a handful of ids
+ * and the uniform case spreads the reads over the whole table.
+ */
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+public class CommentLookupBenchmark {
+
+    private static final int SEED_SIZE = 10_000;
+    private static final int HOT_SIZE = 4;
+
+    @Param({"0s", "1ms"})
+    public String window;
+
+    private ConfigurableApplicationContext context;
+    private CommentService service;
+    private long[] ids;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(UnitAndIntegrationApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("benchmark")
+                .properties("comments.cache.maximum-size=0", "comments.lookup.window=" + window,
+                        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+                        "spring.jpa.properties.hibernate.cache.use_query_cache=false")
+                .run();
+        service = context.getBean(CommentService.class);
+
+        List<CommentRequest> requests = IntStream.range(0, SEED_SIZE)
+                .mapToObj(i -> CommentTestDataFactory.request("comment-" + i, 512))
+                .toList();
+        ids = context.getBean(CommentBatchService.class).createComments(requests).stream()
+                .mapToLong(CommentBatchResult::id)
+                .toArray();
+    }
+
+    @TearDown
+    public void tearDown() {
+        MeterRegistry registry = context.getBean(MeterRegistry.class);
+        HistogramSnapshot batches = registry.get("comments.lookup.batch.size").summary().takeSnapshot();
+        double shared = registry.get("comments.lookup.shared").counter().count();
+        System.out.printf("%nwindow %s: %d queries, %.1f ids per query, %.0f lookups shared a query for the same id%n",
+                window, batches.count(), batches.mean(), shared);
+        context.close();
+    }
+
+    @Benchmark
+    public CommentResponse hotComments() {
+        return service.getCommentById(ids[ThreadLocalRandom.current().nextInt(HOT_SIZE)]);
+    }
+
+    @Benchmark
+    public CommentResponse uniformComments() {
+        return service.getCommentById(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.example.testing.comment;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@Fork(1)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+public class CommentMapperBenchmark {
+
+    private final CommentMapper mapper = new CommentMapper();
+
+    private Comment comment;
+    private CommentRequest request;
+
+    @Setup
+    public void setUp() {
+        comment = CommentTestDataFactory.comment(1L, "benchmark-comment");
+        request = CommentTestDataFactory.request("benchmark-comment");
+    }
+
+    @Benchmark
+    public Comment toEntity() {
+        return mapper.toEntity(request);
+    }
+
+    @Benchmark
+    public CommentResponse toResponse() {
+        return mapper.toResponse(comment);
+    }
+
+}
@@ -0,0 +1,118 @@
+package com.example.testing.comment;
+
+import com.example.testing.UnitAndIntegrationApplication;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Runs the service against an in-memory H2 database, so the numbers cover the
+ * application and Hibernate overhead rather than MySQL itself, and against the
+ * in-memory storage engine of the {@code in-memory} profile for comparison.
+ */
+@Fork(1)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+public class CommentServiceBenchmark {
+
+    private static final int SEED_SIZE = 10_000;
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"jpa", "in-memory"})
+    public String engine;
+
+    private Path storeDirectory;
+    private ConfigurableApplicationContext context;
+    private CommentService service;
+    private CommentSearchIndex searchIndex;
+    private long[] ids;
+
+    @Setup
+    public void setUp() throws IOException {
+        storeDirectory = Files.createTempDirectory("comment-store");
+        context = new SpringApplicationBuilder(UnitAndIntegrationApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles(engine.equals("jpa") ? new String[]{"benchmark"} : new String[]{"benchmark", engine})
+                .properties("comments.memory.directory=" + storeDirectory,
+                        "comments.search.directory=" + storeDirectory.resolve("search"))
+                .run();
+        service = context.getBean(CommentService.class);
+        searchIndex = context.getBean(CommentSearchIndex.class);
+
+        List<CommentRequest> requests = IntStream.range(0, SEED_SIZE)
+                .mapToObj(i -> CommentTestDataFactory.request("comment-" + i, 512))
+                .toList();
+        ids = context.getBean(CommentBatchService.class).createComments(requests).stream()
+                .mapToLong(CommentBatchResult::id)
+                .toArray();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        context.close();
+        FileSystemUtils.deleteRecursively(storeDirectory);
+    }
+
+    @Benchmark
+    public CommentResponse getCommentById() {
+        return service.getCommentById(randomId());
+    }
+
+    @Benchmark
+    public Page<CommentResponse> getAllComments() {
+        int page = ThreadLocalRandom.current().nextInt(SEED_SIZE / PAGE_SIZE);
+        return service.getAllComments(PageRequest.of(page, PAGE_SIZE), null);
+    }
+
+    @Benchmark
+    public CommentSlice getCommentsAfter() {
+        return service.getCommentsAfter(new CommentCursor(randomId()).encode(), PAGE_SIZE, null);
+    }
+
+    @Benchmark
+    public Page<CommentResponse> searchComments() {
+        String text = "comment-" + ThreadLocalRandom.current().nextInt(SEED_SIZE) + " dolor";
+        return searchIndex.search(text, PageRequest.of(0, PAGE_SIZE));
+    }
+
+    @Benchmark
+    public CommentResponse createComment() {
+        return service.createComment(CommentTestDataFactory.request("benchmark-comment", 512));
+    }
+
+    @Benchmark
+    public CommentResponse updateComment() {
+        return service.updateComment(randomId(), CommentTestDataFactory.request("benchmark-comment", 512));
+    }
+
+    private long randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+
+}
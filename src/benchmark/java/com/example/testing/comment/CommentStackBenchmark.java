@@ -0,0 +1,240 @@
+package com.example.testing.comment;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs the {@link CommentLoadGenerator} stages against the servlet stack and the
+ * reactive stack in turn, each in its own JVM with the same fixed heap and
+ * processor count, and reports per concurrency level:
+ * <ul>
+ * <li>throughput per core, both per allotted core and per CPU second the server
+ * actually used (the load generator shares the machine);</li>
+ * <li>memory per connection, the growth of the server's resident set over its
+ * idle baseline divided by the number of open connections, and the marginal
+ * growth from one level to the next, which leaves out what the first stage
+ * spends once on compiled code and metaspace. The heap is pre-touched at its
+ * fixed size, so both are what the stack spends outside it, mostly thread
+ * stacks and I/O buffers.</li>
+ * </ul>
+ * Options (all optional): {@code --stacks=servlet,reactive}, {@code --ramp=16,64,256},
+ * {@code --heap=256m}, {@code --cpus} (sets {@code -XX:ActiveProcessorCount}),
+ * {@code --port=18082}, {@code --timeout=120s}, {@code --output=target/stack-result.json},
+ * plus the load generator's {@code --warmup}, {@code --duration}, {@code --seed},
+ * {@code --page-size} and {@code --mix}. Resident set sizes are read from
+ * {@code /proc}, so memory is only reported on Linux.
+ */
+public class CommentStackBenchmark {
+
+    private static final long SAMPLE_MILLIS = 100;
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String arg : args) {
+            String[] pair = arg.replaceFirst("^--", "").split("=", 2);
+            values.put(pair[0], pair.length > 1 ? pair[1] : "true");
+        }
+        List<String> loadArgs = new ArrayList<>(Arrays.asList(args));
+        if (!values.containsKey("ramp") && !values.containsKey("concurrency")) {
+            loadArgs.add("--ramp=16,64,256");
+        }
+        new CommentStackBenchmark().run(
+                Arrays.asList(values.getOrDefault("stacks", "servlet,reactive").split(",")),
+                CommentLoadGenerator.Options.parse(loadArgs.toArray(String[]::new)),
+                values.getOrDefault("heap", "256m"),
+                values.containsKey("cpus") ? Integer.parseInt(values.get("cpus")) : null,
+                Integer.parseInt(values.getOrDefault("port", "18082")),
+                Duration.parse("PT" + values.getOrDefault("timeout", "120s").toUpperCase()),
+                Path.of(values.getOrDefault("output", "target/stack-result.json")));
+    }
+
+    void run(List<String> stacks, CommentLoadGenerator.Options options, String heap, Integer cpus, int port,
+             Duration timeout, Path output) throws Exception {
+        int cores = cpus != null ? cpus : Runtime.getRuntime().availableProcessors();
+        ObjectNode result = objectMapper.createObjectNode();
+        result.put("heap", heap);
+        result.put("cores", cores);
+        result.put("durationSeconds", options.duration().toMillis() / 1000.0);
+        result.put("mix", options.mix().toString());
+        ObjectNode results = result.putObject("stacks");
+        for (String stack : stacks) {
+            results.set(stack, runStack(stack.trim(), options, heap, cpus, cores, port, timeout));
+        }
+
+        System.out.printf("%-12s %-10s %-10s %-12s %-10s %-8s %-14s %s%n", "concurrency", "stack",
+                "rps/core", "rps/cpu-sec", "p99 (ms)", "threads", "KB/connection", "marginal KB/connection");
+        for (int concurrency : options.concurrency()) {
+            for (String stack : stacks) {
+                for (JsonNode stage : results.get(stack.trim()).get("stages")) {
+                    if (stage.get("concurrency").asInt() == concurrency) {
+                        System.out.printf("%-12d %-10s %-10.1f %-12.1f %-10.1f %-8s %-14s %s%n", concurrency, stack,
+                                stage.get("throughputPerCore").asDouble(), stage.get("throughputPerCpuSecond").asDouble(),
+                                stage.get("p99Micros").asLong() / 1000.0, stage.path("peakThreads").asText("n/a"),
+                                kilobytes(stage, "bytesPerConnection"), kilobytes(stage, "marginalBytesPerConnection"));
+                    }
+                }
+            }
+        }
+
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        objectMapper.enable(SerializationFeature.INDENT_OUTPUT).writeValue(output.toFile(), result);
+        System.out.println("-> " + output.toAbsolutePath());
+    }
+
+    private ObjectNode runStack(String stack, CommentLoadGenerator.Options options, String heap, Integer cpus,
+                                int cores, int port, Duration timeout) throws Exception {
+        List<String> command = new ArrayList<>(List.of(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-Xms" + heap, "-Xmx" + heap, "-XX:+AlwaysPreTouch"));
+        if (cpus != null) {
+            command.add("-XX:ActiveProcessorCount=" + cpus);
+        }
+        command.addAll(List.of(
+                "-cp", System.getProperty("java.class.path"),
+                "com.example.testing.UnitAndIntegrationApplication",
+                "--spring.profiles.active=" + ("reactive".equals(stack) ? "benchmark,reactive" : "benchmark"),
+                "--server.port=" + port));
+
+        System.out.printf("Starting the %s stack%n", stack);
+        File log = new File(System.getProperty("java.io.tmpdir"), "comment-stack-" + stack + ".log");
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log).start();
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            String baseUrl = "http://localhost:" + port + "/api/comments";
+            awaitOk(URI.create(baseUrl + "?size=1"), System.nanoTime() + timeout.toNanos(), process, log);
+            try (CommentLoadGenerator generator = new CommentLoadGenerator(options, baseUrl)) {
+                generator.seed();
+                return measure(generator, process, sampler, options, cores, command);
+            }
+        } finally {
+            sampler.shutdownNow();
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private ObjectNode measure(CommentLoadGenerator generator, Process process, ScheduledExecutorService sampler,
+                               CommentLoadGenerator.Options options, int cores, List<String> command) throws Exception {
+        ObjectNode result = objectMapper.createObjectNode();
+        result.put("command", String.join(" ", command));
+        Long baselineRss = status(process.pid(), "VmRSS");
+        if (baselineRss != null) {
+            result.put("baselineRssBytes", baselineRss);
+        }
+        ArrayNode stages = result.putArray("stages");
+        int previousConcurrency = 0;
+        long previousPeakRss = 0;
+        for (int concurrency : options.concurrency()) {
+            AtomicLong peakRss = new AtomicLong();
+            AtomicInteger peakThreads = new AtomicInteger();
+            var sampling = sampler.scheduleAtFixedRate(() -> {
+                Long rss = status(process.pid(), "VmRSS");
+                Long threads = status(process.pid(), "Threads");
+                if (rss != null) {
+                    peakRss.accumulateAndGet(rss, Math::max);
+                    peakThreads.accumulateAndGet(threads.intValue(), Math::max);
+                }
+            }, 0, SAMPLE_MILLIS, TimeUnit.MILLISECONDS);
+            // CPU is counted over the measured window only, like the requests
+            AtomicReference<Duration> cpuAtMeasureStart = new AtomicReference<>();
+            sampler.schedule(() -> cpuAtMeasureStart.set(cpu(process)), options.warmup().toMillis(), TimeUnit.MILLISECONDS);
+
+            ObjectNode stage = generator.runStage(concurrency);
+
+            Duration cpuUsed = cpu(process).minus(cpuAtMeasureStart.get());
+            sampling.cancel(false);
+            double seconds = options.duration().toMillis() / 1000.0;
+            stage.put("throughputPerCore", stage.get("throughput").asDouble() / cores);
+            stage.put("serverCpuSeconds", cpuUsed.toMillis() / 1000.0);
+            stage.put("throughputPerCpuSecond", cpuUsed.isZero() ? 0 : stage.get("count").asLong() / (cpuUsed.toMillis() / 1000.0));
+            stage.put("serverCpuUtilization", cpuUsed.toMillis() / 1000.0 / seconds / cores);
+            if (baselineRss != null) {
+                stage.put("peakRssBytes", peakRss.get());
+                stage.put("peakThreads", peakThreads.get());
+                stage.put("bytesPerConnection", Math.max(0, peakRss.get() - baselineRss) / concurrency);
+                if (previousConcurrency > 0 && concurrency > previousConcurrency) {
+                    stage.put("marginalBytesPerConnection",
+                            (peakRss.get() - previousPeakRss) / (concurrency - previousConcurrency));
+                }
+                previousPeakRss = peakRss.get();
+            }
+            previousConcurrency = concurrency;
+            stages.add(stage);
+        }
+        return result;
+    }
+
+    private void awaitOk(URI uri, long deadline, Process process, File log) throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(5)).build();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("Application exited with " + process.exitValue() + ", see " + log);
+            }
+            try {
+                if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // not listening yet
+            }
+            Thread.sleep(SAMPLE_MILLIS);
+        }
+        throw new IllegalStateException("No successful response from " + uri + " within the timeout, see " + log);
+    }
+
+    private static String kilobytes(JsonNode stage, String field) {
+        return stage.has(field) ? String.valueOf(stage.get(field).asLong() / 1024) : "n/a";
+    }
+
+    private static Duration cpu(Process process) {
+        return process.info().totalCpuDuration().orElse(Duration.ZERO);
+    }
+
+    // a field of /proc/<pid>/status in bytes for kB values, or null where there is no /proc
+    private static Long status(long pid, String field) {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc", String.valueOf(pid), "status"))) {
+                if (line.startsWith(field + ":")) {
+                    String[] parts = line.substring(field.length() + 1).trim().split("\\s+");
+                    long value = Long.parseLong(parts[0]);
+                    return parts.length > 1 && parts[1].equals("kB") ? value * 1024 : value;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // not Linux, or the process is gone
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,151 @@
+package com.example.testing.comment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts the application in a fresh JVM several times and measures, from process
+ * launch, when the first comment request succeeds and when the readiness probe
+ * reports UP. Every run is a cold start, so JIT, class loading, AOT and CDS all
+ * show up as they would for a new instance.
+ * <p>
+ * Options (all optional): {@code --runs=5}, {@code --port=18081}, {@code --label=default},
+ * {@code --timeout=120s}, {@code --output=target/startup-result.json}. Everything after
+ * {@code --} is the launch command; by default the test classpath is started with the
+ * H2 benchmark profile. To compare a startup build, launch its jar instead, e.g.
+ * {@code -- java -XX:SharedArchiveFile=target/startup/application.jsa -Dspring.aot.enabled=true
+ * -jar target/startup/unit-and-integration-0.0.1-SNAPSHOT.jar}; {@code --server.port} is appended either way.
+ */
+public class CommentStartupBenchmark {
+
+    private static final long POLL_MILLIS = 5;
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public static void main(String[] args) throws Exception {
+        int separator = Arrays.asList(args).indexOf("--");
+        String[] options = separator < 0 ? args : Arrays.copyOfRange(args, 0, separator);
+        List<String> command = separator < 0
+                ? defaultCommand()
+                : new ArrayList<>(Arrays.asList(args).subList(separator + 1, args.length));
+
+        int runs = 5;
+        int port = 18081;
+        String label = "default";
+        Duration timeout = Duration.ofSeconds(120);
+        String output = "target/startup-result.json";
+        for (String option : options) {
+            String[] pair = option.replaceFirst("^--", "").split("=", 2);
+            String value = pair.length > 1 ? pair[1] : "";
+            switch (pair[0]) {
+                case "runs" -> runs = Integer.parseInt(value);
+                case "port" -> port = Integer.parseInt(value);
+                case "label" -> label = value;
+                case "timeout" -> timeout = Duration.parse("PT" + value.toUpperCase());
+                case "output" -> output = value;
+                default -> throw new IllegalArgumentException("Unknown option " + option);
+            }
+        }
+        command.add("--server.port=" + port);
+        new CommentStartupBenchmark().run(label, command, runs, port, timeout, Path.of(output));
+    }
+
+    private static List<String> defaultCommand() {
+        return new ArrayList<>(List.of(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"),
+                "com.example.testing.UnitAndIntegrationApplication",
+                "--spring.profiles.active=benchmark",
+                // the test application.yaml shadows the main one on this classpath
+                "--management.endpoint.health.probes.enabled=true"));
+    }
+
+    void run(String label, List<String> command, int runs, int port, Duration timeout, Path output)
+            throws IOException, InterruptedException {
+        System.out.printf("Starting %s %d times%n", label, runs);
+        URI firstRequest = URI.create("http://localhost:" + port + "/api/comments?size=1");
+        URI readiness = URI.create("http://localhost:" + port + "/actuator/health/readiness");
+
+        long[] firstRequestMillis = new long[runs];
+        long[] readyMillis = new long[runs];
+        for (int run = 0; run < runs; run++) {
+            Process process = new ProcessBuilder(command)
+                    .redirectErrorStream(true)
+                    .redirectOutput(new File(System.getProperty("java.io.tmpdir"), "comment-startup.log"))
+                    .start();
+            long startNanos = System.nanoTime();
+            try {
+                long deadline = startNanos + timeout.toNanos();
+                firstRequestMillis[run] = awaitOk(firstRequest, startNanos, deadline, process);
+                readyMillis[run] = awaitOk(readiness, startNanos, deadline, process);
+            } finally {
+                process.destroy();
+                if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                    process.destroyForcibly().waitFor();
+                }
+            }
+            System.out.printf("run %d: first request %d ms, ready %d ms%n", run + 1, firstRequestMillis[run], readyMillis[run]);
+        }
+
+        ObjectNode result = objectMapper.createObjectNode();
+        result.put("label", label);
+        result.put("command", String.join(" ", command));
+        summarize(result.putObject("firstRequestMillis"), firstRequestMillis);
+        summarize(result.putObject("readyMillis"), readyMillis);
+        System.out.printf("%s: first request median %d ms (min %d), ready median %d ms (min %d)%n", label,
+                result.get("firstRequestMillis").get("median").asLong(), result.get("firstRequestMillis").get("min").asLong(),
+                result.get("readyMillis").get("median").asLong(), result.get("readyMillis").get("min").asLong());
+
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        objectMapper.enable(SerializationFeature.INDENT_OUTPUT).writeValue(output.toFile(), result);
+    }
+
+    private long awaitOk(URI uri, long startNanos, long deadline, Process process) throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(5)).build();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("Application exited with " + process.exitValue()
+                        + ", see " + System.getProperty("java.io.tmpdir") + "/comment-startup.log");
+            }
+            try {
+                if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+                }
+            } catch (IOException e) {
+                // not listening yet
+            }
+            Thread.sleep(POLL_MILLIS);
+        }
+        throw new IllegalStateException("No successful response from " + uri + " within the timeout");
+    }
+
+    private static void summarize(ObjectNode node, long[] millis) {
+        long[] sorted = millis.clone();
+        Arrays.sort(sorted);
+        ArrayNode runs = node.putArray("runs");
+        Arrays.stream(millis).forEach(runs::add);
+        node.put("min", sorted[0]);
+        node.put("median", sorted[sorted.length / 2]);
+        node.put("max", sorted[sorted.length - 1]);
+    }
+
+}
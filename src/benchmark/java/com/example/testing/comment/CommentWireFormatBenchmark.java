@@ -0,0 +1,93 @@
+package com.example.testing.comment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.web.PagedModel;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialization cost of one listing page per format, with and without gzip. The
+ * size on the wire is printed once per trial, ahead of the timings.
+ */
+@Fork(1)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+public class CommentWireFormatBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+    private static final String[] WORDS = ("lorem ipsum dolor sit amet consectetur adipiscing elit sed do eiusmod "
+            + "tempor incididunt ut labore et dolore magna aliqua enim ad minim veniam quis nostrud").split(" ");
+
+    @Param({"json", "smile", "cbor"})
+    String format;
+
+    @Param({"false", "true"})
+    boolean gzip;
+
+    @Param({"128", "4096"})
+    int bodyLength;
+
+    private ObjectMapper objectMapper;
+    private PagedModel<CommentResponse> page;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = switch (format) {
+            case "smile" -> Jackson2ObjectMapperBuilder.smile().build();
+            case "cbor" -> Jackson2ObjectMapperBuilder.cbor().build();
+            default -> Jackson2ObjectMapperBuilder.json().build();
+        };
+        // shuffled words, so gzip sees text about as compressible as real comments rather than one repeated phrase
+        Random random = new Random(42);
+        List<CommentResponse> content = LongStream.rangeClosed(1, PAGE_SIZE)
+                .mapToObj(id -> new CommentResponse(id, "comment-" + id, "email@example.com", body(random), 0))
+                .toList();
+        page = new PagedModel<>(new PageImpl<>(content, PageRequest.of(0, PAGE_SIZE), 10_000));
+        System.out.printf("%s, gzip %s, body %d: %d bytes per page%n", format, gzip, bodyLength, serializePage().length);
+    }
+
+    @Benchmark
+    public byte[] serializePage() throws IOException {
+        byte[] payload = objectMapper.writeValueAsBytes(page);
+        if (gzip) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(payload.length / 2);
+            try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+                out.write(payload);
+            }
+            payload = compressed.toByteArray();
+        }
+        return payload;
+    }
+
+    private String body(Random random) {
+        StringBuilder body = new StringBuilder(bodyLength);
+        while (body.length() < bodyLength) {
+            body.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+        }
+        return body.substring(0, bodyLength);
+    }
+
+}
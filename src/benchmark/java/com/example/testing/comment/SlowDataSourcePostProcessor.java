@@ -0,0 +1,77 @@
+package com.example.testing.comment;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+/**
+ * Stands in for a slow MySQL by delaying every statement execution while the
+ * pooled connection is held, so pool and thread exhaustion show up under load.
+ * Only the {@code dataSource} bean the application uses is wrapped: with read
+ * replicas configured it routes to the primary and replica pools, which would
+ * otherwise each add their own delay to the same statement.
+ */
+class SlowDataSourcePostProcessor implements BeanPostProcessor {
+
+    private final Duration latency;
+
+    SlowDataSourcePostProcessor(Duration latency) {
+        this.latency = latency;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!"dataSource".equals(beanName) || !(bean instanceof DataSource dataSource)
+                || bean instanceof SlowDataSource) {
+            return bean;
+        }
+        return new SlowDataSource(dataSource);
+    }
+
+    private class SlowDataSource extends DelegatingDataSource {
+
+        SlowDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return proxy(Connection.class, super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return proxy(Connection.class, super.getConnection(username, password));
+        }
+
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T proxy(Class<T> type, Object target) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            String name = method.getName();
+            if (target instanceof Statement && name.startsWith("execute")) {
+                Thread.sleep(latency.toMillis());
+            }
+            try {
+                Object result = method.invoke(target, args);
+                if (result instanceof Statement && Statement.class.isAssignableFrom(method.getReturnType())) {
+                    return proxy(method.getReturnType(), result);
+                }
+                return result;
+            } catch (InvocationTargetException ex) {
+                throw ex.getTargetException();
+            }
+        };
+        return (T) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+}
@@ -1,13 +1,27 @@
 package com.example.testing;
 
+import org.springframework.boot.LazyInitializationExcludeFilter;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcTransactionManagerAutoConfiguration;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+import org.springframework.context.annotation.Bean;
 
-@SpringBootApplication
+// R2DBC is set up by CommentReactiveConfiguration, and only for the reactive stack
+@SpringBootApplication(exclude = {R2dbcAutoConfiguration.class, R2dbcTransactionManagerAutoConfiguration.class})
+@ConfigurationPropertiesScan
 public class UnitAndIntegrationApplication {
 
 	public static void main(String[] args) {
 		SpringApplication.run(UnitAndIntegrationApplication.class, args);
 	}
 
+	// with spring.main.lazy-initialization only library beans, such as the OpenAPI docs, wait for first use
+	@Bean
+	static LazyInitializationExcludeFilter eagerApplicationBeans() {
+		return (beanName, beanDefinition, beanType) ->
+				beanType != null && beanType.getName().startsWith("com.example.testing.");
+	}
+
 }
@@ -1,23 +1,34 @@
 package com.example.testing.comment;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
 import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Data
 @Entity
 @NoArgsConstructor
 @AllArgsConstructor
+@EntityListeners(CommentIdListener.class)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Comment.CACHE_REGION)
+// an author's comments in id order, so filtering by email pages without a sort
+@Table(indexes = @Index(name = "idx_comment_email_id", columnList = "email, id"))
 public class Comment {
 
+    static final String CACHE_REGION = "comment";
+
+    // assigned from a pre-allocated block by CommentIdListener
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     private String name;
     private String email;
@@ -0,0 +1,52 @@
+package com.example.testing.comment;
+
+import java.util.Locale;
+
+/**
+ * Reads an {@code Accept-Encoding} header (RFC 9110, section 12.5.3): a coding is
+ * acceptable unless its quality value is zero, and {@code *} stands for every
+ * coding the header does not name.
+ */
+final class CommentAcceptEncoding {
+
+    private CommentAcceptEncoding() {
+    }
+
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzip = null;
+        Double wildcard = null;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzip = quality(parts);
+            } else if (coding.equals("*")) {
+                wildcard = quality(parts);
+            }
+        }
+        if (gzip != null) {
+            return gzip > 0;
+        }
+        return wildcard != null && wildcard > 0;
+    }
+
+    // a malformed weight counts as zero, so an unreadable header never gets a compressed body
+    private static double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.regionMatches(true, 0, "q=", 0, 2)) {
+                try {
+                    double quality = Double.parseDouble(parameter.substring(2).trim());
+                    return quality >= 0 && quality <= 1 ? quality : 0;
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+}
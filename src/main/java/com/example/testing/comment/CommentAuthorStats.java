@@ -0,0 +1,8 @@
+package com.example.testing.comment;
+
+public record CommentAuthorStats(
+        String email,
+        long comments,
+        long totalBodyLength,
+        double averageBodyLength
+) {}
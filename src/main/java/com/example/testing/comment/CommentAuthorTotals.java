@@ -0,0 +1,26 @@
+package com.example.testing.comment;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// maps the per-author table CommentJdbcStatsIndex keeps, so it is created with the rest of the schema
+@Data
+@Entity
+@NoArgsConstructor
+@Table(name = "comment_author_stats")
+public class CommentAuthorTotals {
+
+    @Id
+    private String email;
+
+    @Column(nullable = false)
+    private Long comments;
+
+    @Column(nullable = false)
+    private Long bodyLength;
+
+}
@@ -0,0 +1,31 @@
+package com.example.testing.comment;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Set-at-a-time writes and full scans used by the batch, import, export and
+ * write-behind paths, next to the row-at-a-time {@link CommentRepository}.
+ */
+public interface CommentBatchRepository {
+
+    // the comments carry ids from the CommentIdAllocator and are written at version 0
+    void batchInsert(List<CommentResponse> comments);
+
+    // one affected-row count per update, 0 if the comment is missing or at another version
+    int[] batchUpdate(List<CommentBatchUpdate> updates);
+
+    int[] batchDelete(List<Long> ids);
+
+    Set<Long> findExistingIds(Collection<Long> ids);
+
+    // the current version of each comment that exists
+    Map<Long, Integer> findVersions(Collection<Long> ids);
+
+    // hands every comment to the action in id order
+    void streamAll(Consumer<CommentResponse> action);
+
+}
@@ -0,0 +1,18 @@
+package com.example.testing.comment;
+
+public record CommentBatchResult(
+        int index,
+        Long id,
+        Status status,
+        Integer version
+) {
+
+    public enum Status {
+        CREATED,
+        UPDATED,
+        DELETED,
+        NOT_FOUND,
+        CONFLICT
+    }
+
+}
@@ -0,0 +1,151 @@
+package com.example.testing.comment;
+
+import com.example.testing.comment.CommentBatchResult.Status;
+import io.micrometer.observation.annotation.Observed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+@Service
+@Observed(name = "comments.batch")
+public class CommentBatchService {
+
+    private final CommentMapper mapper;
+    private final CommentIdAllocator idAllocator;
+    private final CommentBatchRepository batchRepository;
+    private final CommentCache cache;
+    private final CommentStatsIndex stats;
+    private final CommentMetrics metrics;
+    private final ApplicationEventPublisher events;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    private static final Logger logger = LoggerFactory.getLogger(CommentBatchService.class);
+
+    public CommentBatchService(CommentMapper mapper,
+                               CommentIdAllocator idAllocator,
+                               CommentBatchRepository batchRepository,
+                               CommentCache cache,
+                               CommentStatsIndex stats,
+                               CommentMetrics metrics,
+                               ApplicationEventPublisher events,
+                               TransactionTemplate transactionTemplate,
+                               CommentProperties properties) {
+        this.mapper = mapper;
+        this.idAllocator = idAllocator;
+        this.batchRepository = batchRepository;
+        this.cache = cache;
+        this.stats = stats;
+        this.metrics = metrics;
+        this.events = events;
+        this.transactionTemplate = transactionTemplate;
+        this.chunkSize = properties.batch().chunkSize();
+    }
+
+    public List<CommentBatchResult> createComments(List<CommentRequest> requests) {
+        logger.info("Creating {} comments in batch", requests.size());
+        List<CommentBatchResult> results = new ArrayList<>(requests.size());
+        inChunks(requests, (offset, chunk) -> {
+            List<Long> ids = idAllocator.next(chunk.size());
+            List<CommentResponse> created = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                created.add(mapper.toResponse(ids.get(i), chunk.get(i), 0));
+                results.add(new CommentBatchResult(offset + i, ids.get(i), Status.CREATED, 0));
+            }
+            batchRepository.batchInsert(created);
+            events.publishEvent(CommentChangeEvent.saved(created));
+        });
+        return results;
+    }
+
+    public List<CommentBatchResult> updateComments(List<CommentBatchUpdate> updates) {
+        logger.info("Updating {} comments in batch", updates.size());
+        List<CommentBatchResult> results = new ArrayList<>(updates.size());
+        inChunks(updates, (offset, chunk) -> {
+            stats.beforeChange(chunk.stream().map(CommentBatchUpdate::id).toList());
+            int[] counts = batchRepository.batchUpdate(chunk);
+            // only the misses need a second look to tell a version conflict from a missing comment
+            List<Long> missedIds = new ArrayList<>();
+            for (int i = 0; i < chunk.size(); i++) {
+                if (counts[i] == 0) {
+                    missedIds.add(chunk.get(i).id());
+                }
+            }
+            Set<Long> existingIds = batchRepository.findExistingIds(missedIds);
+            // the rows stay locked until commit, so these are the versions the unversioned updates wrote
+            List<Long> unversionedIds = new ArrayList<>();
+            for (int i = 0; i < chunk.size(); i++) {
+                if (counts[i] != 0 && chunk.get(i).version() == null) {
+                    unversionedIds.add(chunk.get(i).id());
+                }
+            }
+            Map<Long, Integer> writtenVersions = unversionedIds.isEmpty()
+                    ? Map.of()
+                    : batchRepository.findVersions(unversionedIds);
+            List<CommentResponse> updated = new ArrayList<>(chunk.size());
+
+            for (int i = 0; i < chunk.size(); i++) {
+                CommentBatchUpdate update = chunk.get(i);
+                if (counts[i] == 0) {
+                    Status status = existingIds.contains(update.id()) ? Status.CONFLICT : Status.NOT_FOUND;
+                    if (status == Status.CONFLICT) {
+                        metrics.versionConflict();
+                    } else {
+                        metrics.notFound();
+                    }
+                    results.add(new CommentBatchResult(offset + i, update.id(), status, null));
+                    continue;
+                }
+                Integer newVersion = update.version() == null ? writtenVersions.get(update.id()) : update.version() + 1;
+                CommentResponse response = mapper.toResponse(update.id(), update.comment(), newVersion);
+                // a versioned entry, so a read racing the update cannot put the old row back
+                cache.put(response);
+                updated.add(response);
+                results.add(new CommentBatchResult(offset + i, update.id(), Status.UPDATED, newVersion));
+            }
+            events.publishEvent(CommentChangeEvent.saved(updated));
+        });
+        return results;
+    }
+
+    public List<CommentBatchResult> deleteComments(List<Long> ids) {
+        logger.info("Deleting {} comments in batch", ids.size());
+        List<CommentBatchResult> results = new ArrayList<>(ids.size());
+        inChunks(ids, (offset, chunk) -> {
+            stats.beforeChange(chunk);
+            int[] counts = batchRepository.batchDelete(chunk);
+            List<Long> deleted = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                Long id = chunk.get(i);
+                if (counts[i] == 0) {
+                    metrics.notFound();
+                    results.add(new CommentBatchResult(offset + i, id, Status.NOT_FOUND, null));
+                } else {
+                    cache.markDeleted(id);
+                    deleted.add(id);
+                    results.add(new CommentBatchResult(offset + i, id, Status.DELETED, null));
+                }
+            }
+            events.publishEvent(CommentChangeEvent.deleted(deleted));
+        });
+        return results;
+    }
+
+    // each chunk commits on its own, so a failure leaves earlier chunks applied
+    private <T> void inChunks(List<T> items, BiConsumer<Integer, List<T>> action) {
+        for (int offset = 0; offset < items.size(); offset += chunkSize) {
+            List<T> chunk = items.subList(offset, Math.min(offset + chunkSize, items.size()));
+            int chunkOffset = offset;
+            transactionTemplate.executeWithoutResult(status -> action.accept(chunkOffset, chunk));
+        }
+    }
+
+}
@@ -0,0 +1,7 @@
+package com.example.testing.comment;
+
+public record CommentBatchUpdate(
+        Long id,
+        Integer version,
+        CommentRequest comment
+) {}
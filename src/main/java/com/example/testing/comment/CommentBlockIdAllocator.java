@@ -0,0 +1,131 @@
+package com.example.testing.comment;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands out comment ids from blocks reserved in the {@code comment_id_block} table,
+ * so an id is known before the row is written and most inserts cost no round trip
+ * for it. Blocks left unused by a restart are simply skipped.
+ * <p>
+ * Blocks are reserved over a pool of one connection of their own. Callers usually
+ * hold a connection of the main pool while they wait for an id, so once every
+ * connection is held that way a reservation from the main pool could never start.
+ * The table itself is mapped by {@link CommentIdBlock}.
+ */
+@Component
+@Profile("!in-memory")
+public class CommentBlockIdAllocator implements CommentIdAllocator, DisposableBean {
+
+    // the first reservation continues after ids that were assigned by the database
+    private static final String SEED_SQL = "INSERT INTO comment_id_block (id, next_id) SELECT 1, COALESCE(MAX(id), 0) + 1 FROM comment";
+    private static final String RESERVE_SQL = "UPDATE comment_id_block SET next_id = next_id + ? WHERE id = 1";
+    private static final String NEXT_ID_SQL = "SELECT next_id FROM comment_id_block WHERE id = 1";
+
+    private final HikariDataSource reservationPool;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate reservation;
+    private final int blockSize;
+    // not a monitor: a reservation waits on the database, which would pin a virtual thread
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // the current block is [next, limit); guarded by lock
+    private long next;
+    private long limit;
+
+    public CommentBlockIdAllocator(DataSource dataSource, CommentProperties properties) {
+        this.reservationPool = reservationPool(dataSource);
+        DataSource reservationDataSource = reservationPool != null ? reservationPool : dataSource;
+        this.jdbcTemplate = new JdbcTemplate(reservationDataSource);
+        // a transaction of its own, so the row lock is not held for the rest of the caller's transaction
+        this.reservation = new TransactionTemplate(new DataSourceTransactionManager(reservationDataSource));
+        this.blockSize = properties.ids().blockSize();
+    }
+
+    @Override
+    public void destroy() {
+        if (reservationPool != null) {
+            reservationPool.close();
+        }
+    }
+
+    @Override
+    public long next() {
+        lock.lock();
+        try {
+            if (next == limit) {
+                reserve(blockSize);
+            }
+            return next++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Long> next(int count) {
+        List<Long> ids = new ArrayList<>(count);
+        lock.lock();
+        try {
+            while (ids.size() < count) {
+                if (next == limit) {
+                    reserve(Math.max(blockSize, count - ids.size()));
+                }
+                ids.add(next++);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return ids;
+    }
+
+    private void reserve(int size) {
+        long end = reservation.execute(status -> {
+            if (jdbcTemplate.update(RESERVE_SQL, size) == 0) {
+                seed();
+                jdbcTemplate.update(RESERVE_SQL, size);
+            }
+            return jdbcTemplate.queryForObject(NEXT_ID_SQL, Long.class);
+        });
+        next = end - size;
+        limit = end;
+    }
+
+    // the same settings as the main pool, behind a replica router or not; an unpooled data source is used as is
+    private static HikariDataSource reservationPool(DataSource dataSource) {
+        try {
+            if (!dataSource.isWrapperFor(HikariDataSource.class)) {
+                return null;
+            }
+            HikariDataSource pool = new HikariDataSource();
+            dataSource.unwrap(HikariDataSource.class).copyStateTo(pool);
+            pool.setPoolName("comment-ids");
+            pool.setMaximumPoolSize(1);
+            pool.setMinimumIdle(0);
+            return pool;
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not read the connection pool settings", e);
+        }
+    }
+
+    private void seed() {
+        try {
+            jdbcTemplate.update(SEED_SQL);
+        } catch (DuplicateKeyException e) {
+            // another instance seeded the table first
+        }
+    }
+
+}
@@ -0,0 +1,96 @@
+package com.example.testing.comment;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Optional;
+
+@Component
+public class CommentCache {
+
+    static final String CACHE_NAME = "comments";
+
+    // marks a deleted comment so that a reader racing the delete cannot re-populate it
+    private static final int TOMBSTONE_VERSION = Integer.MAX_VALUE;
+
+    private final Cache<Long, Entry> cache;
+    private final CommentMetrics metrics;
+    private final CommentInterner interner;
+
+    public CommentCache(CommentProperties properties, MeterRegistry meterRegistry, CommentMetrics metrics,
+                        CommentInterner interner) {
+        this.metrics = metrics;
+        this.interner = interner;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.cache().maximumSize())
+                .expireAfterWrite(properties.cache().ttl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Returns the cached response, an empty optional on a miss, or throws
+     * {@link CommentNotFoundException} if the comment is known to be deleted.
+     */
+    public Optional<CommentResponse> get(Long commentId) {
+        Entry entry = cache.getIfPresent(commentId);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        if (entry.isTombstone()) {
+            metrics.notFound();
+            throw new CommentNotFoundException(commentId);
+        }
+        return Optional.of(entry.response());
+    }
+
+    public void put(CommentResponse response) {
+        if (response.version() != null) {
+            // read queries build their own strings, so the cached copy is where repeated authors get shared
+            CommentResponse interned = interner.intern(response);
+            afterCommit(() -> merge(interned.id(), new Entry(interned, interned.version())));
+        }
+    }
+
+    public void markDeleted(Long commentId) {
+        afterCommit(() -> merge(commentId, new Entry(null, TOMBSTONE_VERSION)));
+    }
+
+    public void invalidate(Long commentId) {
+        afterCommit(() -> cache.invalidate(commentId));
+    }
+
+    private void merge(Long commentId, Entry candidate) {
+        // never let an older version replace a newer one, e.g. when a slow read lands after an update
+        cache.asMap().merge(commentId, candidate,
+                (current, next) -> next.version() >= current.version() ? next : current);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private record Entry(CommentResponse response, int version) {
+
+        boolean isTombstone() {
+            return version == TOMBSTONE_VERSION;
+        }
+
+    }
+
+}
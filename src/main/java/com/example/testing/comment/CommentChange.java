@@ -0,0 +1,19 @@
+package com.example.testing.comment;
+
+/**
+ * One entry of the change stream. {@code seq} is the outbox sequence and doubles
+ * as the SSE event id, so a client resumes with {@code Last-Event-ID}; the comment
+ * is absent for deletions.
+ */
+public record CommentChange(
+        long seq,
+        Type type,
+        Long commentId,
+        CommentResponse comment
+) {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+}
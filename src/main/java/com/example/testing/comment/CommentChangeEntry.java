@@ -0,0 +1,32 @@
+package com.example.testing.comment;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// maps the outbox table CommentJdbcOutbox writes and reads, so it is created with the rest of the schema
+@Data
+@Entity
+@NoArgsConstructor
+@Table(name = "comment_change")
+public class CommentChangeEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long seq;
+
+    @Column(length = 7, nullable = false)
+    private String type;
+
+    @Column(nullable = false)
+    private Long commentId;
+
+    @Column(columnDefinition = "MEDIUMTEXT")
+    private String payload;
+
+}
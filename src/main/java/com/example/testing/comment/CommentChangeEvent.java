@@ -0,0 +1,30 @@
+package com.example.testing.comment;
+
+import java.util.List;
+
+/**
+ * Published by every write path once per transaction; listeners that keep
+ * derived state (such as the search index) in sync receive it after commit.
+ */
+public record CommentChangeEvent(
+        List<CommentResponse> saved,
+        List<Long> deletedIds
+) {
+
+    public static CommentChangeEvent saved(CommentResponse comment) {
+        return new CommentChangeEvent(List.of(comment), List.of());
+    }
+
+    public static CommentChangeEvent saved(List<CommentResponse> comments) {
+        return new CommentChangeEvent(comments, List.of());
+    }
+
+    public static CommentChangeEvent deleted(Long commentId) {
+        return new CommentChangeEvent(List.of(), List.of(commentId));
+    }
+
+    public static CommentChangeEvent deleted(List<Long> commentIds) {
+        return new CommentChangeEvent(List.of(), commentIds);
+    }
+
+}
@@ -0,0 +1,239 @@
+package com.example.testing.comment;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pushes committed comment changes to Server-Sent Events subscribers. A single
+ * relay thread tails the {@link CommentOutbox} in sequence order, polling on an
+ * interval and right after local commits, and hands every change to each
+ * subscriber; open connections cost no thread while idle. Sends run on a small
+ * dispatch pool, and a client that stops reading is evicted once a send has
+ * blocked for the write timeout, with a thread added to the pool in its place
+ * until the container fails the write, so stalled clients cannot starve the rest.
+ * <p>
+ * Every change read is also applied to the {@link CommentCache}, so this instance
+ * sees writes made by other instances and by the reactive stack, which only
+ * reach it through the outbox.
+ */
+@Component
+public class CommentChangeStream implements SmartInitializingSingleton, DisposableBean {
+
+    private static final Duration PURGE_INTERVAL = Duration.ofMinutes(10);
+
+    private final CommentOutbox outbox;
+    private final CommentCache cache;
+    private final CommentMetrics metrics;
+    private final CommentProperties.Changes properties;
+
+    private final Set<CommentChangeSubscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService relay;
+    // resized by the relay thread only
+    private final ThreadPoolExecutor dispatch;
+    private final AtomicBoolean pollRequested = new AtomicBoolean();
+
+    // advanced by the relay thread before it fans a change out, see subscribe
+    private volatile long delivered;
+    // relay thread only
+    private long gapSeenNanos = -1;
+    private final Deque<Checkpoint> checkpoints = new ArrayDeque<>();
+
+    private static final Logger logger = LoggerFactory.getLogger(CommentChangeStream.class);
+
+    public CommentChangeStream(CommentOutbox outbox, CommentCache cache, CommentMetrics metrics,
+                               CommentProperties properties) {
+        this.outbox = outbox;
+        this.cache = cache;
+        this.metrics = metrics;
+        this.properties = properties.changes();
+        this.relay = Executors.newSingleThreadScheduledExecutor(daemonThreads("comment-change-relay-"));
+        this.dispatch = new ThreadPoolExecutor(this.properties.dispatchThreads(), this.properties.dispatchThreads(),
+                0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), daemonThreads("comment-change-dispatch-"));
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        delivered = outbox.lastSeq();
+        metrics.changeSubscribers(subscribers);
+        long pollMillis = properties.pollInterval().toMillis();
+        relay.scheduleWithFixedDelay(this::poll, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+        long heartbeatMillis = properties.heartbeat().toMillis();
+        relay.scheduleWithFixedDelay(this::heartbeat, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+        relay.scheduleWithFixedDelay(this::purge, 0, PURGE_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+        long stallCheckMillis = Math.max(1, properties.writeTimeout().toMillis() / 2);
+        relay.scheduleWithFixedDelay(this::evictStalled, stallCheckMillis, stallCheckMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens a stream that first replays the changes after {@code since}, when
+     * given, and then follows new ones.
+     */
+    public SseEmitter subscribe(Long since) {
+        SseEmitter emitter = new SseEmitter(properties.timeout().toMillis());
+        CommentChangeSubscriber subscriber = new CommentChangeSubscriber(emitter, dispatch, properties.maxPending());
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+        // registered before reading the position, so every later change is either replayed or offered
+        subscribers.add(subscriber);
+        long upTo = delivered;
+        dispatch.execute(() -> subscriber.start(since, upTo, outbox));
+        return emitter;
+    }
+
+    // answers local commits without waiting for the next poll; other instances still poll
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCommentChange(CommentChangeEvent event) {
+        if (pollRequested.compareAndSet(false, true)) {
+            try {
+                relay.execute(() -> {
+                    pollRequested.set(false);
+                    poll();
+                });
+            } catch (RejectedExecutionException e) {
+                // shutting down
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        relay.shutdownNow();
+        subscribers.forEach(CommentChangeSubscriber::close);
+        dispatch.shutdown();
+    }
+
+    private void poll() {
+        try {
+            List<CommentChange> changes;
+            do {
+                changes = outbox.readAfter(delivered, properties.batchSize());
+                if (!deliver(changes)) {
+                    return;
+                }
+            } while (changes.size() == properties.batchSize());
+        } catch (RuntimeException e) {
+            logger.warn("Could not read comment changes after {}, retrying", delivered, e);
+        }
+    }
+
+    /**
+     * Hands the changes out in order. A missing sequence may belong to a transaction
+     * that has not committed yet, so delivery stops there until it shows up or the
+     * gap timeout has passed; a rolled back transaction leaves such a gap for good.
+     */
+    private boolean deliver(List<CommentChange> changes) {
+        for (CommentChange change : changes) {
+            if (change.seq() != delivered + 1) {
+                long now = System.nanoTime();
+                if (gapSeenNanos < 0) {
+                    gapSeenNanos = now;
+                }
+                if (now - gapSeenNanos < properties.gapTimeout().toNanos()) {
+                    return false;
+                }
+            }
+            gapSeenNanos = -1;
+            delivered = change.seq();
+            // versions decide, so a local write the cache already holds is not replaced by an older one
+            if (change.type() == CommentChange.Type.DELETED) {
+                cache.markDeleted(change.commentId());
+            } else {
+                cache.put(change.comment());
+            }
+            for (CommentChangeSubscriber subscriber : subscribers) {
+                if (!subscriber.offer(change)) {
+                    metrics.changeSubscriberEvicted();
+                    remove(subscriber);
+                }
+            }
+        }
+        return true;
+    }
+
+    private void heartbeat() {
+        subscribers.removeIf(CommentChangeSubscriber::isClosed);
+        subscribers.forEach(CommentChangeSubscriber::heartbeat);
+    }
+
+    private void evictStalled() {
+        long now = System.nanoTime();
+        for (CommentChangeSubscriber subscriber : subscribers) {
+            if (subscriber.evictIfStalled(now, properties.writeTimeout().toNanos(), this::stalledSendReturned)) {
+                subscribers.remove(subscriber);
+                metrics.changeSubscriberEvicted();
+                resizeDispatch(1);
+            }
+        }
+    }
+
+    private void stalledSendReturned() {
+        try {
+            relay.execute(() -> resizeDispatch(-1));
+        } catch (RejectedExecutionException e) {
+            // shutting down
+        }
+    }
+
+    // the maximum is raised first and lowered last, it may never drop below the core size
+    private void resizeDispatch(int delta) {
+        if (delta > 0) {
+            dispatch.setMaximumPoolSize(dispatch.getMaximumPoolSize() + delta);
+            dispatch.setCorePoolSize(dispatch.getCorePoolSize() + delta);
+        } else {
+            dispatch.setCorePoolSize(dispatch.getCorePoolSize() + delta);
+            dispatch.setMaximumPoolSize(dispatch.getMaximumPoolSize() + delta);
+        }
+    }
+
+    // deletes by sequence, remembering which sequence was current when, so no scan by time is needed
+    private void purge() {
+        try {
+            long now = System.nanoTime();
+            checkpoints.addLast(new Checkpoint(now, delivered));
+            Long expired = null;
+            while (!checkpoints.isEmpty() && now - checkpoints.peekFirst().nanos() >= properties.retention().toNanos()) {
+                expired = checkpoints.removeFirst().seq();
+            }
+            if (expired != null) {
+                logger.info("Purged {} comment changes up to {}", outbox.purgeUpTo(expired), expired);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Could not purge comment changes", e);
+        }
+    }
+
+    private void remove(CommentChangeSubscriber subscriber) {
+        subscriber.close();
+        subscribers.remove(subscriber);
+    }
+
+    private static CustomizableThreadFactory daemonThreads(String prefix) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(prefix);
+        threadFactory.setDaemon(true);
+        return threadFactory;
+    }
+
+    private record Checkpoint(long nanos, long seq) {}
+
+}
@@ -0,0 +1,212 @@
+package com.example.testing.comment;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+
+/**
+ * One open change stream. Changes are buffered per comment id, so while the client
+ * is slow to read only the latest change of each comment waits for it; sending
+ * happens on a shared executor, at most one task per subscriber at a time. A send
+ * blocks while the client's socket buffer is full; see {@link #evictIfStalled}.
+ */
+final class CommentChangeSubscriber {
+
+    static final String RESET = "reset";
+    private static final int REPLAY_PAGE_SIZE = 500;
+
+    private final SseEmitter emitter;
+    private final Executor executor;
+    private final int maxPending;
+
+    // guarded by this; insertion order is sequence order, a coalesced change moves to the end
+    private final LinkedHashMap<Long, CommentChange> pending = new LinkedHashMap<>();
+    private boolean scheduled = true;
+    private boolean heartbeat;
+    private boolean closed;
+    private boolean sending;
+    private long sendStartedNanos;
+    private Runnable onStalledSendReturned;
+    // only touched by the task that holds the schedule
+    private long position;
+
+    CommentChangeSubscriber(SseEmitter emitter, Executor executor, int maxPending) {
+        this.emitter = emitter;
+        this.executor = executor;
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * Sends what the client missed after {@code since} up to {@code upTo}, the last
+     * change the relay had handed out when this subscriber was registered, then
+     * switches to the live changes buffered meanwhile. If the outbox no longer goes
+     * back that far, a {@value #RESET} event tells the client to reload instead.
+     */
+    void start(Long since, long upTo, CommentOutbox outbox) {
+        try {
+            position = since == null ? upTo : since;
+            if (position < upTo) {
+                Long firstSeq = outbox.firstSeq();
+                if (firstSeq == null || firstSeq > position + 1) {
+                    emit(SseEmitter.event().id(Long.toString(upTo)).name(RESET).data(""));
+                    position = upTo;
+                } else {
+                    replay(upTo, outbox);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+            return;
+        }
+        flush();
+    }
+
+    /**
+     * Returns false if the client fell so far behind that even the coalesced
+     * backlog is over the limit; it should then be closed and resume from its
+     * last event id.
+     */
+    boolean offer(CommentChange change) {
+        synchronized (this) {
+            if (closed) {
+                return true;
+            }
+            pending.remove(change.commentId());
+            pending.put(change.commentId(), change);
+            if (pending.size() > maxPending) {
+                return false;
+            }
+            schedule();
+        }
+        return true;
+    }
+
+    // keeps idle connections open through proxies and notices clients that went away
+    synchronized void heartbeat() {
+        if (!closed && !scheduled) {
+            heartbeat = true;
+            schedule();
+        }
+    }
+
+    void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            pending.clear();
+        }
+        emitter.complete();
+    }
+
+    synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Closes this stream if a send has been blocked for longer than the timeout,
+     * without touching the emitter the blocked thread still holds. The thread is
+     * stuck until the container's write timeout fails the write, so the caller
+     * gets {@code onReturn} to run once it is back and completes the emitter then.
+     */
+    synchronized boolean evictIfStalled(long nowNanos, long timeoutNanos, Runnable onReturn) {
+        if (closed || !sending || nowNanos - sendStartedNanos < timeoutNanos) {
+            return false;
+        }
+        closed = true;
+        pending.clear();
+        onStalledSendReturned = onReturn;
+        return true;
+    }
+
+    private void schedule() {
+        if (!scheduled) {
+            scheduled = true;
+            executor.execute(this::flush);
+        }
+    }
+
+    private void replay(long upTo, CommentOutbox outbox) throws IOException {
+        List<CommentChange> page;
+        do {
+            page = outbox.readAfter(position, REPLAY_PAGE_SIZE);
+            for (CommentChange change : page) {
+                if (change.seq() > upTo) {
+                    return;
+                }
+                send(change);
+            }
+        } while (page.size() == REPLAY_PAGE_SIZE);
+    }
+
+    private void flush() {
+        try {
+            while (true) {
+                List<CommentChange> changes;
+                boolean ping;
+                synchronized (this) {
+                    if (closed || pending.isEmpty() && !heartbeat) {
+                        scheduled = false;
+                        return;
+                    }
+                    changes = new ArrayList<>(pending.values());
+                    pending.clear();
+                    ping = heartbeat;
+                    heartbeat = false;
+                }
+                if (ping && changes.isEmpty()) {
+                    emit(SseEmitter.event().comment(""));
+                }
+                for (CommentChange change : changes) {
+                    send(change);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+        }
+    }
+
+    private void send(CommentChange change) throws IOException {
+        // the replay may already have covered changes that were buffered live
+        if (change.seq() <= position) {
+            return;
+        }
+        emit(SseEmitter.event()
+                .id(Long.toString(change.seq()))
+                .name(change.type().name().toLowerCase(Locale.ROOT))
+                .data(change, MediaType.APPLICATION_JSON));
+        position = change.seq();
+    }
+
+    private void emit(SseEmitter.SseEventBuilder event) throws IOException {
+        synchronized (this) {
+            if (closed) {
+                throw new IOException("Change stream closed");
+            }
+            sending = true;
+            sendStartedNanos = System.nanoTime();
+        }
+        try {
+            emitter.send(event);
+        } finally {
+            Runnable onReturn;
+            synchronized (this) {
+                sending = false;
+                onReturn = onStalledSendReturned;
+                onStalledSendReturned = null;
+            }
+            if (onReturn != null) {
+                onReturn.run();
+                emitter.complete();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,97 @@
+package com.example.testing.comment;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Adaptive cap on concurrent requests (additive increase, multiplicative decrease).
+ * A request that finishes slower than the latency threshold, or fails, shrinks the
+ * limit by the backoff ratio, at most once per threshold-long window: one overload
+ * slows every request in flight, and each of them backing off again would collapse
+ * the limit to the minimum. Fast requests grow it by one while the limit is
+ * actually being used. Requests over the limit are shed with 503 before they can
+ * queue for a database connection.
+ */
+@Component
+@ConditionalOnProperty(name = "comments.concurrency-limit.enabled")
+public class CommentConcurrencyLimiter implements HandlerInterceptor {
+
+    private static final String START_NANOS = CommentConcurrencyLimiter.class.getName() + ".startNanos";
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    private final AtomicInteger limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong lastDecreaseNanos;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+    private final CommentMetrics metrics;
+
+    public CommentConcurrencyLimiter(CommentProperties properties, CommentMetrics metrics) {
+        CommentProperties.ConcurrencyLimit concurrencyLimit = properties.concurrencyLimit();
+        this.limit = new AtomicInteger(concurrencyLimit.initialLimit());
+        this.minLimit = concurrencyLimit.minLimit();
+        this.maxLimit = concurrencyLimit.maxLimit();
+        this.latencyThresholdNanos = concurrencyLimit.latencyThreshold().toNanos();
+        this.backoffRatio = concurrencyLimit.backoffRatio();
+        this.lastDecreaseNanos = new AtomicLong(System.nanoTime() - latencyThresholdNanos);
+        this.metrics = metrics;
+        metrics.concurrencyLimit(limit::get, inFlight::get);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        if (tryAcquire()) {
+            request.setAttribute(START_NANOS, System.nanoTime());
+            return true;
+        }
+        metrics.concurrencyRejected();
+        response.setHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+        response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Too many concurrent requests");
+        return false;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        long now = System.nanoTime();
+        long latencyNanos = now - (long) request.getAttribute(START_NANOS);
+        release(latencyNanos, ex != null || response.getStatus() >= HttpStatus.INTERNAL_SERVER_ERROR.value(), now);
+    }
+
+    boolean tryAcquire() {
+        if (inFlight.incrementAndGet() > limit.get()) {
+            inFlight.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    void release(long latencyNanos, boolean failed, long nowNanos) {
+        int concurrent = inFlight.getAndDecrement();
+        if (failed || latencyNanos > latencyThresholdNanos) {
+            // nanoTime values are only comparable by their difference
+            long last = lastDecreaseNanos.get();
+            if (nowNanos - last >= latencyThresholdNanos && lastDecreaseNanos.compareAndSet(last, nowNanos)) {
+                limit.updateAndGet(current -> Math.max(minLimit, (int) (current * backoffRatio)));
+            }
+        } else if (concurrent * 2 >= limit.get()) {
+            // only grow while at least half the limit is in use, an idle service proves nothing about more load
+            limit.updateAndGet(current -> Math.min(maxLimit, current + 1));
+        }
+    }
+
+    int limit() {
+        return limit.get();
+    }
+
+}
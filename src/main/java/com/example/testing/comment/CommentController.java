@@ -1,54 +1,209 @@
 package com.example.testing.comment;
 
+import jakarta.servlet.http.HttpServletResponse;
 import org.springdoc.core.annotations.ParameterObject;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/api/comments")
 public class CommentController {
 
+    private static final String PREFER = "Prefer";
+    private static final String PREFERENCE_APPLIED = "Preference-Applied";
+    private static final String RESPOND_ASYNC = "respond-async";
+    private static final String LAST_EVENT_ID = "Last-Event-ID";
+
     private final CommentService service;
+    private final CommentBatchService batchService;
+    private final CommentImporter importer;
+    private final CommentExporter exporter;
+    private final CommentSearchIndex searchIndex;
+    private final CommentStatsIndex statsIndex;
+    private final CommentWriteBehind writeBehind;
+    private final CommentChangeStream changeStream;
 
-    public CommentController(CommentService service) {
+    public CommentController(CommentService service,
+                             CommentBatchService batchService,
+                             CommentImporter importer,
+                             CommentExporter exporter,
+                             CommentSearchIndex searchIndex,
+                             CommentStatsIndex statsIndex,
+                             CommentWriteBehind writeBehind,
+                             CommentChangeStream changeStream) {
         this.service = service;
+        this.batchService = batchService;
+        this.importer = importer;
+        this.exporter = exporter;
+        this.searchIndex = searchIndex;
+        this.statsIndex = statsIndex;
+        this.writeBehind = writeBehind;
+        this.changeStream = changeStream;
     }
 
     @GetMapping
-    public ResponseEntity<Page<CommentResponse>> getAllComments(@ParameterObject @PageableDefault Pageable pageable) {
-        return ResponseEntity.ok(service.getAllComments(pageable));
+    public ResponseEntity<Page<CommentResponse>> getAllComments(@ParameterObject @PageableDefault Pageable pageable,
+                                                                @RequestParam(required = false) Integer preview) {
+        return ResponseEntity.ok(service.getAllComments(pageable, preview));
+    }
+
+    @GetMapping(params = {"after", "!email"})
+    public ResponseEntity<CommentSlice> getCommentsAfter(@RequestParam String after,
+                                                         @RequestParam(defaultValue = "20") int size,
+                                                         @RequestParam(required = false) Integer preview) {
+        return ResponseEntity.ok(service.getCommentsAfter(after, size, preview));
+    }
+
+    // keyset paging like after, over one author's comments
+    @GetMapping(params = "email")
+    public ResponseEntity<CommentSlice> getCommentsByEmail(@RequestParam String email,
+                                                           @RequestParam(required = false) String after,
+                                                           @RequestParam(defaultValue = "20") int size,
+                                                           @RequestParam(required = false) Integer preview) {
+        return ResponseEntity.ok(service.getCommentsByEmail(email, after, size, preview));
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<CommentStats> getStats() {
+        return ResponseEntity.ok(statsIndex.stats());
+    }
+
+    @GetMapping(value = "/stats", params = "email")
+    public ResponseEntity<CommentAuthorStats> getAuthorStats(@RequestParam String email) {
+        return ResponseEntity.ok(statsIndex.author(email));
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<Page<CommentResponse>> searchComments(@RequestParam String q,
+                                                                @ParameterObject @PageableDefault Pageable pageable) {
+        return ResponseEntity.ok(searchIndex.search(q, pageable));
+    }
+
+    // Last-Event-ID is what an EventSource sends on reconnect; since serves the first connection
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestHeader(value = LAST_EVENT_ID, required = false) Long lastEventId,
+                                    @RequestParam(required = false) Long since) {
+        return changeStream.subscribe(lastEventId != null ? lastEventId : since);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<CommentResponse> getCommentById(@PathVariable Long id) {
-        return ResponseEntity.ok(service.getCommentById(id));
+    public ResponseEntity<CommentResponse> getCommentById(@PathVariable Long id, WebRequest webRequest) {
+        // a revalidation only needs the version, so the body is not read unless it changed
+        if (webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                && webRequest.checkNotModified(CommentETag.of(id, service.getCommentVersion(id)))) {
+            return null;
+        }
+        CommentResponse response = service.getCommentById(id);
+        return ResponseEntity.ok().eTag(CommentETag.of(response)).body(response);
     }
 
     @PostMapping
-    public ResponseEntity<CommentResponse> createComment(@RequestBody CommentRequest request) {
-        return ResponseEntity.status(HttpStatus.CREATED).body(service.createComment(request));
+    public ResponseEntity<CommentResponse> createComment(@RequestHeader(value = PREFER, required = false) String prefer,
+                                                         @RequestBody CommentRequest request) {
+        // the preference is ignored, as RFC 7240 allows, unless write-behind is enabled
+        if (prefer != null && prefer.contains(RESPOND_ASYNC) && writeBehind.isEnabled()) {
+            CommentResponse response = writeBehind.accept(request);
+            return ResponseEntity.accepted()
+                    .header(PREFERENCE_APPLIED, RESPOND_ASYNC)
+                    .eTag(CommentETag.of(response))
+                    .body(response);
+        }
+        CommentResponse response = service.createComment(request);
+        return ResponseEntity.status(HttpStatus.CREATED).eTag(CommentETag.of(response)).body(response);
+    }
+
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<CommentImportResult> importComments(InputStream body) throws IOException {
+        return ResponseEntity.ok(importer.importComments(body));
+    }
+
+    @GetMapping("/export")
+    public void exportComments(@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                               HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (!CommentAcceptEncoding.acceptsGzip(acceptEncoding)) {
+            exporter.exportComments(response.getOutputStream());
+            return;
+        }
+
+        response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        try (GZIPOutputStream gzip = new GZIPOutputStream(response.getOutputStream(), 8192)) {
+            exporter.exportComments(gzip);
+        }
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<List<CommentBatchResult>> createComments(@RequestBody List<CommentRequest> requests) {
+        return ResponseEntity.ok(batchService.createComments(requests));
+    }
+
+    @PatchMapping("/batch")
+    public ResponseEntity<List<CommentBatchResult>> updateComments(@RequestBody List<CommentBatchUpdate> updates) {
+        return ResponseEntity.ok(batchService.updateComments(updates));
+    }
+
+    @DeleteMapping("/batch")
+    public ResponseEntity<List<CommentBatchResult>> deleteComments(@RequestBody List<Long> ids) {
+        return ResponseEntity.ok(batchService.deleteComments(ids));
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<CommentResponse> updateComment(@PathVariable Long id, @RequestBody CommentRequest request) {
-        return ResponseEntity.ok(service.updateComment(id, request));
+    public ResponseEntity<CommentResponse> updateComment(@PathVariable Long id,
+                                                         @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                         @RequestBody CommentRequest request) {
+        CommentResponse response = ifMatch(id, ifMatch, request.version(), version -> service.updateComment(
+                id, new CommentRequest(request.name(), request.email(), request.body(), version)));
+        return ResponseEntity.ok().eTag(CommentETag.of(response)).body(response);
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteComment(@PathVariable Long id) {
-        service.deleteComment(id);
+    public ResponseEntity<Void> deleteComment(@PathVariable Long id,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        ifMatch(id, ifMatch, null, version -> {
+            service.deleteComment(id, version);
+            return null;
+        });
         return ResponseEntity.noContent().build();
     }
 
+    // If-Match takes precedence over a version in the body, and its mismatch is a failed precondition (412);
+    // a missing comment matches no tag, not even *, so that is a failed precondition too (RFC 9110, 13.1.1)
+    private static <T> T ifMatch(Long id, String ifMatch, Integer bodyVersion, Function<Integer, T> write) {
+        if (ifMatch == null) {
+            return write.apply(bodyVersion);
+        }
+        try {
+            return write.apply(CommentETag.expectedVersion(id, ifMatch));
+        } catch (CommentVersionConflictException | CommentNotFoundException e) {
+            throw new CommentPreconditionFailedException(id, ifMatch);
+        }
+    }
+
 }
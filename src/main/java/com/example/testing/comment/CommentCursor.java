@@ -0,0 +1,30 @@
+package com.example.testing.comment;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+public record CommentCursor(long lastId) {
+
+    public static final CommentCursor START = new CommentCursor(0L);
+
+    public static CommentCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return START;
+        }
+        try {
+            byte[] bytes = Base64.getUrlDecoder().decode(token);
+            if (bytes.length != Long.BYTES) {
+                throw new InvalidCommentCursorException(token);
+            }
+            return new CommentCursor(ByteBuffer.wrap(bytes).getLong());
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidCommentCursorException(token);
+        }
+    }
+
+    public String encode() {
+        byte[] bytes = ByteBuffer.allocate(Long.BYTES).putLong(lastId).array();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+}
@@ -1,7 +1,5 @@
 package com.example.testing.comment;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.CommandLineRunner;
@@ -10,38 +8,49 @@ import org.springframework.stereotype.Component;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.List;
 
+/**
+ * Seeds an empty database with the bundled comments. Runs in the background so
+ * the application reports ready without waiting for it; until it finishes,
+ * reads simply see fewer comments.
+ */
 @Component
 @Profile("!test")
 public class CommentDataLoader implements CommandLineRunner {
 
-    private final ObjectMapper mapper;
+    private final CommentImporter importer;
     private final CommentRepository repository;
 
     private static final Logger logger = LoggerFactory.getLogger(CommentDataLoader.class);
 
-    public CommentDataLoader(ObjectMapper mapper, CommentRepository repository) {
-        this.mapper = mapper;
+    public CommentDataLoader(CommentImporter importer, CommentRepository repository) {
+        this.importer = importer;
         this.repository = repository;
     }
 
     @Override
     public void run(String... args) {
-        if (repository.count() != 0) {
-            logger.info("Comments already loaded into database");
-            return;
-        }
+        Thread loader = new Thread(this::load, "comment-data-loader");
+        // an unfinished seed must not hold up shutdown
+        loader.setDaemon(true);
+        loader.start();
+    }
 
+    void load() {
         final String filename = "/data/comments.json";
-        logger.info("Loading comments into database from file: {}", filename);
-        try (InputStream inputStream = TypeReference.class.getResourceAsStream(filename)) {
-            List<Comment> comments = mapper.readValue(inputStream, new TypeReference<>() {});
-            repository.saveAll(comments);
-            logger.info("{} comments recorded to database", comments.size());
-        } catch (IOException ex) {
-            logger.error("Failed to parse JSON file {}", filename);
-            throw new RuntimeException(ex);
+        try {
+            if (repository.count() != 0) {
+                logger.info("Comments already loaded into database");
+                return;
+            }
+
+            logger.info("Loading comments into database from file: {}", filename);
+            try (InputStream inputStream = CommentDataLoader.class.getResourceAsStream(filename)) {
+                CommentImportResult result = importer.importComments(inputStream);
+                logger.info("{} comments recorded to database", result.imported());
+            }
+        } catch (IOException | RuntimeException ex) {
+            logger.error("Failed to load comments from {}", filename, ex);
         }
     }
 
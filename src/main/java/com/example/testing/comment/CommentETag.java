@@ -0,0 +1,40 @@
+package com.example.testing.comment;
+
+/**
+ * Strong entity tags of the form {@code "<id>-<version>"}; the version bumps on
+ * every write, so the tag changes whenever the representation does.
+ */
+final class CommentETag {
+
+    private CommentETag() {
+    }
+
+    static String of(CommentResponse comment) {
+        return of(comment.id(), comment.version());
+    }
+
+    static String of(Long id, Integer version) {
+        return "\"" + id + "-" + version + "\"";
+    }
+
+    /**
+     * Returns the version an {@code If-Match} header asks for, or {@code null} for
+     * {@code *}. Anything else, including weak tags, can never match.
+     */
+    static Integer expectedVersion(Long id, String ifMatch) {
+        String value = ifMatch.trim();
+        if (value.equals("*")) {
+            return null;
+        }
+        String prefix = "\"" + id + "-";
+        if (value.startsWith(prefix) && value.endsWith("\"") && value.length() > prefix.length() + 1) {
+            try {
+                return Integer.valueOf(value.substring(prefix.length(), value.length() - 1));
+            } catch (NumberFormatException ignored) {
+                // falls through to the failed precondition below
+            }
+        }
+        throw new CommentPreconditionFailedException(id, ifMatch);
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.example.testing.comment;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+@Component
+public class CommentExporter {
+
+    private final ObjectMapper mapper;
+    private final ObjectWriter writer;
+    private final CommentBatchRepository batchRepository;
+
+    private static final Logger logger = LoggerFactory.getLogger(CommentExporter.class);
+
+    public CommentExporter(ObjectMapper mapper, CommentBatchRepository batchRepository) {
+        this.mapper = mapper;
+        // the generator's own buffer decides when bytes reach the client, not every row
+        this.writer = mapper.writerFor(CommentResponse.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.batchRepository = batchRepository;
+    }
+
+    /**
+     * Writes every comment as one JSON object per line. Rows are serialized as they
+     * come off the cursor, so a slow reader slows the query down rather than filling
+     * memory, and a failed write (such as a client disconnect) stops the query.
+     */
+    @Transactional(readOnly = true)
+    public long exportComments(OutputStream outputStream) throws IOException {
+        long startNanos = System.nanoTime();
+        long[] exported = {0};
+
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(outputStream)) {
+            // rows end with a newline of their own instead of the default space separator
+            generator.setRootValueSeparator(null);
+            batchRepository.streamAll(comment -> {
+                try {
+                    writer.writeValue(generator, comment);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                exported[0]++;
+            });
+        } catch (UncheckedIOException e) {
+            logger.warn("Comment export stopped after {} comments: {}", exported[0], e.getCause().getMessage());
+            throw e.getCause();
+        }
+
+        logger.info("Exported {} comments in {} ms", exported[0], (System.nanoTime() - startNanos) / 1_000_000);
+        return exported[0];
+    }
+
+}
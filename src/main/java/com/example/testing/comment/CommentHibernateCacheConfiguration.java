@@ -0,0 +1,52 @@
+package com.example.testing.comment;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.util.OptionalLong;
+
+/**
+ * Backs Hibernate's second-level and query caches with local Caffeine caches,
+ * bounded like the application cache by {@code comments.cache}. The update
+ * timestamps region is left unbounded: it holds one entry per table and must
+ * never lose one, or stale query results would look current.
+ */
+@Configuration(proxyBeanMethods = false)
+@Profile("!in-memory")
+public class CommentHibernateCacheConfiguration {
+
+    @Bean(destroyMethod = "close")
+    CacheManager hibernateCacheManager(CommentProperties properties) {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName()).getCacheManager();
+        cacheManager.createCache(Comment.CACHE_REGION, bounded(properties.cache()));
+        cacheManager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, bounded(properties.cache()));
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, statistics(new CaffeineConfiguration<>()));
+        return cacheManager;
+    }
+
+    @Bean
+    HibernatePropertiesCustomizer hibernateCacheManagerCustomizer(CacheManager hibernateCacheManager) {
+        return hibernateProperties -> hibernateProperties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+    }
+
+    private static CaffeineConfiguration<Object, Object> bounded(CommentProperties.Cache cache) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(cache.maximumSize()));
+        configuration.setExpireAfterWrite(OptionalLong.of(cache.ttl().toNanos()));
+        return statistics(configuration);
+    }
+
+    private static CaffeineConfiguration<Object, Object> statistics(CaffeineConfiguration<Object, Object> configuration) {
+        configuration.setStatisticsEnabled(true);
+        return configuration;
+    }
+
+}
@@ -0,0 +1,15 @@
+package com.example.testing.comment;
+
+import java.util.List;
+
+/**
+ * Hands out comment ids before the rows are written. Every insert path takes its
+ * ids from here, so the storage engine decides where ids come from.
+ */
+public interface CommentIdAllocator {
+
+    long next();
+
+    List<Long> next(int count);
+
+}
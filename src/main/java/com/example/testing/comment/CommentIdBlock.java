@@ -0,0 +1,23 @@
+package com.example.testing.comment;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// maps the table CommentBlockIdAllocator reserves from, so it is created with the rest of the schema
+@Data
+@Entity
+@NoArgsConstructor
+@Table(name = "comment_id_block")
+public class CommentIdBlock {
+
+    @Id
+    private Integer id;
+
+    @Column(nullable = false)
+    private Long nextId;
+
+}
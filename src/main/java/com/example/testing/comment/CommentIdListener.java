@@ -0,0 +1,23 @@
+package com.example.testing.comment;
+
+import jakarta.persistence.PrePersist;
+import org.springframework.beans.factory.ObjectProvider;
+
+// instantiated by Hibernate through Spring while the EntityManagerFactory is still being built,
+// so the allocator (which needs the transaction manager) is only looked up on first use
+public class CommentIdListener {
+
+    private final ObjectProvider<CommentIdAllocator> idAllocator;
+
+    public CommentIdListener(ObjectProvider<CommentIdAllocator> idAllocator) {
+        this.idAllocator = idAllocator;
+    }
+
+    @PrePersist
+    void assignId(Comment comment) {
+        if (comment.getId() == null) {
+            comment.setId(idAllocator.getObject().next());
+        }
+    }
+
+}
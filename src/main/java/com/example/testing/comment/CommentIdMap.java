@@ -0,0 +1,226 @@
+package com.example.testing.comment;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Open-addressing hash map from a positive comment id to its comment, keyed by
+ * primitive {@code long} so lookups neither box the id nor chase entry objects.
+ * The ids are spread over lock-striped segments: writers take their segment's
+ * lock, readers take no lock at all and rely on each slot being published value
+ * first, key second, with release/acquire ordering.
+ * <p>
+ * A slot, once given a key, keeps that key until the segment is rehashed, and a
+ * removed comment leaves a tombstone behind; a reader that has matched a key can
+ * therefore never pick up another comment's value. Rehashing copies the live
+ * entries into a new table and publishes it in a single volatile write.
+ */
+final class CommentIdMap {
+
+    private static final VarHandle KEYS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle VALUES = MethodHandles.arrayElementVarHandle(Object[].class);
+    private static final long EMPTY = 0;
+    private static final Object REMOVED = new Object();
+    private static final int MIN_CAPACITY = 16;
+
+    private final Segment[] segments;
+    private final int segmentShift;
+
+    CommentIdMap(int stripes) {
+        if (stripes < 1 || Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("stripes must be a power of two, was " + stripes);
+        }
+        segments = new Segment[stripes];
+        for (int i = 0; i < stripes; i++) {
+            segments[i] = new Segment();
+        }
+        segmentShift = 32 - Integer.numberOfTrailingZeros(stripes);
+    }
+
+    CommentResponse get(long id) {
+        int hash = hash(id);
+        Table table = segmentFor(hash).table;
+        long[] keys = table.keys;
+        int mask = keys.length - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            long key = (long) KEYS.getAcquire(keys, i);
+            if (key == id) {
+                Object value = VALUES.getAcquire(table.values, i);
+                return value == REMOVED ? null : (CommentResponse) value;
+            }
+            if (key == EMPTY) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Replaces the comment with whatever the function returns for it, null meaning
+     * absent, while holding the id's segment lock. The function may have side
+     * effects, such as logging the change, that must be ordered with other writes
+     * to the same id. Returns the comment the function was given, so a caller
+     * can tell whether a conditional change went through.
+     */
+    CommentResponse compute(long id, UnaryOperator<CommentResponse> function) {
+        if (id <= 0) {
+            throw new IllegalArgumentException("Comment ids must be positive, was " + id);
+        }
+        int hash = hash(id);
+        Segment segment = segmentFor(hash);
+        segment.lock.lock();
+        try {
+            return segment.compute(id, hash, function);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /**
+     * Runs the action while holding every segment lock, so it happens between
+     * whole {@link #compute} calls; used to cut the write log at a consistent point.
+     */
+    <T> T exclusively(Supplier<T> action) {
+        int locked = 0;
+        try {
+            for (Segment segment : segments) {
+                segment.lock.lock();
+                locked++;
+            }
+            return action.get();
+        } finally {
+            for (int i = 0; i < locked; i++) {
+                segments[i].lock.unlock();
+            }
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    /**
+     * Hands each comment to the action in no particular order. Like the iterators
+     * of the concurrent collections it is weakly consistent: it sees every comment
+     * that was present throughout, and may or may not see concurrent changes.
+     */
+    void forEach(Consumer<CommentResponse> action) {
+        for (Segment segment : segments) {
+            Table table = segment.table;
+            for (int i = 0; i < table.keys.length; i++) {
+                if ((long) KEYS.getAcquire(table.keys, i) != EMPTY) {
+                    Object value = VALUES.getAcquire(table.values, i);
+                    if (value != REMOVED) {
+                        action.accept((CommentResponse) value);
+                    }
+                }
+            }
+        }
+    }
+
+    private Segment segmentFor(int hash) {
+        return segments[segmentShift == 32 ? 0 : hash >>> segmentShift];
+    }
+
+    // ids are mostly sequential; the multiply spreads them over both the segment bits and the slot bits
+    private static int hash(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private record Table(long[] keys, Object[] values) {
+
+        Table(int capacity) {
+            this(new long[capacity], new Object[capacity]);
+        }
+
+    }
+
+    private static final class Segment {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile Table table = new Table(MIN_CAPACITY);
+        private volatile int size;
+        // slots holding a key, tombstones included; guarded by lock
+        private int used;
+
+        private CommentResponse compute(long id, int hash, UnaryOperator<CommentResponse> function) {
+            Table table = this.table;
+            long[] keys = table.keys;
+            int mask = keys.length - 1;
+            int i = hash & mask;
+            long key;
+            while ((key = keys[i]) != id && key != EMPTY) {
+                i = (i + 1) & mask;
+            }
+            Object value = key == EMPTY ? REMOVED : table.values[i];
+            CommentResponse current = value == REMOVED ? null : (CommentResponse) value;
+            CommentResponse next = function.apply(current);
+            if (next == current) {
+                return current;
+            }
+            if (next != null && next.id() != id) {
+                throw new IllegalArgumentException("Comment " + next.id() + " cannot be stored under id " + id);
+            }
+
+            if (key == EMPTY) {
+                if ((used + 1) * 4L > keys.length * 3L) {
+                    table = rehash();
+                    keys = table.keys;
+                    mask = keys.length - 1;
+                    for (i = hash & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+                        // probe for a free slot, the new table has no tombstones
+                    }
+                }
+                VALUES.setRelease(table.values, i, next);
+                KEYS.setRelease(keys, i, id);
+                used++;
+                size++;
+            } else {
+                VALUES.setRelease(table.values, i, next == null ? REMOVED : next);
+                if (current == null) {
+                    size++;
+                } else if (next == null) {
+                    size--;
+                }
+            }
+            return current;
+        }
+
+        // doubles while at least half the used slots are live, otherwise only drops the tombstones
+        private Table rehash() {
+            Table old = table;
+            int capacity = old.keys.length;
+            while ((size + 1) * 2L > capacity) {
+                capacity <<= 1;
+            }
+            Table fresh = new Table(capacity);
+            int mask = capacity - 1;
+            for (int j = 0; j < old.keys.length; j++) {
+                long key = old.keys[j];
+                Object value = old.values[j];
+                if (key != EMPTY && value != REMOVED) {
+                    int i = hash(key) & mask;
+                    while (fresh.keys[i] != EMPTY) {
+                        i = (i + 1) & mask;
+                    }
+                    fresh.keys[i] = key;
+                    fresh.values[i] = value;
+                }
+            }
+            used = size;
+            // the volatile write publishes the filled arrays to readers
+            this.table = fresh;
+            return fresh;
+        }
+
+    }
+
+}
@@ -0,0 +1,6 @@
+package com.example.testing.comment;
+
+public record CommentImportResult(
+        long imported,
+        long elapsedMillis
+) {}
@@ -0,0 +1,111 @@
+package com.example.testing.comment;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+public class CommentImporter {
+
+    private static final int PROGRESS_LOG_INTERVAL = 100_000;
+
+    private final ObjectMapper mapper;
+    private final CommentMapper commentMapper;
+    private final CommentIdAllocator idAllocator;
+    private final CommentBatchRepository batchRepository;
+    private final ApplicationEventPublisher events;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    private static final Logger logger = LoggerFactory.getLogger(CommentImporter.class);
+
+    public CommentImporter(ObjectMapper mapper,
+                           CommentMapper commentMapper,
+                           CommentIdAllocator idAllocator,
+                           CommentBatchRepository batchRepository,
+                           ApplicationEventPublisher events,
+                           TransactionTemplate transactionTemplate,
+                           CommentProperties properties) {
+        this.mapper = mapper;
+        this.commentMapper = commentMapper;
+        this.idAllocator = idAllocator;
+        this.batchRepository = batchRepository;
+        this.events = events;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = properties.importer().batchSize();
+    }
+
+    /**
+     * Reads comments from either a JSON array or a newline-delimited sequence of
+     * JSON objects and writes them in fixed-size batches, one transaction per batch.
+     * Only a single batch is held in memory at a time.
+     */
+    public CommentImportResult importComments(InputStream inputStream) throws IOException {
+        long startNanos = System.nanoTime();
+        long imported = 0;
+        long nextProgressLog = PROGRESS_LOG_INTERVAL;
+        List<CommentRequest> batch = new ArrayList<>(batchSize);
+
+        try (JsonParser parser = mapper.getFactory().createParser(inputStream)) {
+            // a root-level array is unwrapped so its elements are read one by one
+            if (parser.nextToken() == JsonToken.START_ARRAY) {
+                parser.clearCurrentToken();
+            }
+            MappingIterator<CommentRequest> iterator = mapper.readerFor(CommentRequest.class).readValues(parser);
+            while (iterator.hasNextValue()) {
+                batch.add(iterator.nextValue());
+                if (batch.size() == batchSize) {
+                    imported += flush(batch);
+                    if (imported >= nextProgressLog) {
+                        logProgress(imported, startNanos);
+                        nextProgressLog += PROGRESS_LOG_INTERVAL;
+                    }
+                }
+            }
+            imported += flush(batch);
+        }
+
+        long elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000;
+        logger.info("Imported {} comments in {} ms ({} comments/s)", imported, elapsedMillis, rate(imported, elapsedMillis));
+        return new CommentImportResult(imported, elapsedMillis);
+    }
+
+    private int flush(List<CommentRequest> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Long> ids = idAllocator.next(batch.size());
+            List<CommentResponse> imported = new ArrayList<>(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                imported.add(commentMapper.toResponse(ids.get(i), batch.get(i), 0));
+            }
+            batchRepository.batchInsert(imported);
+            events.publishEvent(CommentChangeEvent.saved(imported));
+        });
+        int flushed = batch.size();
+        batch.clear();
+        return flushed;
+    }
+
+    private static void logProgress(long imported, long startNanos) {
+        long elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000;
+        logger.info("Imported {} comments so far ({} comments/s)", imported, rate(imported, elapsedMillis));
+    }
+
+    private static long rate(long count, long elapsedMillis) {
+        return elapsedMillis == 0 ? count : count * 1000 / elapsedMillis;
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.example.testing.comment;
+
+import com.github.benmanes.caffeine.cache.Interner;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Deduplicates the comment fields that repeat across rows, the author's name and
+ * email, so that every cached or mapped comment by the same author shares one
+ * {@code String}. The pool holds its strings weakly: a value disappears once no
+ * comment refers to it anymore, so it needs no size bound. Bodies are left
+ * alone, they are practically unique. Off unless {@code comments.intern.enabled}.
+ */
+@Component
+public class CommentInterner {
+
+    private final Interner<String> interner;
+
+    @Autowired
+    public CommentInterner(CommentProperties properties) {
+        this(properties.intern().enabled());
+    }
+
+    public CommentInterner(boolean enabled) {
+        this.interner = enabled ? Interner.newWeakInterner() : null;
+    }
+
+    public boolean isEnabled() {
+        return interner != null;
+    }
+
+    public String intern(String value) {
+        return interner == null || value == null ? value : interner.intern(value);
+    }
+
+    public CommentResponse intern(CommentResponse response) {
+        if (interner == null) {
+            return response;
+        }
+        String name = intern(response.name());
+        String email = intern(response.email());
+        if (name == response.name() && email == response.email()) {
+            return response;
+        }
+        return new CommentResponse(response.id(), name, email, response.body(), response.version());
+    }
+
+}
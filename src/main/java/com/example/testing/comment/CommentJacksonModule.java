@@ -0,0 +1,73 @@
+package com.example.testing.comment;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.BeanDeserializerBuilder;
+import com.fasterxml.jackson.databind.deser.BeanDeserializerModifier;
+import com.fasterxml.jackson.databind.deser.SettableBeanProperty;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StringDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Registered with every {@code ObjectMapper} Spring Boot builds. When interning is
+ * on, the name and email of each {@link CommentRequest} and {@link CommentResponse}
+ * read from JSON, CBOR, Smile or NDJSON go through the {@link CommentInterner}
+ * as they are parsed; other strings are deserialized as usual.
+ */
+@Component
+public class CommentJacksonModule extends SimpleModule {
+
+    private static final Set<Class<?>> COMMENT_TYPES = Set.of(CommentRequest.class, CommentResponse.class);
+    private static final Set<String> INTERNED_PROPERTIES = Set.of("name", "email");
+
+    public CommentJacksonModule(CommentInterner interner) {
+        super(CommentJacksonModule.class.getSimpleName());
+        if (!interner.isEnabled()) {
+            return;
+        }
+        InterningDeserializer deserializer = new InterningDeserializer(interner);
+        setDeserializerModifier(new BeanDeserializerModifier() {
+            @Override
+            public BeanDeserializerBuilder updateBuilder(DeserializationConfig config, BeanDescription description,
+                                                         BeanDeserializerBuilder builder) {
+                if (!COMMENT_TYPES.contains(description.getBeanClass())) {
+                    return builder;
+                }
+                List<SettableBeanProperty> properties = new ArrayList<>();
+                builder.getProperties().forEachRemaining(properties::add);
+                for (SettableBeanProperty property : properties) {
+                    if (INTERNED_PROPERTIES.contains(property.getName())) {
+                        builder.addOrReplaceProperty(property.withValueDeserializer(deserializer), true);
+                    }
+                }
+                return builder;
+            }
+        });
+    }
+
+    private static final class InterningDeserializer extends StdScalarDeserializer<String> {
+
+        private final transient CommentInterner interner;
+
+        private InterningDeserializer(CommentInterner interner) {
+            super(String.class);
+            this.interner = interner;
+        }
+
+        @Override
+        public String deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            return interner.intern(StringDeserializer.instance.deserialize(parser, context));
+        }
+
+    }
+
+}
@@ -0,0 +1,98 @@
+package com.example.testing.comment;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Transactional outbox in the {@code comment_change} table: every
+ * {@link CommentChangeEvent} is written in the transaction that caused it, so a
+ * change is recorded if and only if it commits. The auto-increment {@code seq}
+ * orders the changes and lets consumers resume where they left off. The table is
+ * mapped by {@link CommentChangeEntry}.
+ */
+@Component
+@Profile("!in-memory")
+public class CommentJdbcOutbox implements CommentOutbox {
+
+    private static final String INSERT_SQL = "INSERT INTO comment_change (type, comment_id, payload) VALUES (?, ?, ?)";
+    private static final String READ_SQL = "SELECT seq, type, comment_id, payload FROM comment_change WHERE seq > ? ORDER BY seq LIMIT ?";
+    private static final String FIRST_SEQ_SQL = "SELECT MIN(seq) FROM comment_change";
+    private static final String LAST_SEQ_SQL = "SELECT COALESCE(MAX(seq), 0) FROM comment_change";
+    private static final String PURGE_SQL = "DELETE FROM comment_change WHERE seq <= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final RowMapper<CommentChange> rowMapper = (rs, rowNum) -> change(
+            rs.getLong("seq"), rs.getString("type"), rs.getLong("comment_id"), rs.getString("payload"));
+
+    public CommentJdbcOutbox(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onCommentChange(CommentChangeEvent event) {
+        List<Object[]> rows = new ArrayList<>(event.saved().size() + event.deletedIds().size());
+        for (CommentResponse comment : event.saved()) {
+            // a comment is written at version 0 only when it is created
+            CommentChange.Type type = Integer.valueOf(0).equals(comment.version())
+                    ? CommentChange.Type.CREATED
+                    : CommentChange.Type.UPDATED;
+            rows.add(new Object[]{type.name(), comment.id(), json(comment)});
+        }
+        for (Long id : event.deletedIds()) {
+            rows.add(new Object[]{CommentChange.Type.DELETED.name(), id, null});
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+        }
+    }
+
+    @Override
+    public List<CommentChange> readAfter(long seq, int limit) {
+        return jdbcTemplate.query(READ_SQL, rowMapper, seq, limit);
+    }
+
+    @Override
+    public Long firstSeq() {
+        return jdbcTemplate.queryForObject(FIRST_SEQ_SQL, Long.class);
+    }
+
+    @Override
+    public long lastSeq() {
+        return jdbcTemplate.queryForObject(LAST_SEQ_SQL, Long.class);
+    }
+
+    @Override
+    public int purgeUpTo(long seq) {
+        return jdbcTemplate.update(PURGE_SQL, seq);
+    }
+
+    private String json(CommentResponse comment) {
+        try {
+            return objectMapper.writeValueAsString(comment);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private CommentChange change(long seq, String type, long commentId, String payload) {
+        try {
+            CommentResponse comment = payload == null ? null : objectMapper.readValue(payload, CommentResponse.class);
+            return new CommentChange(seq, CommentChange.Type.valueOf(type), commentId, comment);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
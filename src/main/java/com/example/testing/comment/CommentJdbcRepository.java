@@ -0,0 +1,171 @@
+package com.example.testing.comment;
+
+import io.micrometer.observation.annotation.Observed;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+@Repository
+@Profile("!in-memory")
+@Observed(name = "comments.jdbc")
+public class CommentJdbcRepository implements CommentBatchRepository {
+
+    private static final String INSERT_SQL = "INSERT INTO comment (id, name, email, body, version) VALUES (?, ?, ?, ?, 0)";
+    private static final String UPDATE_SQL = "UPDATE comment SET name = ?, email = ?, body = ?, version = version + 1 "
+            + "WHERE id = ? AND version = COALESCE(?, version)";
+    private static final String DELETE_SQL = "DELETE FROM comment WHERE id = ?";
+    private static final String EXISTING_IDS_SQL = "SELECT id FROM comment WHERE id IN (:ids)";
+    private static final String VERSIONS_SQL = "SELECT id, version FROM comment WHERE id IN (:ids)";
+    private static final String STREAM_SQL = "SELECT id, name, email, body, version FROM comment ORDER BY id";
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+
+    public CommentJdbcRepository(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @Override
+    public void batchInsert(List<CommentResponse> comments) {
+        evictHibernateCaches(comments.stream().map(CommentResponse::id).toList());
+        jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                CommentResponse comment = comments.get(i);
+                ps.setLong(1, comment.id());
+                ps.setString(2, comment.name());
+                ps.setString(3, comment.email());
+                ps.setString(4, comment.body());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return comments.size();
+            }
+        });
+    }
+
+    /**
+     * Returns the matched row count per update; zero means the comment is either
+     * missing or no longer at the expected version.
+     */
+    @Override
+    public int[] batchUpdate(List<CommentBatchUpdate> updates) {
+        evictHibernateCaches(updates.stream().map(CommentBatchUpdate::id).toList());
+        return jdbcTemplate.batchUpdate(UPDATE_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                CommentBatchUpdate update = updates.get(i);
+                ps.setString(1, update.comment().name());
+                ps.setString(2, update.comment().email());
+                ps.setString(3, update.comment().body());
+                ps.setLong(4, update.id());
+                ps.setObject(5, update.version(), Types.INTEGER);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return updates.size();
+            }
+        });
+    }
+
+    @Override
+    public int[] batchDelete(List<Long> ids) {
+        evictHibernateCaches(ids);
+        return jdbcTemplate.batchUpdate(DELETE_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setLong(1, ids.get(i));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return ids.size();
+            }
+        });
+    }
+
+    @Override
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Set.of();
+        }
+        return new HashSet<>(namedParameterJdbcTemplate.queryForList(
+                EXISTING_IDS_SQL, new MapSqlParameterSource("ids", ids), Long.class));
+    }
+
+    @Override
+    public Map<Long, Integer> findVersions(Collection<Long> ids) {
+        Map<Long, Integer> versions = new HashMap<>();
+        if (!ids.isEmpty()) {
+            namedParameterJdbcTemplate.query(VERSIONS_SQL, new MapSqlParameterSource("ids", ids),
+                    (RowCallbackHandler) rs -> versions.put(rs.getLong(1), rs.getInt(2)));
+        }
+        return versions;
+    }
+
+    /**
+     * Hands every comment to the action in id order, reading over a forward-only
+     * cursor so only the current row is held in memory. The connection stays
+     * checked out until the action has seen the last row or thrown.
+     */
+    @Override
+    public void streamAll(Consumer<CommentResponse> action) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(STREAM_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(streamingFetchSize(con));
+            return ps;
+        }, (RowCallbackHandler) rs -> action.accept(
+                new CommentResponse(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getInt(5))));
+    }
+
+    // Hibernate cannot see these writes, so the cached Comment entities they touch and all cached query results
+    // are evicted now and again once the transaction ends, when a reader may have cached the old rows in between
+    private void evictHibernateCaches(Collection<Long> ids) {
+        Runnable evict = () -> {
+            ids.forEach(id -> entityManagerFactory.getCache().evict(Comment.class, id));
+            entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegions();
+        };
+        evict.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict.run();
+                }
+            });
+        }
+    }
+
+    // Connector/J buffers the whole result set unless the fetch size is exactly Integer.MIN_VALUE
+    private static int streamingFetchSize(Connection con) throws SQLException {
+        return "MySQL".equals(con.getMetaData().getDatabaseProductName()) ? Integer.MIN_VALUE : STREAM_FETCH_SIZE;
+    }
+
+}
@@ -0,0 +1,200 @@
+package com.example.testing.comment;
+
+import com.example.testing.comment.CommentStatsDelta.Contribution;
+import com.example.testing.comment.CommentStatsDelta.Totals;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * {@link CommentStatsIndex} in the database, so every instance answers from the
+ * same numbers. Each writing transaction applies what it changed to the
+ * {@code comment_author_stats} row of every author it touched and to one of
+ * {@value #SLOTS} {@code comment_stats} rows, picked at random so concurrent
+ * writers rarely wait on the same row; the overall totals are the sum of those
+ * rows. What an update or delete replaces is read with the rows locked in
+ * {@link #beforeChange}, and what it wrote is read back just before commit, so
+ * a rolled back transaction changes nothing.
+ * <p>
+ * The tables are filled from the comments once, on the first start that finds
+ * them empty; writes from other instances during that first start are not
+ * counted.
+ */
+@Component
+@Profile("!in-memory")
+public class CommentJdbcStatsIndex implements CommentStatsIndex, SmartInitializingSingleton {
+
+    static final int SLOTS = 16;
+
+    private static final String LOCK_SQL = "SELECT id, email, CHAR_LENGTH(body) FROM comment WHERE id IN (:ids) "
+            + "ORDER BY id FOR UPDATE";
+    private static final String READ_SQL = "SELECT id, email, CHAR_LENGTH(body) FROM comment WHERE id IN (:ids)";
+    private static final String AUTHOR_UPSERT_SQL = "INSERT INTO comment_author_stats (email, comments, body_length) "
+            + "VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE comments = comments + VALUES(comments), "
+            + "body_length = body_length + VALUES(body_length)";
+    private static final String AUTHOR_COUNT_SQL = "SELECT comments FROM comment_author_stats WHERE email = ?";
+    private static final String AUTHOR_DELETE_SQL = "DELETE FROM comment_author_stats WHERE email = ? AND comments = 0";
+    private static final String SLOT_UPSERT_SQL = "INSERT INTO comment_stats (slot, comments, body_length, authors) "
+            + "VALUES (?, ?, ?, ?) ON DUPLICATE KEY UPDATE comments = comments + VALUES(comments), "
+            + "body_length = body_length + VALUES(body_length), authors = authors + VALUES(authors)";
+    private static final String AUTHOR_SQL = "SELECT comments, body_length FROM comment_author_stats WHERE email = ?";
+    private static final String TOTALS_SQL = "SELECT COALESCE(SUM(comments), 0), COALESCE(SUM(body_length), 0), "
+            + "COALESCE(SUM(authors), 0) FROM comment_stats";
+    private static final String BUILT_SQL = "SELECT COUNT(*) FROM comment_stats";
+    private static final String BUILD_AUTHORS_SQL = "INSERT INTO comment_author_stats (email, comments, body_length) "
+            + "SELECT email, COUNT(*), COALESCE(SUM(CHAR_LENGTH(body)), 0) FROM comment WHERE email IS NOT NULL GROUP BY email";
+    private static final String BUILD_TOTALS_SQL = "INSERT INTO comment_stats (slot, comments, body_length, authors) "
+            + "SELECT 0, COUNT(*), COALESCE(SUM(CHAR_LENGTH(body)), 0), COUNT(DISTINCT email) FROM comment";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private static final Logger logger = LoggerFactory.getLogger(CommentJdbcStatsIndex.class);
+
+    public CommentJdbcStatsIndex(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (jdbcTemplate.queryForObject(BUILT_SQL, Long.class) > 0) {
+            return;
+        }
+        long startNanos = System.nanoTime();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.update(BUILD_AUTHORS_SQL);
+                jdbcTemplate.update(BUILD_TOTALS_SQL);
+            });
+            logger.info("Counted comments per author in {} ms", (System.nanoTime() - startNanos) / 1_000_000);
+        } catch (DataIntegrityViolationException e) {
+            logger.info("Comment stats were counted by another instance");
+        }
+    }
+
+    @Override
+    public CommentStats stats() {
+        return jdbcTemplate.queryForObject(TOTALS_SQL, (rs, row) -> {
+            long count = rs.getLong(1);
+            long length = rs.getLong(2);
+            return new CommentStats(count, rs.getLong(3), length, CommentStatsIndex.average(length, count));
+        });
+    }
+
+    @Override
+    public CommentAuthorStats author(String email) {
+        return jdbcTemplate.query(AUTHOR_SQL, rs -> {
+            long count = rs.next() ? rs.getLong(1) : 0;
+            long length = count == 0 ? 0 : rs.getLong(2);
+            return new CommentAuthorStats(email, count, length, CommentStatsIndex.average(length, count));
+        }, email);
+    }
+
+    @Override
+    public void beforeChange(Collection<Long> commentIds) {
+        if (commentIds.isEmpty()) {
+            return;
+        }
+        Pending pending = pending();
+        Map<Long, Contribution> locked = read(LOCK_SQL, commentIds);
+        for (Long id : commentIds) {
+            // the first read in a transaction is the state before it
+            pending.replaced.putIfAbsent(id, locked.getOrDefault(id, Contribution.NONE));
+        }
+    }
+
+    @EventListener
+    public void onCommentChange(CommentChangeEvent event) {
+        Pending pending = pending();
+        event.saved().forEach(comment -> pending.changed.add(comment.id()));
+        pending.changed.addAll(event.deletedIds());
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(pending);
+        }
+    }
+
+    // bound to the transaction and applied right before it commits
+    private Pending pending() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return new Pending();
+        }
+        Pending pending = (Pending) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Pending bound = new Pending();
+            TransactionSynchronizationManager.bindResource(this, bound);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    apply(bound);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(CommentJdbcStatsIndex.this);
+                }
+            });
+            pending = bound;
+        }
+        return pending;
+    }
+
+    private void apply(Pending pending) {
+        if (pending.changed.isEmpty()) {
+            return;
+        }
+        CommentStatsDelta delta = new CommentStatsDelta(pending.changed, pending.replaced, read(READ_SQL, pending.changed));
+        pending.changed.clear();
+        pending.replaced.clear();
+
+        long authorsAdded = 0;
+        for (Map.Entry<String, Totals> author : delta.authors().entrySet()) {
+            jdbcTemplate.update(AUTHOR_UPSERT_SQL, author.getKey(), author.getValue().comments(), author.getValue().bodyLength());
+            long count = jdbcTemplate.queryForObject(AUTHOR_COUNT_SQL, Long.class, author.getKey());
+            if (count == 0) {
+                jdbcTemplate.update(AUTHOR_DELETE_SQL, author.getKey());
+            }
+            authorsAdded += CommentStatsDelta.authorsAdded(author.getValue(), count);
+        }
+        Totals overall = delta.overall();
+        if (!overall.equals(Totals.NONE) || authorsAdded != 0) {
+            jdbcTemplate.update(SLOT_UPSERT_SQL, ThreadLocalRandom.current().nextInt(SLOTS),
+                    overall.comments(), overall.bodyLength(), authorsAdded);
+        }
+    }
+
+    private Map<Long, Contribution> read(String sql, Collection<Long> ids) {
+        Map<Long, Contribution> read = new HashMap<>();
+        namedParameterJdbcTemplate.query(sql, new MapSqlParameterSource("ids", ids), rs -> {
+            read.put(rs.getLong(1), new Contribution(rs.getString(2), rs.getLong(3)));
+        });
+        return read;
+    }
+
+    private static final class Pending {
+
+        private final Map<Long, Contribution> replaced = new HashMap<>();
+        private final Set<Long> changed = new HashSet<>();
+
+    }
+
+}
@@ -0,0 +1,207 @@
+package com.example.testing.comment;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Append-only log of comments that were accepted but not yet written to the
+ * database, one JSON object per line, split into numbered segment files. A
+ * segment is deleted once it has been rolled over and all of its comments are
+ * committed; whatever is left on disk after a crash is replayed on startup.
+ * Writes and forces happen under {@link ReentrantLock}s rather than monitors, which
+ * would pin a virtual thread to its carrier for the length of the I/O.
+ */
+final class CommentJournal implements Closeable {
+
+    private static final String SEGMENT_SUFFIX = ".ndjson";
+
+    private final Path directory;
+    private final long segmentSize;
+    private final ObjectMapper mapper;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // guarded by lock
+    private Segment current;
+    private long nextSegment;
+
+    private static final Logger logger = LoggerFactory.getLogger(CommentJournal.class);
+
+    CommentJournal(Path directory, long segmentSize, ObjectMapper mapper) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.segmentSize = segmentSize;
+        this.mapper = mapper;
+        List<Path> existing = segments(directory);
+        this.nextSegment = existing.isEmpty() ? 0 : segmentNumber(existing.get(existing.size() - 1)) + 1;
+    }
+
+    /**
+     * Returns the comments of every segment left by a previous run, oldest first.
+     * A line torn by a crash was never acknowledged and is skipped.
+     */
+    static List<CommentResponse> read(Path directory, ObjectMapper mapper) throws IOException {
+        List<CommentResponse> comments = new ArrayList<>();
+        for (Path segment : segments(directory)) {
+            try (BufferedReader reader = Files.newBufferedReader(segment, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    try {
+                        comments.add(mapper.readValue(line, CommentResponse.class));
+                    } catch (JsonProcessingException e) {
+                        logger.warn("Skipping unreadable journal entry in {}", segment);
+                    }
+                }
+            }
+        }
+        return comments;
+    }
+
+    static void deleteAll(Path directory) throws IOException {
+        for (Path segment : segments(directory)) {
+            Files.delete(segment);
+        }
+    }
+
+    /**
+     * Appends the comment; it is only durable once {@link #sync(Position)} has
+     * returned for the position handed back here.
+     */
+    Position append(CommentResponse comment) throws IOException {
+        byte[] json = mapper.writeValueAsBytes(comment);
+        ByteBuffer line = ByteBuffer.allocate(json.length + 1).put(json).put((byte) '\n').flip();
+        lock.lock();
+        try {
+            if (current == null || current.written >= segmentSize) {
+                roll();
+            }
+            while (line.hasRemaining()) {
+                current.channel.write(line);
+            }
+            current.written += json.length + 1;
+            current.pending++;
+            return new Position(current, current.written);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // concurrent callers share one force: whoever gets the lock first syncs everything written so far
+    void sync(Position position) throws IOException {
+        Segment segment = position.segment();
+        segment.lock.lock();
+        try {
+            if (segment.synced >= position.end() || segment.closed) {
+                return;
+            }
+            long written = segment.written;
+            segment.channel.force(false);
+            segment.synced = written;
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    void committed(Segment segment, int count) throws IOException {
+        lock.lock();
+        try {
+            segment.pending -= count;
+            if (segment != current && segment.pending == 0) {
+                Files.deleteIfExists(segment.path);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (current != null) {
+                close(current);
+                if (current.pending == 0) {
+                    Files.deleteIfExists(current.path);
+                }
+                current = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void roll() throws IOException {
+        Segment previous = current;
+        Path path = directory.resolve(String.format("%020d%s", nextSegment++, SEGMENT_SUFFIX));
+        current = new Segment(path, FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE));
+        if (previous != null) {
+            close(previous);
+            if (previous.pending == 0) {
+                Files.deleteIfExists(previous.path);
+            }
+        }
+    }
+
+    private static void close(Segment segment) throws IOException {
+        segment.lock.lock();
+        try {
+            segment.channel.force(false);
+            segment.channel.close();
+            segment.closed = true;
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().toList();
+        }
+    }
+
+    private static long segmentNumber(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    record Position(Segment segment, long end) {}
+
+    static final class Segment {
+
+        private final Path path;
+        private final FileChannel channel;
+        // guards synced and closed
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile long written;
+        private long synced;
+        private int pending;
+        private boolean closed;
+
+        private Segment(Path path, FileChannel channel) {
+            this.path = path;
+            this.channel = channel;
+        }
+
+    }
+
+}
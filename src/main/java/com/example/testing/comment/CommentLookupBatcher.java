@@ -0,0 +1,146 @@
+package com.example.testing.comment;
+
+import com.example.testing.datasource.ReadYourWrites;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Coalesces concurrent single-comment reads. A lookup for an id that is already
+ * being read waits for that read instead of issuing its own, and lookups for
+ * distinct ids that arrive within {@code comments.lookup.window} are answered
+ * by one {@code IN} query.
+ * <p>
+ * There is no background thread: the first lookup of a batch leads it. It waits
+ * for the window to pass or the batch to fill, then runs the query on its own
+ * thread, inside its own read-only transaction, and hands every follower its
+ * comment. A lookup therefore waits at most one window plus one query, and
+ * only the leader holds a connection, so callers must not be in a transaction
+ * of their own or a batch could never outgrow the pool. The results fill the
+ * comment cache, so the query always goes to the primary, even when read
+ * replicas are configured.
+ */
+@Component
+public class CommentLookupBatcher {
+
+    private final CommentRepository repository;
+    private final CommentMetrics metrics;
+    private final TransactionTemplate readOnly;
+    private final long windowNanos;
+    private final int maxBatchSize;
+
+    private final Map<Long, CompletableFuture<Optional<CommentResponse>>> inFlight = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition batchFull = lock.newCondition();
+    // the batch still taking ids; guarded by lock
+    private Batch open;
+
+    public CommentLookupBatcher(CommentRepository repository, CommentMetrics metrics,
+                                PlatformTransactionManager transactionManager, CommentProperties properties) {
+        this.repository = repository;
+        this.metrics = metrics;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.windowNanos = properties.lookup().window().toNanos();
+        this.maxBatchSize = properties.lookup().maxBatchSize();
+    }
+
+    public Optional<CommentResponse> find(Long commentId) {
+        CompletableFuture<Optional<CommentResponse>> lookup = new CompletableFuture<>();
+        CompletableFuture<Optional<CommentResponse>> existing = inFlight.putIfAbsent(commentId, lookup);
+        if (existing != null) {
+            metrics.lookupShared();
+            return await(existing);
+        }
+
+        Batch batch;
+        lock.lock();
+        try {
+            batch = open;
+            if (batch == null) {
+                batch = new Batch();
+                open = batch;
+            }
+            batch.lookups.put(commentId, lookup);
+            if (batch.lookups.size() >= maxBatchSize) {
+                open = null;
+                batchFull.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (batch.leader == Thread.currentThread()) {
+            lead(batch);
+        }
+        return await(lookup);
+    }
+
+    private void lead(Batch batch) {
+        lock.lock();
+        try {
+            long remaining = windowNanos;
+            while (open == batch && remaining > 0) {
+                remaining = batchFull.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (open == batch) {
+                open = null;
+            }
+            lock.unlock();
+        }
+
+        // nothing is added once the batch is closed, so it is read without the lock from here on
+        Map<Long, CompletableFuture<Optional<CommentResponse>>> lookups = batch.lookups;
+        try {
+            metrics.lookupBatch(lookups.size());
+            Map<Long, CommentResponse> found = new HashMap<>();
+            List<Long> ids = new ArrayList<>(lookups.keySet());
+            ReadYourWrites.onPrimary(() -> readOnly.execute(status -> ids.size() == 1
+                    ? repository.findResponseById(ids.get(0)).stream().toList()
+                    : repository.findResponsesByIdIn(ids)))
+                    .forEach(comment -> found.put(comment.id(), comment));
+            lookups.forEach((id, lookup) -> lookup.complete(Optional.ofNullable(found.get(id))));
+        } catch (RuntimeException | Error e) {
+            lookups.values().forEach(lookup -> lookup.completeExceptionally(e));
+            throw e;
+        } finally {
+            lookups.forEach(inFlight::remove);
+        }
+    }
+
+    private static Optional<CommentResponse> await(CompletableFuture<Optional<CommentResponse>> lookup) {
+        try {
+            return lookup.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Comment lookup failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a comment lookup", e);
+        }
+    }
+
+    private static final class Batch {
+
+        private final Thread leader = Thread.currentThread();
+        private final Map<Long, CompletableFuture<Optional<CommentResponse>>> lookups = new HashMap<>();
+
+    }
+
+}
@@ -1,15 +1,27 @@
 package com.example.testing.comment;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 @Component
 public final class CommentMapper {
 
+    private final CommentInterner interner;
+
+    public CommentMapper() {
+        this(new CommentInterner(false));
+    }
+
+    @Autowired
+    public CommentMapper(CommentInterner interner) {
+        this.interner = interner;
+    }
+
     public Comment toEntity(CommentRequest commentRequest) {
         return new Comment(
                 null,
-                commentRequest.name(),
-                commentRequest.email(),
+                interner.intern(commentRequest.name()),
+                interner.intern(commentRequest.email()),
                 commentRequest.body(),
                 null
         );
@@ -18,9 +30,20 @@ public final class CommentMapper {
     public CommentResponse toResponse(Comment comment) {
         return new CommentResponse(
                 comment.getId(),
-                comment.getName(),
-                comment.getEmail(),
-                comment.getBody()
+                interner.intern(comment.getName()),
+                interner.intern(comment.getEmail()),
+                comment.getBody(),
+                comment.getVersion()
+        );
+    }
+
+    public CommentResponse toResponse(Long commentId, CommentRequest commentRequest, Integer version) {
+        return new CommentResponse(
+                commentId,
+                interner.intern(commentRequest.name()),
+                interner.intern(commentRequest.email()),
+                commentRequest.body(),
+                version
         );
     }
 
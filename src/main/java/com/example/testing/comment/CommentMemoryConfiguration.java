@@ -0,0 +1,110 @@
+package com.example.testing.comment;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.SmartTransactionObject;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Runs the application on the {@link CommentMemoryStore} instead of a database;
+ * {@code application-in-memory.yaml} switches the JDBC and JPA auto-configuration off.
+ */
+@Configuration(proxyBeanMethods = false)
+@Profile("in-memory")
+public class CommentMemoryConfiguration {
+
+    @Bean
+    PlatformTransactionManager transactionManager(CommentMemoryStore store) {
+        return new CommentMemoryTransactionManager(store);
+    }
+
+    /**
+     * Demarcates transactions on the {@link CommentMemoryStore}, so that
+     * {@code @Transactional} code and transaction-bound event listeners work as
+     * they do on the database. The store applies every write immediately and
+     * notes it in the transaction bound to the thread; a rollback reverts those
+     * writes, newest first. Other threads see writes before they commit, as
+     * under READ UNCOMMITTED.
+     */
+    static class CommentMemoryTransactionManager extends AbstractPlatformTransactionManager {
+
+        private final CommentMemoryStore store;
+
+        CommentMemoryTransactionManager(CommentMemoryStore store) {
+            this.store = store;
+        }
+
+        @Override
+        protected Object doGetTransaction() {
+            return new TransactionObject((CommentMemoryStore.Transaction) TransactionSynchronizationManager.getResource(store));
+        }
+
+        @Override
+        protected boolean isExistingTransaction(Object transaction) {
+            return ((TransactionObject) transaction).transaction != null;
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+            CommentMemoryStore.Transaction begun = new CommentMemoryStore.Transaction();
+            ((TransactionObject) transaction).transaction = begun;
+            TransactionSynchronizationManager.bindResource(store, begun);
+        }
+
+        @Override
+        protected Object doSuspend(Object transaction) {
+            ((TransactionObject) transaction).transaction = null;
+            return TransactionSynchronizationManager.unbindResource(store);
+        }
+
+        @Override
+        protected void doResume(Object transaction, Object suspendedResources) {
+            TransactionSynchronizationManager.bindResource(store, suspendedResources);
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+            ((TransactionObject) status.getTransaction()).transaction.rollback(store);
+        }
+
+        @Override
+        protected void doSetRollbackOnly(DefaultTransactionStatus status) {
+            ((TransactionObject) status.getTransaction()).transaction.setRollbackOnly();
+        }
+
+        @Override
+        protected void doCleanupAfterCompletion(Object transaction) {
+            TransactionSynchronizationManager.unbindResource(store);
+        }
+
+    }
+
+    private static final class TransactionObject implements SmartTransactionObject {
+
+        private CommentMemoryStore.Transaction transaction;
+
+        private TransactionObject(CommentMemoryStore.Transaction transaction) {
+            this.transaction = transaction;
+        }
+
+        @Override
+        public boolean isRollbackOnly() {
+            return transaction != null && transaction.isRollbackOnly();
+        }
+
+        @Override
+        public void flush() {
+        }
+
+    }
+
+}
@@ -0,0 +1,441 @@
+package com.example.testing.comment;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Durable side of the {@link CommentMemoryStore}: an append-only write log split
+ * into numbered segments, plus memory-mapped snapshots. Snapshot {@code n} is
+ * taken right after log segment {@code n} is started, so recovery maps the newest
+ * snapshot and replays segment {@code n} onwards; older files are deleted once
+ * the snapshot is complete.
+ * <p>
+ * Log records carry the full new state of a comment rather than a delta, so a
+ * change that made it into both the snapshot and the log is simply applied twice.
+ * Each record is length-prefixed and CRC-32C checked; a record torn by a crash
+ * ends the replay of its segment and is cut off.
+ */
+final class CommentMemoryLog implements Closeable {
+
+    private static final String LOG_SUFFIX = ".log";
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final int SNAPSHOT_MAGIC = 0x434d5331;
+    private static final int SNAPSHOT_HEADER = 4 + 8 + 8 + 4;
+    private static final int LOG_HEADER = 4 + 4;
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final byte RESERVE = 3;
+    private static final int MAP_WINDOW = 64 << 20;
+
+    private final Path directory;
+    private final boolean syncWrites;
+
+    // not a monitor: an append waits on the disk, which would pin a virtual thread
+    private final ReentrantLock lock = new ReentrantLock();
+    // guarded by lock
+    private FileChannel channel;
+    private long segment;
+    private long lsn;
+
+    private static final Logger logger = LoggerFactory.getLogger(CommentMemoryLog.class);
+
+    private CommentMemoryLog(Path directory, boolean syncWrites, long segment, long lsn) throws IOException {
+        this.directory = directory;
+        this.syncWrites = syncWrites;
+        this.segment = segment;
+        this.lsn = lsn;
+        this.channel = open(segment);
+    }
+
+    /**
+     * Loads the newest snapshot and every later log segment into the target and
+     * returns a log that appends to a fresh segment after them.
+     */
+    static CommentMemoryLog open(Path directory, boolean syncWrites, Target target) throws IOException {
+        Files.createDirectories(directory);
+        deleteFiles(directory, TEMPORARY_SUFFIX, Long.MAX_VALUE);
+        List<Long> snapshots = numbers(directory, SNAPSHOT_SUFFIX);
+        List<Long> logs = numbers(directory, LOG_SUFFIX);
+
+        long lsn = 0;
+        long first = 0;
+        if (!snapshots.isEmpty()) {
+            first = snapshots.get(snapshots.size() - 1);
+            lsn = readSnapshot(file(directory, first, SNAPSHOT_SUFFIX), target);
+        }
+        long next = first;
+        for (long number : logs) {
+            if (number >= first) {
+                lsn = Math.max(lsn, replay(file(directory, number, LOG_SUFFIX), target));
+                next = number + 1;
+            }
+        }
+        return new CommentMemoryLog(directory, syncWrites, next, lsn);
+    }
+
+    long lsn() {
+        lock.lock();
+        try {
+            return lsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void put(CommentResponse comment) throws IOException {
+        byte[][] strings = strings(comment);
+        ByteBuffer record = record(PUT, commentSize(strings));
+        putComment(record, comment, strings);
+        append(record);
+    }
+
+    void delete(long id) throws IOException {
+        append(record(DELETE, 8).putLong(id));
+    }
+
+    // ids below the limit are handed out and must not be handed out again after a restart
+    void reserve(long idLimit) throws IOException {
+        append(record(RESERVE, 8).putLong(idLimit));
+    }
+
+    void sync() throws IOException {
+        lock.lock();
+        try {
+            channel.force(false);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Starts a new log segment and writes every comment of the map to a snapshot
+     * numbered like it. The segment is switched while no write is under way, so
+     * each change is in the old segment and the map, or in the new segment; the
+     * map keeps taking writes while the snapshot is written.
+     */
+    void snapshot(CommentIdMap comments, LongSupplier idLimit) throws IOException {
+        Rotation rotation;
+        try {
+            rotation = comments.exclusively(() -> {
+                try {
+                    return rotate();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        long number = rotation.segment();
+        long limit = idLimit.getAsLong();
+
+        Path temporary = file(directory, number, SNAPSHOT_SUFFIX + TEMPORARY_SUFFIX);
+        try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedWriter writer = new MappedWriter(out);
+            writer.reserve(SNAPSHOT_HEADER).putInt(SNAPSHOT_MAGIC).putLong(rotation.lsn()).putLong(limit).putInt(0);
+            int[] count = {0};
+            try {
+                comments.forEach(comment -> {
+                    byte[][] strings = strings(comment);
+                    int size = commentSize(strings);
+                    putComment(writer.reserve(4 + size).putInt(size), comment, strings);
+                    count[0]++;
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            writer.finish();
+            MappedByteBuffer header = out.map(FileChannel.MapMode.READ_WRITE, 0, SNAPSHOT_HEADER);
+            header.putInt(SNAPSHOT_HEADER - 4, count[0]);
+            header.force();
+            out.force(true);
+        }
+        Files.move(temporary, file(directory, number, SNAPSHOT_SUFFIX), StandardCopyOption.ATOMIC_MOVE);
+        deleteFiles(directory, SNAPSHOT_SUFFIX, number);
+        deleteFiles(directory, LOG_SUFFIX, number);
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (channel.isOpen()) {
+                channel.force(false);
+                channel.close();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void append(ByteBuffer record) throws IOException {
+        lock.lock();
+        try {
+            record.putLong(LOG_HEADER + 1, ++lsn);
+            CRC32C crc = new CRC32C();
+            crc.update(record.array(), LOG_HEADER, record.limit() - LOG_HEADER);
+            record.putInt(4, (int) crc.getValue());
+            record.rewind();
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+            if (syncWrites) {
+                channel.force(false);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Rotation rotate() throws IOException {
+        lock.lock();
+        try {
+            channel.force(false);
+            channel.close();
+            channel = open(++segment);
+            return new Rotation(segment, lsn);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private FileChannel open(long number) throws IOException {
+        return FileChannel.open(file(directory, number, LOG_SUFFIX), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+
+    // length, checksum, then the checksummed type, lsn and payload; the lsn and checksum are filled in on append
+    private static ByteBuffer record(byte type, int payloadSize) {
+        int size = 1 + 8 + payloadSize;
+        return ByteBuffer.allocate(LOG_HEADER + size).putInt(size).putInt(0).put(type).putLong(0);
+    }
+
+    private static long readSnapshot(Path file, Target target) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedReader reader = new MappedReader(in);
+            ByteBuffer header = reader.next(SNAPSHOT_HEADER);
+            if (header == null || header.getInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a comment snapshot: " + file);
+            }
+            long lsn = header.getLong();
+            target.reserve(header.getLong());
+            int count = header.getInt();
+            for (int i = 0; i < count; i++) {
+                ByteBuffer size = reader.next(4);
+                ByteBuffer record = size == null ? null : reader.next(size.getInt());
+                if (record == null) {
+                    throw new IOException("Comment snapshot " + file + " ends after " + i + " of " + count + " comments");
+                }
+                target.put(getComment(record));
+            }
+            return lsn;
+        }
+    }
+
+    private static long replay(Path file, Target target) throws IOException {
+        long lsn = 0;
+        long end = 0;
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedReader reader = new MappedReader(in);
+            CRC32C crc = new CRC32C();
+            ByteBuffer header;
+            while ((header = reader.next(LOG_HEADER)) != null) {
+                int size = header.getInt();
+                int checksum = header.getInt();
+                ByteBuffer record = size > 0 ? reader.next(size) : null;
+                if (record == null) {
+                    break;
+                }
+                crc.reset();
+                crc.update(record.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                byte type = record.get();
+                lsn = record.getLong();
+                switch (type) {
+                    case PUT -> target.put(getComment(record));
+                    case DELETE -> target.delete(record.getLong());
+                    case RESERVE -> target.reserve(record.getLong());
+                    default -> throw new IOException("Unknown record type " + type + " in " + file);
+                }
+                end = reader.position();
+            }
+            if (end < in.size()) {
+                logger.warn("Cutting off {} bytes of a torn record at the end of {}", in.size() - end, file);
+                in.truncate(end);
+            }
+        }
+        return lsn;
+    }
+
+    private static byte[][] strings(CommentResponse comment) {
+        return new byte[][]{bytes(comment.name()), bytes(comment.email()), bytes(comment.body())};
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int commentSize(byte[][] strings) {
+        int size = 8 + 4;
+        for (byte[] string : strings) {
+            size += 4 + (string == null ? 0 : string.length);
+        }
+        return size;
+    }
+
+    private static ByteBuffer putComment(ByteBuffer buffer, CommentResponse comment, byte[][] strings) {
+        buffer.putLong(comment.id()).putInt(comment.version());
+        for (byte[] string : strings) {
+            if (string == null) {
+                buffer.putInt(-1);
+            } else {
+                buffer.putInt(string.length).put(string);
+            }
+        }
+        return buffer;
+    }
+
+    private static CommentResponse getComment(ByteBuffer buffer) {
+        long id = buffer.getLong();
+        int version = buffer.getInt();
+        return new CommentResponse(id, getString(buffer), getString(buffer), getString(buffer), version);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static Path file(Path directory, long number, String suffix) {
+        return directory.resolve(String.format("%020d%s", number, suffix));
+    }
+
+    private static List<Long> numbers(Path directory, String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(suffix))
+                    .map(name -> Long.parseLong(name.substring(0, name.length() - suffix.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static void deleteFiles(Path directory, String suffix, long before) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(file -> file.getFileName().toString().endsWith(suffix)).toList()) {
+                String name = file.getFileName().toString();
+                String number = name.substring(0, name.indexOf('.'));
+                if (suffix.equals(TEMPORARY_SUFFIX) || Long.parseLong(number) < before) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Receives the recovered state, oldest change first.
+     */
+    interface Target {
+
+        void put(CommentResponse comment);
+
+        void delete(long id);
+
+        void reserve(long idLimit);
+
+    }
+
+    private record Rotation(long segment, long lsn) {}
+
+    // maps the file a window at a time, moving the window on when the next record does not fit
+    private static final class MappedWriter {
+
+        private final FileChannel channel;
+        private long base;
+        private MappedByteBuffer buffer;
+
+        private MappedWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        private ByteBuffer reserve(int size) {
+            if (buffer == null || buffer.remaining() < size) {
+                try {
+                    if (buffer != null) {
+                        base += buffer.position();
+                        buffer.force();
+                    }
+                    buffer = channel.map(FileChannel.MapMode.READ_WRITE, base, Math.max(MAP_WINDOW, size));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return buffer;
+        }
+
+        private void finish() throws IOException {
+            buffer.force();
+            channel.truncate(base + buffer.position());
+        }
+
+    }
+
+    private static final class MappedReader {
+
+        private final FileChannel channel;
+        private final long size;
+        private long base;
+        private MappedByteBuffer buffer;
+
+        private MappedReader(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+        }
+
+        private long position() {
+            return buffer == null ? 0 : base + buffer.position();
+        }
+
+        // the next length bytes as a heap buffer, or null if the file ends first
+        private ByteBuffer next(int length) throws IOException {
+            long position = position();
+            if (length < 0 || position + length > size) {
+                return null;
+            }
+            if (buffer == null || buffer.remaining() < length) {
+                base = position;
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, base, Math.min(size - base, Math.max(MAP_WINDOW, length)));
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return ByteBuffer.wrap(bytes);
+        }
+
+    }
+
+}
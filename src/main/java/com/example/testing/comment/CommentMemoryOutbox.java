@@ -0,0 +1,82 @@
+package com.example.testing.comment;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Outbox for the in-memory store. Changes are kept in memory only, so a restart
+ * loses the backlog; the numbering continues after the store's last write log
+ * sequence, which keeps it increasing across restarts, and a client resuming
+ * from before the restart is sent a reset.
+ */
+@Component
+@Profile("in-memory")
+public class CommentMemoryOutbox implements CommentOutbox {
+
+    private final ConcurrentNavigableMap<Long, CommentChange> changes = new ConcurrentSkipListMap<>();
+    // guarded by this; a change is numbered and added in one step, so readers never see a gap
+    private long lastSeq;
+
+    public CommentMemoryOutbox(CommentMemoryStore store) {
+        this.lastSeq = store.lastSequence();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public synchronized void onCommentChange(CommentChangeEvent event) {
+        for (CommentResponse comment : event.saved()) {
+            // a comment is written at version 0 only when it is created
+            CommentChange.Type type = Integer.valueOf(0).equals(comment.version())
+                    ? CommentChange.Type.CREATED
+                    : CommentChange.Type.UPDATED;
+            add(type, comment.id(), comment);
+        }
+        for (Long id : event.deletedIds()) {
+            add(CommentChange.Type.DELETED, id, null);
+        }
+    }
+
+    @Override
+    public List<CommentChange> readAfter(long seq, int limit) {
+        List<CommentChange> read = new ArrayList<>(Math.min(limit, changes.size()));
+        for (CommentChange change : changes.tailMap(seq, false).values()) {
+            if (read.size() == limit) {
+                break;
+            }
+            read.add(change);
+        }
+        return read;
+    }
+
+    @Override
+    public Long firstSeq() {
+        Map.Entry<Long, CommentChange> first = changes.firstEntry();
+        return first == null ? null : first.getKey();
+    }
+
+    @Override
+    public synchronized long lastSeq() {
+        return lastSeq;
+    }
+
+    @Override
+    public int purgeUpTo(long seq) {
+        ConcurrentNavigableMap<Long, CommentChange> purged = changes.headMap(seq, true);
+        int count = purged.size();
+        purged.clear();
+        return count;
+    }
+
+    private void add(CommentChange.Type type, Long commentId, CommentResponse comment) {
+        long seq = ++lastSeq;
+        changes.put(seq, new CommentChange(seq, type, commentId, comment));
+    }
+
+}
@@ -0,0 +1,288 @@
+package com.example.testing.comment;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mapping.PropertyReferenceException;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.data.util.TypeInformation;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Optional;
+
+/**
+ * {@link CommentRepository} over the {@link CommentMemoryStore}, so the service
+ * runs unchanged without a database. Saves check {@code @Version} the way
+ * Hibernate's merge does, sorting follows the {@link Sort} of the request, and
+ * pages in id order walk the store's id index instead of sorting everything.
+ */
+@Repository
+@Profile("in-memory")
+public class CommentMemoryRepository implements CommentRepository {
+
+    private final CommentMemoryStore store;
+
+    public CommentMemoryRepository(CommentMemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public Optional<CommentResponse> findResponseById(Long id) {
+        return Optional.ofNullable(store.get(id));
+    }
+
+    @Override
+    public List<CommentResponse> findResponsesByIdIn(Collection<Long> ids) {
+        List<CommentResponse> found = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            CommentResponse comment = store.get(id);
+            if (comment != null) {
+                found.add(comment);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public Optional<Integer> findVersionById(Long id) {
+        return findResponseById(id).map(CommentResponse::version);
+    }
+
+    @Override
+    public Page<CommentResponse> findAllResponses(int bodyLength, Pageable pageable) {
+        List<CommentResponse> content = select(0, pageable, pageable.isPaged() ? pageable.getPageSize() : Integer.MAX_VALUE).stream()
+                .map(comment -> truncate(comment, bodyLength))
+                .toList();
+        return PageableExecutionUtils.getPage(content, pageable, store::size);
+    }
+
+    @Override
+    public Slice<CommentResponse> findResponsesByIdGreaterThan(Long id, int bodyLength, Pageable pageable) {
+        int size = pageable.isPaged() ? pageable.getPageSize() : Integer.MAX_VALUE - 1;
+        List<CommentResponse> content = new ArrayList<>(select(id, pageable, size + 1));
+        boolean hasNext = content.size() > size;
+        if (hasNext) {
+            content.remove(size);
+        }
+        content.replaceAll(comment -> truncate(comment, bodyLength));
+        return new SliceImpl<>(content, pageable, hasNext);
+    }
+
+    // id order only, which is the order cursors page in
+    @Override
+    public Slice<CommentResponse> findResponsesByEmailAndIdGreaterThan(String email, Long id, int bodyLength, Pageable pageable) {
+        int size = pageable.isPaged() ? pageable.getPageSize() : Integer.MAX_VALUE - 1;
+        List<CommentResponse> content = new ArrayList<>();
+        for (Long byEmail : store.idsByEmail(email).tailSet(id, false)) {
+            CommentResponse comment = store.get(byEmail);
+            // a concurrent update may have moved it to another email since the index was read
+            if (comment != null && email.equals(comment.email())) {
+                content.add(truncate(comment, bodyLength));
+                if (content.size() > size) {
+                    break;
+                }
+            }
+        }
+        boolean hasNext = content.size() > size;
+        if (hasNext) {
+            content.remove(size);
+        }
+        return new SliceImpl<>(content, pageable, hasNext);
+    }
+
+    @Override
+    public int updateById(Long id, String name, String email, String body, Integer version) {
+        return store.update(id, name, email, body, version) == null ? 0 : 1;
+    }
+
+    @Override
+    public int deleteCommentById(Long id, Integer version) {
+        return store.delete(id, version) ? 1 : 0;
+    }
+
+    @Override
+    public long count() {
+        return store.size();
+    }
+
+    @Override
+    public Page<Comment> findAll(Pageable pageable) {
+        List<Comment> content = select(0, pageable, pageable.isPaged() ? pageable.getPageSize() : Integer.MAX_VALUE).stream()
+                .map(CommentMemoryRepository::toEntity)
+                .toList();
+        return PageableExecutionUtils.getPage(content, pageable, store::size);
+    }
+
+    @Override
+    public List<Comment> findAll(Sort sort) {
+        return select(0, Pageable.unpaged(sort), Integer.MAX_VALUE).stream().map(CommentMemoryRepository::toEntity).toList();
+    }
+
+    @Override
+    public List<Comment> findAll() {
+        return findAll(Sort.unsorted());
+    }
+
+    @Override
+    public List<Comment> findAllById(Iterable<Long> ids) {
+        List<Comment> comments = new ArrayList<>();
+        ids.forEach(id -> findById(id).ifPresent(comments::add));
+        return comments;
+    }
+
+    @Override
+    public Optional<Comment> findById(Long id) {
+        return findResponseById(id).map(CommentMemoryRepository::toEntity);
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        return store.get(id) != null;
+    }
+
+    /**
+     * Inserts a comment without a version, taking an id from the store if it has
+     * none, and otherwise updates it if it is still at its version.
+     */
+    @Override
+    public <S extends Comment> S save(S entity) {
+        if (entity.getVersion() == null) {
+            if (entity.getId() == null) {
+                entity.setId(store.next());
+            }
+            entity.setVersion(store.insert(toResponse(entity)).version());
+            return entity;
+        }
+        CommentResponse updated = store.update(entity.getId(), entity.getName(), entity.getEmail(), entity.getBody(), entity.getVersion());
+        if (updated == null) {
+            throw new ObjectOptimisticLockingFailureException(Comment.class, entity.getId());
+        }
+        entity.setVersion(updated.version());
+        return entity;
+    }
+
+    @Override
+    public <S extends Comment> List<S> saveAll(Iterable<S> entities) {
+        List<S> saved = new ArrayList<>();
+        entities.forEach(entity -> saved.add(save(entity)));
+        return saved;
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        store.delete(id, null);
+    }
+
+    @Override
+    public void delete(Comment entity) {
+        if (!store.delete(entity.getId(), entity.getVersion()) && existsById(entity.getId())) {
+            throw new ObjectOptimisticLockingFailureException(Comment.class, entity.getId());
+        }
+    }
+
+    @Override
+    public void deleteAllById(Iterable<? extends Long> ids) {
+        ids.forEach(this::deleteById);
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends Comment> entities) {
+        entities.forEach(this::delete);
+    }
+
+    @Override
+    public void deleteAll() {
+        List.copyOf(store.ids()).forEach(this::deleteById);
+    }
+
+    /**
+     * Returns up to limit comments with an id above afterId, ordered and offset
+     * as the pageable asks. Id order walks the index and stops after the page;
+     * any other order sorts the matching comments first.
+     */
+    private List<CommentResponse> select(long afterId, Pageable pageable, int limit) {
+        Sort sort = pageable.getSort();
+        long offset = pageable.isPaged() ? pageable.getOffset() : 0;
+        List<CommentResponse> selected = new ArrayList<>();
+        Sort.Order only = sort.stream().count() == 1 ? sort.iterator().next() : null;
+        if (sort.isUnsorted() || only != null && only.getProperty().equals("id")) {
+            NavigableSet<Long> ids = store.ids().tailSet(afterId, false);
+            for (Long id : only == null || only.isAscending() ? ids : ids.descendingSet()) {
+                CommentResponse comment = store.get(id);
+                if (comment != null && offset-- <= 0) {
+                    selected.add(comment);
+                    if (selected.size() == limit) {
+                        break;
+                    }
+                }
+            }
+            return selected;
+        }
+
+        Comparator<CommentResponse> comparator = comparator(sort);
+        store.forEach(comment -> {
+            if (comment.id() > afterId) {
+                selected.add(comment);
+            }
+        });
+        selected.sort(comparator);
+        int from = (int) Math.min(offset, selected.size());
+        return selected.subList(from, (int) Math.min(selected.size(), from + (long) limit));
+    }
+
+    // ties are broken by id, so pages never overlap
+    private static Comparator<CommentResponse> comparator(Sort sort) {
+        Comparator<CommentResponse> comparator = null;
+        for (Sort.Order order : sort) {
+            Comparator<String> strings = order.isIgnoreCase() ? String.CASE_INSENSITIVE_ORDER : Comparator.naturalOrder();
+            Comparator<CommentResponse> next = switch (order.getProperty()) {
+                case "id" -> Comparator.comparing(CommentResponse::id, directed(order, Comparator.<Long>naturalOrder()));
+                case "name" -> Comparator.comparing(CommentResponse::name, directed(order, strings));
+                case "email" -> Comparator.comparing(CommentResponse::email, directed(order, strings));
+                case "body" -> Comparator.comparing(CommentResponse::body, directed(order, strings));
+                case "version" -> Comparator.comparing(CommentResponse::version, directed(order, Comparator.<Integer>naturalOrder()));
+                default -> throw new PropertyReferenceException(order.getProperty(), TypeInformation.of(Comment.class), List.of());
+            };
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        Comparator<CommentResponse> byId = Comparator.comparing(CommentResponse::id);
+        return comparator == null ? byId : comparator.thenComparing(byId);
+    }
+
+    // nulls sort low, like MySQL, unless the order says otherwise
+    private static <T> Comparator<T> directed(Sort.Order order, Comparator<T> values) {
+        Comparator<T> directed = order.isAscending() ? values : values.reversed();
+        boolean nullsLast = switch (order.getNullHandling()) {
+            case NULLS_FIRST -> false;
+            case NULLS_LAST -> true;
+            case NATIVE -> order.isDescending();
+        };
+        return nullsLast ? Comparator.nullsLast(directed) : Comparator.nullsFirst(directed);
+    }
+
+    private static CommentResponse truncate(CommentResponse comment, int bodyLength) {
+        String body = comment.body();
+        if (body == null || body.length() <= bodyLength) {
+            return comment;
+        }
+        return new CommentResponse(comment.id(), comment.name(), comment.email(), body.substring(0, bodyLength), comment.version());
+    }
+
+    private static Comment toEntity(CommentResponse comment) {
+        return new Comment(comment.id(), comment.name(), comment.email(), comment.body(), comment.version());
+    }
+
+    private static CommentResponse toResponse(Comment comment) {
+        return new CommentResponse(comment.getId(), comment.getName(), comment.getEmail(), comment.getBody(), comment.getVersion());
+    }
+
+}
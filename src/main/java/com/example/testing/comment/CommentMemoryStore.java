@@ -0,0 +1,484 @@
+package com.example.testing.comment;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Comment storage engine that keeps every comment in a {@link CommentIdMap} and
+ * needs no database. Each write is appended to the {@link CommentMemoryLog} under
+ * the comment's stripe lock before it becomes visible, the log is synced every
+ * {@code sync-interval} (or on every write with {@code sync-writes}), and a
+ * snapshot is taken every {@code snapshot-interval} so a restart only maps the
+ * snapshot and replays the writes since.
+ * <p>
+ * Ids come from here as well. They are reserved in the log a block at a time, so
+ * ids handed out before a crash, for instance to the write-behind journal, are
+ * never handed out again.
+ * <p>
+ * Besides the id order, the ids of each author email are indexed, which is what
+ * lets a filter by email page without visiting other authors' comments, and the
+ * comment count and body length of each author are totalled for the stats.
+ * <p>
+ * Writes are visible as soon as they are made. Inside a transaction of the
+ * in-memory transaction manager each one is also noted in the bound
+ * {@link Transaction}, so a rollback can put back what it replaced.
+ */
+@Component
+@Profile("in-memory")
+public class CommentMemoryStore implements CommentBatchRepository, CommentIdAllocator, CommentStatsIndex,
+        InitializingBean, DisposableBean {
+
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    private final CommentProperties.Memory properties;
+    private final int blockSize;
+    private final CommentIdMap comments;
+    // id order for paging, cursors and streaming; the map stays the source of truth
+    private final ConcurrentSkipListSet<Long> ids = new ConcurrentSkipListSet<>();
+    // changed under the comment's stripe lock, so an id is only ever listed under its current email
+    private final Map<String, ConcurrentSkipListSet<Long>> idsByEmail = new ConcurrentHashMap<>();
+    // changed under the comment's stripe lock like the email index
+    private final Map<String, AuthorTotals> authors = new ConcurrentHashMap<>();
+    private final LongAdder bodyLength = new LongAdder();
+    private final ScheduledExecutorService scheduler;
+    private CommentMemoryLog log;
+
+    // not a monitor: a reservation waits on the log, which would pin a virtual thread
+    private final ReentrantLock idLock = new ReentrantLock();
+    // [nextId, idLimit) is reserved in the log but not handed out yet; guarded by idLock
+    private long nextId = 1;
+    private long idLimit = 1;
+
+    private static final Logger logger = LoggerFactory.getLogger(CommentMemoryStore.class);
+
+    public CommentMemoryStore(CommentProperties properties) {
+        this.properties = properties.memory();
+        this.blockSize = properties.ids().blockSize();
+        this.comments = new CommentIdMap(this.properties.stripes());
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("comment-store-");
+        threadFactory.setDaemon(true);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+    }
+
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        long start = System.nanoTime();
+        log = CommentMemoryLog.open(properties.directory(), properties.syncWrites(), new CommentMemoryLog.Target() {
+            @Override
+            public void put(CommentResponse comment) {
+                comments.compute(comment.id(), current -> {
+                    reindex(current, comment);
+                    return comment;
+                });
+                ids.add(comment.id());
+            }
+
+            @Override
+            public void delete(long id) {
+                comments.compute(id, current -> {
+                    reindex(current, null);
+                    return null;
+                });
+                ids.remove(id);
+            }
+
+            @Override
+            public void reserve(long limit) {
+                idLimit = Math.max(idLimit, limit);
+            }
+        });
+        idLock.lock();
+        try {
+            nextId = Math.max(idLimit, ids.isEmpty() ? 1 : ids.last() + 1);
+            idLimit = nextId;
+        } finally {
+            idLock.unlock();
+        }
+        logger.info("Recovered {} comments from {} in {} ms", comments.size(), properties.directory(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        long snapshotMillis = properties.snapshotInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::snapshot, snapshotMillis, snapshotMillis, TimeUnit.MILLISECONDS);
+        if (!properties.syncWrites()) {
+            long syncMillis = properties.syncInterval().toMillis();
+            scheduler.scheduleWithFixedDelay(this::sync, syncMillis, syncMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException, InterruptedException {
+        scheduler.shutdown();
+        scheduler.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        if (log == null) {
+            return;
+        }
+        // the next start only has to map the snapshot
+        log.snapshot(comments, this::idLimit);
+        log.close();
+    }
+
+    public CommentResponse get(long id) {
+        return comments.get(id);
+    }
+
+    public int size() {
+        return comments.size();
+    }
+
+    public NavigableSet<Long> ids() {
+        return Collections.unmodifiableNavigableSet(ids);
+    }
+
+    public NavigableSet<Long> idsByEmail(String email) {
+        NavigableSet<Long> byEmail = email == null ? null : idsByEmail.get(email);
+        return byEmail == null ? Collections.emptyNavigableSet() : Collections.unmodifiableNavigableSet(byEmail);
+    }
+
+    // in no particular order, see CommentIdMap.forEach
+    public void forEach(Consumer<CommentResponse> action) {
+        comments.forEach(action);
+    }
+
+    @Override
+    public CommentStats stats() {
+        long count = comments.size();
+        long length = bodyLength.sum();
+        return new CommentStats(count, authors.size(), length, CommentStatsIndex.average(length, count));
+    }
+
+    @Override
+    public CommentAuthorStats author(String email) {
+        AuthorTotals totals = email == null ? null : authors.get(email);
+        long count = totals == null ? 0 : totals.comments();
+        long length = totals == null ? 0 : totals.bodyLength();
+        return new CommentAuthorStats(email, count, length, CommentStatsIndex.average(length, count));
+    }
+
+    // increases with every write and survives restarts, the in-memory outbox numbers its changes after it
+    public long lastSequence() {
+        return log.lsn();
+    }
+
+    /**
+     * Stores a new comment at version 0 under the id it carries, which must not
+     * be in use.
+     */
+    public CommentResponse insert(CommentResponse comment) {
+        CommentResponse stored = new CommentResponse(comment.id(), comment.name(), comment.email(), comment.body(), 0);
+        comments.compute(stored.id(), current -> {
+            if (current != null) {
+                throw new DuplicateKeyException("Comment " + stored.id() + " already exists");
+            }
+            write(() -> log.put(stored));
+            reindex(null, stored);
+            return stored;
+        });
+        ids.add(stored.id());
+        written(stored.id(), stored, null);
+        return stored;
+    }
+
+    /**
+     * Returns the updated comment, or null if it is missing or, when a version is
+     * given, no longer at that version.
+     */
+    public CommentResponse update(long id, String name, String email, String body, Integer version) {
+        CommentResponse[] updated = new CommentResponse[1];
+        CommentResponse previous = comments.compute(id, current -> {
+            if (!matches(current, version)) {
+                return current;
+            }
+            updated[0] = new CommentResponse(id, name, email, body, current.version() + 1);
+            write(() -> log.put(updated[0]));
+            reindex(current, updated[0]);
+            return updated[0];
+        });
+        if (updated[0] != null) {
+            written(id, updated[0], previous);
+        }
+        return updated[0];
+    }
+
+    public boolean delete(long id, Integer version) {
+        CommentResponse previous = comments.compute(id, current -> {
+            if (!matches(current, version)) {
+                return current;
+            }
+            write(() -> log.delete(id));
+            reindex(current, null);
+            return null;
+        });
+        if (!matches(previous, version)) {
+            return false;
+        }
+        ids.remove(id);
+        written(id, null, previous);
+        return true;
+    }
+
+    /**
+     * Puts back the comment a write replaced, unless it has been written again
+     * since; a later write then stands, as it would have had the first one never
+     * happened.
+     */
+    boolean revert(long id, CommentResponse written, CommentResponse previous) {
+        boolean[] reverted = new boolean[1];
+        comments.compute(id, current -> {
+            if (!Objects.equals(current, written)) {
+                return current;
+            }
+            write(() -> {
+                if (previous == null) {
+                    log.delete(id);
+                } else {
+                    log.put(previous);
+                }
+            });
+            reindex(current, previous);
+            reverted[0] = true;
+            return previous;
+        });
+        if (reverted[0] && previous == null) {
+            ids.remove(id);
+        } else if (reverted[0]) {
+            ids.add(id);
+        }
+        return reverted[0];
+    }
+
+    @Override
+    public void batchInsert(List<CommentResponse> comments) {
+        comments.forEach(this::insert);
+    }
+
+    @Override
+    public int[] batchUpdate(List<CommentBatchUpdate> updates) {
+        int[] counts = new int[updates.size()];
+        for (int i = 0; i < counts.length; i++) {
+            CommentBatchUpdate update = updates.get(i);
+            CommentRequest comment = update.comment();
+            counts[i] = update(update.id(), comment.name(), comment.email(), comment.body(), update.version()) == null ? 0 : 1;
+        }
+        return counts;
+    }
+
+    @Override
+    public int[] batchDelete(List<Long> ids) {
+        int[] counts = new int[ids.size()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = delete(ids.get(i), null) ? 1 : 0;
+        }
+        return counts;
+    }
+
+    @Override
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        Set<Long> existing = new HashSet<>();
+        for (Long id : ids) {
+            if (comments.get(id) != null) {
+                existing.add(id);
+            }
+        }
+        return existing;
+    }
+
+    @Override
+    public Map<Long, Integer> findVersions(Collection<Long> ids) {
+        Map<Long, Integer> versions = new HashMap<>();
+        for (Long id : ids) {
+            CommentResponse comment = comments.get(id);
+            if (comment != null) {
+                versions.put(id, comment.version());
+            }
+        }
+        return versions;
+    }
+
+    @Override
+    public void streamAll(Consumer<CommentResponse> action) {
+        for (Long id : ids) {
+            CommentResponse comment = comments.get(id);
+            if (comment != null) {
+                action.accept(comment);
+            }
+        }
+    }
+
+    @Override
+    public long next() {
+        return next(1).get(0);
+    }
+
+    @Override
+    public List<Long> next(int count) {
+        idLock.lock();
+        try {
+            if (nextId + count > idLimit) {
+                long limit = nextId + Math.max(blockSize, count);
+                write(() -> log.reserve(limit));
+                idLimit = limit;
+            }
+            List<Long> allocated = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                allocated.add(nextId++);
+            }
+            return allocated;
+        } finally {
+            idLock.unlock();
+        }
+    }
+
+    void snapshot() {
+        try {
+            log.snapshot(comments, this::idLimit);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Comment snapshot failed, the write log keeps growing until one succeeds", e);
+        }
+    }
+
+    private void sync() {
+        try {
+            log.sync();
+        } catch (IOException e) {
+            logger.error("Could not sync the comment write log", e);
+        }
+    }
+
+    private long idLimit() {
+        idLock.lock();
+        try {
+            return idLimit;
+        } finally {
+            idLock.unlock();
+        }
+    }
+
+    // called under the comment's stripe lock with the comment before and after a write
+    private void reindex(CommentResponse previous, CommentResponse next) {
+        tally(previous, -1);
+        tally(next, 1);
+        String previousEmail = previous == null ? null : previous.email();
+        String nextEmail = next == null ? null : next.email();
+        if (previous != null && next != null && Objects.equals(previousEmail, nextEmail)) {
+            return;
+        }
+        if (previousEmail != null) {
+            idsByEmail.computeIfPresent(previousEmail, (email, byEmail) -> {
+                byEmail.remove(previous.id());
+                return byEmail.isEmpty() ? null : byEmail;
+            });
+        }
+        if (nextEmail != null) {
+            // added inside compute, so it cannot land in a set that is being dropped for being empty
+            idsByEmail.compute(nextEmail, (email, byEmail) -> {
+                ConcurrentSkipListSet<Long> added = byEmail == null ? new ConcurrentSkipListSet<>() : byEmail;
+                added.add(next.id());
+                return added;
+            });
+        }
+    }
+
+    private void written(long id, CommentResponse written, CommentResponse previous) {
+        if (TransactionSynchronizationManager.getResource(this) instanceof Transaction transaction) {
+            transaction.writes.add(new Write(id, written, previous));
+        }
+    }
+
+    private void tally(CommentResponse comment, int sign) {
+        if (comment == null) {
+            return;
+        }
+        int length = comment.body() == null ? 0 : comment.body().length();
+        bodyLength.add((long) sign * length);
+        if (comment.email() == null) {
+            return;
+        }
+        authors.compute(comment.email(), (email, totals) -> {
+            long count = (totals == null ? 0 : totals.comments()) + sign;
+            long total = (totals == null ? 0 : totals.bodyLength()) + (long) sign * length;
+            return count == 0 ? null : new AuthorTotals(count, total);
+        });
+    }
+
+    private static boolean matches(CommentResponse comment, Integer version) {
+        return comment != null && (version == null || version.equals(comment.version()));
+    }
+
+    private static void write(LogWrite write) {
+        try {
+            write.run();
+        } catch (IOException e) {
+            throw new DataAccessResourceFailureException("Could not append to the comment write log", e);
+        }
+    }
+
+    private interface LogWrite {
+
+        void run() throws IOException;
+
+    }
+
+    /**
+     * The writes of one transaction, bound to the thread under the store by the
+     * in-memory transaction manager.
+     */
+    static final class Transaction {
+
+        private final List<Write> writes = new ArrayList<>();
+        private boolean rollbackOnly;
+
+        boolean isRollbackOnly() {
+            return rollbackOnly;
+        }
+
+        void setRollbackOnly() {
+            rollbackOnly = true;
+        }
+
+        // newest first, so each comment ends up as it was before the transaction
+        void rollback(CommentMemoryStore store) {
+            for (int i = writes.size() - 1; i >= 0; i--) {
+                Write write = writes.get(i);
+                if (!store.revert(write.id(), write.written(), write.previous())) {
+                    logger.warn("Comment {} was written again before its transaction rolled back, keeping the later write",
+                            write.id());
+                }
+            }
+            writes.clear();
+        }
+
+    }
+
+    private record Write(long id, CommentResponse written, CommentResponse previous) {}
+
+    private record AuthorTotals(long comments, long bodyLength) {}
+
+}
@@ -0,0 +1,153 @@
+package com.example.testing.comment;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+@Component
+public class CommentMetrics {
+
+    private final MeterRegistry registry;
+    private final Counter notFound;
+    private final Counter versionConflicts;
+    private final DistributionSummary pageRows;
+    private final Counter writeBehindRejected;
+    private final Counter writeBehindDropped;
+    private final Timer writeBehindLag;
+    private final DistributionSummary lookupBatchSize;
+    private final Counter lookupsShared;
+    private final Counter rateRejected;
+    private final Counter concurrencyRejected;
+    private final Counter changeSubscribersEvicted;
+    private final Map<String, DistributionSummary> payloadSizes = new ConcurrentHashMap<>();
+
+    public CommentMetrics(MeterRegistry meterRegistry, CommentProperties properties) {
+        // an empty composite registry hands out no-op meters
+        this.registry = properties.metrics().enabled() ? meterRegistry : new CompositeMeterRegistry();
+        this.notFound = Counter.builder("comments.not.found")
+                .description("Lookups and writes that targeted a missing comment")
+                .register(registry);
+        this.versionConflicts = Counter.builder("comments.version.conflicts")
+                .description("Writes rejected because the comment was no longer at the expected version")
+                .register(registry);
+        this.pageRows = DistributionSummary.builder("comments.page.rows")
+                .description("Comments returned per listing page")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.writeBehindRejected = Counter.builder("comments.write.behind.rejected")
+                .description("Asynchronous creates turned away because the write-behind queue was full")
+                .register(registry);
+        this.writeBehindDropped = Counter.builder("comments.write.behind.dropped")
+                .description("Accepted comments the database refused to store")
+                .register(registry);
+        this.writeBehindLag = Timer.builder("comments.write.behind.lag")
+                .description("Time from accepting a comment to committing it")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.lookupBatchSize = DistributionSummary.builder("comments.lookup.batch.size")
+                .description("Distinct comment ids read by one batched lookup query")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.lookupsShared = Counter.builder("comments.lookup.shared")
+                .description("Lookups answered by a query already under way for the same comment")
+                .register(registry);
+        this.rateRejected = rejectedCounter("rate");
+        this.concurrencyRejected = rejectedCounter("concurrency");
+        this.changeSubscribersEvicted = Counter.builder("comments.changes.evicted")
+                .description("Change streams closed because the client fell too far behind or stopped reading")
+                .register(registry);
+    }
+
+    public void notFound() {
+        notFound.increment();
+    }
+
+    public void versionConflict() {
+        versionConflicts.increment();
+    }
+
+    public void pageRows(int rows) {
+        pageRows.record(rows);
+    }
+
+    public void lookupBatch(int ids) {
+        lookupBatchSize.record(ids);
+    }
+
+    public void lookupShared() {
+        lookupsShared.increment();
+    }
+
+    public void payloadSize(String uri, long bytes) {
+        payloadSizes.computeIfAbsent(uri, key -> DistributionSummary.builder("comments.response.size")
+                        .description("Response payload size of the comment endpoints")
+                        .baseUnit("bytes")
+                        .tag("uri", key)
+                        .publishPercentileHistogram()
+                        .register(registry))
+                .record(bytes);
+    }
+
+    public void writeBehindQueue(Collection<?> queue) {
+        Gauge.builder("comments.write.behind.queue", queue, Collection::size)
+                .description("Accepted comments waiting to be written")
+                .register(registry);
+    }
+
+    public void writeBehindRejected() {
+        writeBehindRejected.increment();
+    }
+
+    public void writeBehindDropped() {
+        writeBehindDropped.increment();
+    }
+
+    public void writeBehindLag(long nanos) {
+        writeBehindLag.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void rateRejected() {
+        rateRejected.increment();
+    }
+
+    public void concurrencyRejected() {
+        concurrencyRejected.increment();
+    }
+
+    public void concurrencyLimit(IntSupplier limit, IntSupplier inFlight) {
+        Gauge.builder("comments.concurrency.limit", limit::getAsInt)
+                .description("Concurrent requests currently allowed by the adaptive limit")
+                .register(registry);
+        Gauge.builder("comments.concurrency.in.flight", inFlight::getAsInt)
+                .description("Requests currently being handled under the adaptive limit")
+                .register(registry);
+    }
+
+    public void changeSubscribers(Collection<?> subscribers) {
+        Gauge.builder("comments.changes.subscribers", subscribers, Collection::size)
+                .description("Open comment change streams")
+                .register(registry);
+    }
+
+    public void changeSubscriberEvicted() {
+        changeSubscribersEvicted.increment();
+    }
+
+    private Counter rejectedCounter(String reason) {
+        return Counter.builder("comments.requests.rejected")
+                .description("Requests turned away before reaching the handler")
+                .tag("reason", reason)
+                .register(registry);
+    }
+
+}
@@ -0,0 +1,23 @@
+package com.example.testing.comment;
+
+import java.util.List;
+
+/**
+ * Ordered record of committed comment changes that the {@link CommentChangeStream}
+ * tails. Implementations record every {@link CommentChangeEvent} together with the
+ * writes that caused it and number the changes with an increasing {@code seq}.
+ */
+public interface CommentOutbox {
+
+    List<CommentChange> readAfter(long seq, int limit);
+
+    /**
+     * Returns the oldest change still kept, or null if there is none.
+     */
+    Long firstSeq();
+
+    long lastSeq();
+
+    int purgeUpTo(long seq);
+
+}
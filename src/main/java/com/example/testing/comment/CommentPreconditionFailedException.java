@@ -0,0 +1,13 @@
+package com.example.testing.comment;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+public class CommentPreconditionFailedException extends RuntimeException {
+
+    public CommentPreconditionFailedException(Long id, String ifMatch) {
+        super(String.format("Comment with id %s does not match %s", id, ifMatch));
+    }
+
+}
@@ -0,0 +1,110 @@
+package com.example.testing.comment;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@ConfigurationProperties("comments")
+public record CommentProperties(
+        @DefaultValue Cache cache,
+        @DefaultValue Importer importer,
+        @DefaultValue Batch batch,
+        @DefaultValue Metrics metrics,
+        @DefaultValue Ids ids,
+        @DefaultValue WriteBehind writeBehind,
+        @DefaultValue RateLimit rateLimit,
+        @DefaultValue ConcurrencyLimit concurrencyLimit,
+        @DefaultValue Changes changes,
+        @DefaultValue Memory memory,
+        @DefaultValue Lookup lookup,
+        @DefaultValue Intern intern,
+        @DefaultValue Search search
+) {
+
+    public record Cache(
+            @DefaultValue("10000") long maximumSize,
+            @DefaultValue("10m") Duration ttl
+    ) {}
+
+    public record Importer(
+            @DefaultValue("1000") int batchSize
+    ) {}
+
+    public record Batch(
+            @DefaultValue("500") int chunkSize
+    ) {}
+
+    public record Metrics(
+            @DefaultValue("true") boolean enabled
+    ) {}
+
+    public record Ids(
+            @DefaultValue("50") int blockSize
+    ) {}
+
+    public record WriteBehind(
+            @DefaultValue("false") boolean enabled,
+            @DefaultValue("10000") int queueCapacity,
+            @DefaultValue("1000") int batchSize,
+            @DefaultValue("comment-journal") Path journal,
+            @DefaultValue("64MB") DataSize segmentSize,
+            @DefaultValue("2m") Duration replayTimeout
+    ) {}
+
+    public record RateLimit(
+            @DefaultValue("false") boolean enabled,
+            @DefaultValue("100") double readsPerSecond,
+            @DefaultValue("200") int readBurst,
+            @DefaultValue("10") double writesPerSecond,
+            @DefaultValue("20") int writeBurst,
+            @DefaultValue("100000") long maximumClients
+    ) {}
+
+    public record ConcurrencyLimit(
+            @DefaultValue("false") boolean enabled,
+            @DefaultValue("20") int initialLimit,
+            @DefaultValue("1") int minLimit,
+            @DefaultValue("200") int maxLimit,
+            @DefaultValue("250ms") Duration latencyThreshold,
+            @DefaultValue("0.9") double backoffRatio
+    ) {}
+
+    public record Changes(
+            @DefaultValue("500ms") Duration pollInterval,
+            @DefaultValue("500") int batchSize,
+            @DefaultValue("1s") Duration gapTimeout,
+            @DefaultValue("24h") Duration retention,
+            @DefaultValue("15s") Duration heartbeat,
+            @DefaultValue("30m") Duration timeout,
+            @DefaultValue("1000") int maxPending,
+            @DefaultValue("4") int dispatchThreads,
+            @DefaultValue("10s") Duration writeTimeout
+    ) {}
+
+    public record Memory(
+            @DefaultValue("comment-store") Path directory,
+            @DefaultValue("5m") Duration snapshotInterval,
+            @DefaultValue("1s") Duration syncInterval,
+            @DefaultValue("false") boolean syncWrites,
+            @DefaultValue("64") int stripes
+    ) {}
+
+    public record Lookup(
+            @DefaultValue("1ms") Duration window,
+            @DefaultValue("100") int maxBatchSize
+    ) {}
+
+    public record Intern(
+            @DefaultValue("false") boolean enabled
+    ) {}
+
+    // null indexes into a temporary directory of this instance's own
+    public record Search(
+            Path directory
+    ) {}
+
+}
@@ -0,0 +1,13 @@
+package com.example.testing.comment;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class CommentQueueFullException extends RuntimeException {
+
+    public CommentQueueFullException() {
+        super("Too many comments are waiting to be written, try again later");
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.example.testing.comment;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket per client and endpoint, with separate rates for reads and writes.
+ * Each bucket is a single timestamp (the generic cell rate algorithm): the time at
+ * which the bucket would be full again, advanced by one emission interval per
+ * admitted request with a compare-and-set, so admission never takes a lock.
+ */
+@Component
+@ConditionalOnProperty(name = "comments.rate-limit.enabled")
+public class CommentRateLimiter implements HandlerInterceptor {
+
+    private final Limit reads;
+    private final Limit writes;
+    private final Cache<Key, AtomicLong> buckets;
+    private final CommentMetrics metrics;
+
+    public CommentRateLimiter(CommentProperties properties, CommentMetrics metrics) {
+        CommentProperties.RateLimit rateLimit = properties.rateLimit();
+        this.reads = new Limit(rateLimit.readsPerSecond(), rateLimit.readBurst());
+        this.writes = new Limit(rateLimit.writesPerSecond(), rateLimit.writeBurst());
+        this.metrics = metrics;
+        // an idle bucket refills completely within this time, so dropping it loses nothing
+        long refillNanos = Math.max(reads.toleranceNanos(), writes.toleranceNanos());
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(rateLimit.maximumClients())
+                .expireAfterAccess(Duration.ofNanos(Math.max(refillNanos, TimeUnit.SECONDS.toNanos(1))))
+                .build();
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        boolean write = !HttpMethod.GET.matches(request.getMethod()) && !HttpMethod.HEAD.matches(request.getMethod());
+        Key key = new Key(request.getRemoteAddr(), request.getMethod(), pattern != null ? pattern.toString() : request.getRequestURI());
+        long waitNanos = tryAcquire(key, write, System.nanoTime());
+        if (waitNanos == 0) {
+            return true;
+        }
+        metrics.rateRejected();
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999))));
+        response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "Rate limit exceeded");
+        return false;
+    }
+
+    /**
+     * Returns zero if the request is admitted, otherwise how long the client has to
+     * wait before the next request would be.
+     */
+    long tryAcquire(Key key, boolean write, long nowNanos) {
+        Limit limit = write ? writes : reads;
+        AtomicLong fullAt = buckets.get(key, k -> new AtomicLong(nowNanos));
+        while (true) {
+            long current = fullAt.get();
+            // nanoTime values are only comparable by their difference
+            long next = (current - nowNanos < 0 ? nowNanos : current) + limit.intervalNanos();
+            long waitNanos = next - nowNanos - limit.toleranceNanos();
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    record Key(String client, String method, String endpoint) {}
+
+    private record Limit(long intervalNanos, long toleranceNanos) {
+
+        Limit(double perSecond, int burst) {
+            this((long) (TimeUnit.SECONDS.toNanos(1) / perSecond), (long) (TimeUnit.SECONDS.toNanos(1) / perSecond) * burst);
+        }
+
+    }
+
+}
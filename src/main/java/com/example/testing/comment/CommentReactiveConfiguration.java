@@ -0,0 +1,106 @@
+package com.example.testing.comment;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcConnectionDetails;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.r2dbc.ConnectionFactoryBuilder;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.boot.web.embedded.netty.NettyRouteProvider;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.web.ReactivePageableHandlerMethodArgumentResolver;
+import org.springframework.data.web.ReactiveSortHandlerMethodArgumentResolver;
+import org.springframework.http.client.ReactorResourceFactory;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.reactive.result.method.annotation.ArgumentResolverConfigurer;
+
+/**
+ * Sets up the reactive stack, which serves {@code /api/comments} from WebFlux and
+ * R2DBC instead of Spring MVC and JPA when the application is started as a
+ * reactive web application (the {@code reactive} profile). JPA stays in place for
+ * the schema, the seed data and id blocks; only the request path changes.
+ * <p>
+ * Boot's R2DBC auto-configuration is excluded, because it would need an R2DBC
+ * URL in every deployment and its transaction manager would make each
+ * {@code @Transactional} method of the servlet stack ambiguous. The pool is built
+ * here instead, from {@code spring.r2dbc.*} or a database started by docker
+ * compose, and reactive writes take a {@link TransactionalOperator}. It is not a
+ * bean either, since the JDBC {@code DataSource} auto-configuration backs off as
+ * soon as it sees an R2DBC {@code ConnectionFactory}.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@EnableConfigurationProperties(R2dbcProperties.class)
+public class CommentReactiveConfiguration implements WebFluxConfigurer, DisposableBean {
+
+    private final ConnectionPool connectionPool;
+
+    public CommentReactiveConfiguration(R2dbcProperties properties, ObjectProvider<R2dbcConnectionDetails> connectionDetails) {
+        ConnectionFactoryOptions options = connectionDetails.getIfAvailable(() -> () -> options(properties))
+                .getConnectionFactoryOptions();
+        R2dbcProperties.Pool pool = properties.getPool();
+        this.connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactoryBuilder.withOptions(options.mutate()).build())
+                .initialSize(pool.getInitialSize())
+                .maxSize(pool.getMaxSize())
+                .maxIdleTime(pool.getMaxIdleTime())
+                .build());
+    }
+
+    @Override
+    public void configureArgumentResolvers(ArgumentResolverConfigurer configurer) {
+        configurer.addCustomResolver(new ReactivePageableHandlerMethodArgumentResolver());
+        configurer.addCustomResolver(new ReactiveSortHandlerMethodArgumentResolver());
+    }
+
+    @Bean
+    DatabaseClient commentDatabaseClient() {
+        return DatabaseClient.create(connectionPool);
+    }
+
+    @Bean
+    TransactionalOperator commentTransactionalOperator() {
+        return TransactionalOperator.create(new R2dbcTransactionManager(connectionPool));
+    }
+
+    // Tomcat is on the classpath for the servlet stack and would otherwise win; an event loop per core is the point here
+    @Bean
+    NettyReactiveWebServerFactory nettyReactiveWebServerFactory(ObjectProvider<ReactorResourceFactory> resourceFactory,
+                                                                ObjectProvider<NettyRouteProvider> routes,
+                                                                ObjectProvider<NettyServerCustomizer> serverCustomizers) {
+        NettyReactiveWebServerFactory serverFactory = new NettyReactiveWebServerFactory();
+        resourceFactory.ifAvailable(serverFactory::setResourceFactory);
+        routes.orderedStream().forEach(serverFactory::addRouteProviders);
+        serverFactory.getServerCustomizers().addAll(serverCustomizers.orderedStream().toList());
+        return serverFactory;
+    }
+
+    @Override
+    public void destroy() {
+        connectionPool.dispose();
+    }
+
+    private static ConnectionFactoryOptions options(R2dbcProperties properties) {
+        if (properties.getUrl() == null) {
+            throw new IllegalStateException("The reactive stack needs spring.r2dbc.url, or docker compose running the database");
+        }
+        ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions.parse(properties.getUrl()).mutate();
+        if (properties.getUsername() != null) {
+            options.option(ConnectionFactoryOptions.USER, properties.getUsername());
+        }
+        if (properties.getPassword() != null) {
+            options.option(ConnectionFactoryOptions.PASSWORD, properties.getPassword());
+        }
+        return options.build();
+    }
+
+}
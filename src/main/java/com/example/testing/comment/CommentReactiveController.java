@@ -0,0 +1,129 @@
+package com.example.testing.comment;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.data.web.PagedModel;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * The {@code /api/comments} contract of {@link CommentController} on WebFlux:
+ * the same paths, records, status codes, cursors and ETag handling for reading,
+ * writing and batch-creating comments. Asking for {@code application/x-ndjson}
+ * streams every comment in id order instead of a page, at the pace the client
+ * reads it.
+ * <p>
+ * Search, stats, change streams, import, export and batch updates and deletes
+ * stay with the servlet stack.
+ */
+@RestController
+@RequestMapping("/api/comments")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class CommentReactiveController {
+
+    private final CommentReactiveService service;
+
+    public CommentReactiveController(CommentReactiveService service) {
+        this.service = service;
+    }
+
+    @GetMapping
+    public Mono<PagedModel<CommentResponse>> getAllComments(@PageableDefault Pageable pageable,
+                                                            @RequestParam(required = false) Integer preview) {
+        return service.getAllComments(pageable, preview).map(PagedModel::new);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<CommentResponse> streamComments(@RequestParam(required = false) Integer preview) {
+        return service.streamComments(preview);
+    }
+
+    @GetMapping(params = {"after", "!email"})
+    public Mono<CommentSlice> getCommentsAfter(@RequestParam String after,
+                                               @RequestParam(defaultValue = "20") int size,
+                                               @RequestParam(required = false) Integer preview) {
+        return service.getCommentsAfter(after, size, preview);
+    }
+
+    @GetMapping(params = "email")
+    public Mono<CommentSlice> getCommentsByEmail(@RequestParam String email,
+                                                 @RequestParam(required = false) String after,
+                                                 @RequestParam(defaultValue = "20") int size,
+                                                 @RequestParam(required = false) Integer preview) {
+        return service.getCommentsByEmail(email, after, size, preview);
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<CommentResponse>> getCommentById(@PathVariable Long id, ServerWebExchange exchange) {
+        // a revalidation only needs the version, so the body is not read unless it changed
+        if (exchange.getRequest().getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH) != null) {
+            return service.getCommentVersion(id).flatMap(version -> exchange.checkNotModified(CommentETag.of(id, version))
+                    ? Mono.empty()
+                    : read(id));
+        }
+        return read(id);
+    }
+
+    // Prefer: respond-async is ignored, as RFC 7240 allows; write-behind belongs to the servlet stack
+    @PostMapping
+    public Mono<ResponseEntity<CommentResponse>> createComment(@RequestBody CommentRequest request) {
+        return service.createComment(request)
+                .map(response -> ResponseEntity.status(HttpStatus.CREATED).eTag(CommentETag.of(response)).body(response));
+    }
+
+    @PostMapping("/batch")
+    public Mono<List<CommentBatchResult>> createComments(@RequestBody List<CommentRequest> requests) {
+        return service.createComments(requests);
+    }
+
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<CommentResponse>> updateComment(@PathVariable Long id,
+                                                               @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                               @RequestBody CommentRequest request) {
+        return ifMatch(id, ifMatch, request.version(), version -> service.updateComment(
+                id, new CommentRequest(request.name(), request.email(), request.body(), version)))
+                .map(response -> ResponseEntity.ok().eTag(CommentETag.of(response)).body(response));
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> deleteComment(@PathVariable Long id,
+                                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return ifMatch(id, ifMatch, null, version -> service.deleteComment(id, version))
+                .then(Mono.just(ResponseEntity.noContent().build()));
+    }
+
+    private Mono<ResponseEntity<CommentResponse>> read(Long id) {
+        return service.getCommentById(id).map(response -> ResponseEntity.ok().eTag(CommentETag.of(response)).body(response));
+    }
+
+    // If-Match takes precedence over a version in the body, and its mismatch is a failed precondition (412);
+    // a missing comment matches no tag, not even *, so that is a failed precondition too (RFC 9110, 13.1.1)
+    private static <T> Mono<T> ifMatch(Long id, String ifMatch, Integer bodyVersion, Function<Integer, Mono<T>> write) {
+        if (ifMatch == null) {
+            return write.apply(bodyVersion);
+        }
+        return Mono.defer(() -> write.apply(CommentETag.expectedVersion(id, ifMatch)))
+                .onErrorMap(e -> e instanceof CommentVersionConflictException || e instanceof CommentNotFoundException,
+                        e -> new CommentPreconditionFailedException(id, ifMatch));
+    }
+
+}
@@ -0,0 +1,184 @@
+package com.example.testing.comment;
+
+import io.r2dbc.spi.Readable;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mapping.PropertyReferenceException;
+import org.springframework.data.util.TypeInformation;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Comment queries of the reactive stack, written as SQL over R2DBC the way
+ * {@link CommentJdbcRepository} writes them over JDBC. Rows are emitted as the
+ * driver decodes them, so a subscriber that requests slowly also slows down how
+ * fast rows are fetched.
+ */
+@Repository
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class CommentReactiveRepository {
+
+    private static final String PREVIEW_COLUMNS = "id, name, email, SUBSTRING(body, 1, :bodyLength) AS body, version";
+    private static final String FIND_BY_ID_SQL = "SELECT id, name, email, body, version FROM comment WHERE id = :id";
+    private static final String FIND_VERSION_SQL = "SELECT version FROM comment WHERE id = :id";
+    private static final String COUNT_SQL = "SELECT COUNT(*) FROM comment";
+    private static final String FIND_PAGE_SQL = "SELECT " + PREVIEW_COLUMNS + " FROM comment ORDER BY %s LIMIT :limit OFFSET :offset";
+    private static final String FIND_AFTER_SQL = "SELECT " + PREVIEW_COLUMNS + " FROM comment WHERE id > :id ORDER BY id LIMIT :limit";
+    private static final String STREAM_SQL = "SELECT " + PREVIEW_COLUMNS + " FROM comment ORDER BY id";
+    private static final String FIND_BY_EMAIL_AFTER_SQL = "SELECT " + PREVIEW_COLUMNS
+            + " FROM comment WHERE email = :email AND id > :id ORDER BY id LIMIT :limit";
+    private static final String INSERT_SQL = "INSERT INTO comment (id, name, email, body, version) VALUES (:id, :name, :email, :body, 0)";
+    private static final String UPDATE_SQL = "UPDATE comment SET name = :name, email = :email, body = :body, version = version + 1 "
+            + "WHERE id = :id AND version = COALESCE(:version, version)";
+    private static final String DELETE_SQL = "DELETE FROM comment WHERE id = :id AND version = COALESCE(:version, version)";
+    private static final String INSERT_CHANGE_SQL = "INSERT INTO comment_change (type, comment_id, payload) "
+            + "VALUES (:type, :commentId, :payload)";
+
+    // sortable properties and their columns; anything else is rejected like an unknown JPA property
+    private static final Map<String, String> COLUMNS = Map.of(
+            "id", "id", "name", "name", "email", "email", "body", "body", "version", "version");
+
+    private final DatabaseClient databaseClient;
+
+    public CommentReactiveRepository(DatabaseClient commentDatabaseClient) {
+        this.databaseClient = commentDatabaseClient;
+    }
+
+    public Mono<CommentResponse> findResponseById(Long id) {
+        return databaseClient.sql(FIND_BY_ID_SQL)
+                .bind("id", id)
+                .map(CommentReactiveRepository::response)
+                .one();
+    }
+
+    public Mono<Integer> findVersionById(Long id) {
+        return databaseClient.sql(FIND_VERSION_SQL)
+                .bind("id", id)
+                .map(row -> row.get("version", Integer.class))
+                .one();
+    }
+
+    public Mono<Boolean> existsById(Long id) {
+        return findVersionById(id).hasElement();
+    }
+
+    public Mono<Long> count() {
+        return databaseClient.sql(COUNT_SQL)
+                .map(row -> row.get(0, Long.class))
+                .one();
+    }
+
+    public Flux<CommentResponse> findAllResponses(int bodyLength, Pageable pageable) {
+        return databaseClient.sql(FIND_PAGE_SQL.formatted(orderBy(pageable.getSort())))
+                .bind("bodyLength", bodyLength)
+                .bind("limit", pageable.isPaged() ? pageable.getPageSize() : Integer.MAX_VALUE)
+                .bind("offset", pageable.isPaged() ? pageable.getOffset() : 0L)
+                .map(CommentReactiveRepository::response)
+                .all();
+    }
+
+    public Flux<CommentResponse> findResponsesByIdGreaterThan(Long id, int bodyLength, int limit) {
+        return databaseClient.sql(FIND_AFTER_SQL)
+                .bind("bodyLength", bodyLength)
+                .bind("id", id)
+                .bind("limit", limit)
+                .map(CommentReactiveRepository::response)
+                .all();
+    }
+
+    // every comment in id order; the subscriber's demand decides how fast rows are read
+    public Flux<CommentResponse> streamAll(int bodyLength) {
+        return databaseClient.sql(STREAM_SQL)
+                .bind("bodyLength", bodyLength)
+                .map(CommentReactiveRepository::response)
+                .all();
+    }
+
+    public Flux<CommentResponse> findResponsesByEmailAndIdGreaterThan(String email, Long id, int bodyLength, int limit) {
+        return databaseClient.sql(FIND_BY_EMAIL_AFTER_SQL)
+                .bind("bodyLength", bodyLength)
+                .bind("email", email)
+                .bind("id", id)
+                .bind("limit", limit)
+                .map(CommentReactiveRepository::response)
+                .all();
+    }
+
+    public Mono<Long> insert(CommentResponse comment) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(INSERT_SQL).bind("id", comment.id());
+        spec = bind(spec, "name", comment.name(), String.class);
+        spec = bind(spec, "email", comment.email(), String.class);
+        spec = bind(spec, "body", comment.body(), String.class);
+        return spec.fetch()
+                .rowsUpdated();
+    }
+
+    /**
+     * Returns the matched row count; zero means the comment is either missing or
+     * no longer at the expected version.
+     */
+    public Mono<Long> updateById(Long id, String name, String email, String body, Integer version) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(UPDATE_SQL).bind("id", id);
+        spec = bind(spec, "name", name, String.class);
+        spec = bind(spec, "email", email, String.class);
+        spec = bind(spec, "body", body, String.class);
+        spec = bind(spec, "version", version, Integer.class);
+        return spec.fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Long> deleteCommentById(Long id, Integer version) {
+        return bind(databaseClient.sql(DELETE_SQL).bind("id", id), "version", version, Integer.class)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    // the outbox row of a change, written in the caller's transaction like CommentJdbcOutbox writes it
+    public Mono<Long> insertChange(CommentChange.Type type, Long commentId, String payload) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(INSERT_CHANGE_SQL)
+                .bind("type", type.name())
+                .bind("commentId", commentId);
+        return bind(spec, "payload", payload, String.class)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bind(DatabaseClient.GenericExecuteSpec spec, String name,
+                                                          Object value, Class<?> type) {
+        return value == null ? spec.bindNull(name, type) : spec.bind(name, value);
+    }
+
+    // ties are broken by id, so pages never overlap
+    private static String orderBy(Sort sort) {
+        List<String> orders = sort.stream()
+                .map(order -> {
+                    String column = COLUMNS.get(order.getProperty());
+                    if (column == null) {
+                        throw new PropertyReferenceException(order.getProperty(), TypeInformation.of(Comment.class), List.of());
+                    }
+                    return (order.isIgnoreCase() ? "LOWER(" + column + ")" : column) + (order.isAscending() ? " ASC" : " DESC");
+                })
+                .collect(Collectors.toList());
+        if (sort.getOrderFor("id") == null) {
+            orders.add("id ASC");
+        }
+        return String.join(", ", orders);
+    }
+
+    private static CommentResponse response(Readable row) {
+        return new CommentResponse(
+                row.get("id", Long.class),
+                row.get("name", String.class),
+                row.get("email", String.class),
+                row.get("body", String.class),
+                row.get("version", Integer.class));
+    }
+
+}
@@ -0,0 +1,228 @@
+package com.example.testing.comment;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.example.testing.comment.CommentService.MAX_CURSOR_PAGE_SIZE;
+import static com.example.testing.comment.CommentService.bodyLength;
+
+/**
+ * {@link CommentService} for the reactive stack: the same rules and errors, with
+ * every database call made over R2DBC so no request holds a thread while it
+ * waits. Version checks happen in the {@code UPDATE} and {@code DELETE}
+ * statements themselves, as in the servlet stack; a miss is told apart from a
+ * conflict by a second query in the same transaction.
+ * <p>
+ * Ids still come from the {@link CommentIdAllocator}, which reserves a block over
+ * JDBC once every {@code comments.ids.block-size} ids, so it is called on the
+ * bounded elastic scheduler.
+ * <p>
+ * No {@link CommentChangeEvent} is published here, as its listeners write over
+ * JDBC: every write instead adds its {@code comment_change} outbox row itself,
+ * in the same transaction, so change stream subscribers see it and servlet
+ * instances refresh their {@link CommentCache} from it. The stats tables of
+ * {@link CommentJdbcStatsIndex} are kept in that transaction too, by
+ * {@link CommentReactiveStats}.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class CommentReactiveService {
+
+    private final CommentMapper mapper;
+    private final CommentReactiveRepository repository;
+    private final CommentReactiveStats stats;
+    private final ObjectMapper objectMapper;
+    private final CommentIdAllocator idAllocator;
+    private final CommentMetrics metrics;
+    private final TransactionalOperator transactions;
+    private final int chunkSize;
+
+    private static final Logger logger = LoggerFactory.getLogger(CommentReactiveService.class);
+
+    public CommentReactiveService(CommentMapper mapper,
+                                  CommentReactiveRepository repository,
+                                  CommentReactiveStats stats,
+                                  ObjectMapper objectMapper,
+                                  CommentIdAllocator idAllocator,
+                                  CommentMetrics metrics,
+                                  TransactionalOperator commentTransactionalOperator,
+                                  CommentProperties properties) {
+        this.mapper = mapper;
+        this.repository = repository;
+        this.stats = stats;
+        this.objectMapper = objectMapper;
+        this.idAllocator = idAllocator;
+        this.metrics = metrics;
+        this.transactions = commentTransactionalOperator;
+        this.chunkSize = properties.batch().chunkSize();
+    }
+
+    public Mono<CommentResponse> getCommentById(Long commentId) {
+        return repository.findResponseById(commentId)
+                .switchIfEmpty(Mono.error(() -> notFound(commentId)));
+    }
+
+    public Mono<Integer> getCommentVersion(Long commentId) {
+        return repository.findVersionById(commentId)
+                .switchIfEmpty(Mono.error(() -> notFound(commentId)));
+    }
+
+    public Mono<Page<CommentResponse>> getAllComments(Pageable pageable, Integer preview) {
+        return Mono.zip(repository.findAllResponses(bodyLength(preview), pageable).collectList(), repository.count())
+                .map(page -> {
+                    metrics.pageRows(page.getT1().size());
+                    return new PageImpl<>(page.getT1(), pageable, page.getT2());
+                });
+    }
+
+    public Flux<CommentResponse> streamComments(Integer preview) {
+        return repository.streamAll(bodyLength(preview));
+    }
+
+    public Mono<CommentSlice> getCommentsAfter(String cursor, int size, Integer preview) {
+        return Mono.fromCallable(() -> CommentCursor.decode(cursor))
+                .flatMap(position -> slice(repository.findResponsesByIdGreaterThan(
+                        position.lastId(), bodyLength(preview), pageSize(size) + 1), size));
+    }
+
+    public Mono<CommentSlice> getCommentsByEmail(String email, String cursor, int size, Integer preview) {
+        return Mono.fromCallable(() -> CommentCursor.decode(cursor))
+                .flatMap(position -> slice(repository.findResponsesByEmailAndIdGreaterThan(
+                        email, position.lastId(), bodyLength(preview), pageSize(size) + 1), size));
+    }
+
+    public Mono<CommentResponse> createComment(CommentRequest request) {
+        return nextIds(1)
+                .map(ids -> mapper.toResponse(ids.get(0), request, 0))
+                .flatMap(comment -> insert(comment)
+                        .then(stats.apply(List.of(comment.id()), Map.of()))
+                        .thenReturn(comment)
+                        .as(transactions::transactional))
+                .doOnNext(comment -> logger.info("Successfully created comment with id {}", comment.id()));
+    }
+
+    // each chunk commits on its own, as in CommentBatchService
+    public Mono<List<CommentBatchResult>> createComments(List<CommentRequest> requests) {
+        logger.info("Creating {} comments in batch", requests.size());
+        return Flux.fromIterable(requests)
+                .buffer(chunkSize)
+                .concatMap(chunk -> nextIds(chunk.size()).flatMapMany(ids -> {
+                    List<CommentResponse> created = new ArrayList<>(chunk.size());
+                    for (int i = 0; i < chunk.size(); i++) {
+                        created.add(mapper.toResponse(ids.get(i), chunk.get(i), 0));
+                    }
+                    return Flux.fromIterable(created)
+                            .concatMap(this::insert)
+                            .then(stats.apply(ids, Map.of()))
+                            .as(transactions::transactional)
+                            .thenMany(Flux.fromIterable(ids));
+                }))
+                .index((index, id) -> new CommentBatchResult(index.intValue(), id, CommentBatchResult.Status.CREATED, 0))
+                .collectList();
+    }
+
+    public Mono<CommentResponse> updateComment(Long commentId, CommentRequest request) {
+        Mono<CommentResponse> update = stats.lock(List.of(commentId)).flatMap(replaced -> repository
+                .updateById(commentId, request.name(), request.email(), request.body(), request.version())
+                .flatMap(updated -> {
+                    if (updated == 0) {
+                        return notFoundOrConflict(commentId, request.version());
+                    }
+                    // the row stays locked until commit, so the version read back is the one this update wrote
+                    return request.version() != null
+                            ? Mono.just(request.version() + 1)
+                            : repository.findVersionById(commentId);
+                })
+                .map(version -> mapper.toResponse(commentId, request, version))
+                .flatMap(comment -> recordChange(CommentChange.Type.UPDATED, commentId, comment)
+                        .then(stats.apply(List.of(commentId), replaced))
+                        .thenReturn(comment)));
+        return update.as(transactions::transactional)
+                .doOnNext(comment -> logger.info("Successfully updated comment with id {}", commentId));
+    }
+
+    public Mono<Void> deleteComment(Long commentId, Integer expectedVersion) {
+        return stats.lock(List.of(commentId)).flatMap(replaced -> repository
+                .deleteCommentById(commentId, expectedVersion)
+                .flatMap(deleted -> deleted == 0
+                        ? notFoundOrConflict(commentId, expectedVersion)
+                        : recordChange(CommentChange.Type.DELETED, commentId, null)
+                                .then(stats.apply(List.of(commentId), replaced))
+                                .thenReturn(deleted)))
+                .as(transactions::transactional)
+                .doOnNext(deleted -> logger.info("Successfully deleted comment with id {}", commentId))
+                .then();
+    }
+
+    private Mono<Long> insert(CommentResponse comment) {
+        return repository.insert(comment).then(recordChange(CommentChange.Type.CREATED, comment.id(), comment));
+    }
+
+    private Mono<Long> recordChange(CommentChange.Type type, Long commentId, CommentResponse comment) {
+        return Mono.defer(() -> repository.insertChange(type, commentId, comment == null ? null : json(comment)));
+    }
+
+    private String json(CommentResponse comment) {
+        try {
+            return objectMapper.writeValueAsString(comment);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Mono<List<Long>> nextIds(int count) {
+        return Mono.fromCallable(() -> idAllocator.next(count)).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private Mono<CommentSlice> slice(Flux<CommentResponse> rows, int size) {
+        int pageSize = pageSize(size);
+        return rows.collectList().map(content -> {
+            boolean hasNext = content.size() > pageSize;
+            List<CommentResponse> page = hasNext ? content.subList(0, pageSize) : content;
+            String nextCursor = hasNext ? new CommentCursor(page.get(pageSize - 1).id()).encode() : null;
+            metrics.pageRows(page.size());
+            return new CommentSlice(page, nextCursor, hasNext);
+        });
+    }
+
+    private <T> Mono<T> notFoundOrConflict(Long commentId, Integer expectedVersion) {
+        if (expectedVersion == null) {
+            return Mono.error(notFound(commentId));
+        }
+        return repository.existsById(commentId).flatMap(exists -> {
+            if (!exists) {
+                return Mono.error(notFound(commentId));
+            }
+            logger.warn("Comment with id {} is no longer at version {}", commentId, expectedVersion);
+            metrics.versionConflict();
+            return Mono.error(new CommentVersionConflictException(commentId, expectedVersion));
+        });
+    }
+
+    private static int pageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+    }
+
+    private CommentNotFoundException notFound(Long commentId) {
+        logger.error("Comment not found with id {}", commentId);
+        metrics.notFound();
+        return new CommentNotFoundException(commentId);
+    }
+
+}
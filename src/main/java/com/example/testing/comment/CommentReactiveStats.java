@@ -0,0 +1,103 @@
+package com.example.testing.comment;
+
+import com.example.testing.comment.CommentStatsDelta.Contribution;
+import com.example.testing.comment.CommentStatsDelta.Totals;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Keeps the {@link CommentJdbcStatsIndex} tables current for writes of the
+ * reactive stack, with the same statements over R2DBC. Callers run both steps in
+ * the transaction of the write: {@link #lock} before an update or delete, for
+ * what it replaces, and {@link #apply} after it.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class CommentReactiveStats {
+
+    private static final String LOCK_SQL = "SELECT id, email, CHAR_LENGTH(body) AS body_length FROM comment "
+            + "WHERE id IN (:ids) ORDER BY id FOR UPDATE";
+    private static final String READ_SQL = "SELECT id, email, CHAR_LENGTH(body) AS body_length FROM comment WHERE id IN (:ids)";
+    private static final String AUTHOR_UPSERT_SQL = "INSERT INTO comment_author_stats (email, comments, body_length) "
+            + "VALUES (:email, :comments, :bodyLength) ON DUPLICATE KEY UPDATE comments = comments + VALUES(comments), "
+            + "body_length = body_length + VALUES(body_length)";
+    private static final String AUTHOR_COUNT_SQL = "SELECT comments FROM comment_author_stats WHERE email = :email";
+    private static final String AUTHOR_DELETE_SQL = "DELETE FROM comment_author_stats WHERE email = :email AND comments = 0";
+    private static final String SLOT_UPSERT_SQL = "INSERT INTO comment_stats (slot, comments, body_length, authors) "
+            + "VALUES (:slot, :comments, :bodyLength, :authors) ON DUPLICATE KEY UPDATE comments = comments + VALUES(comments), "
+            + "body_length = body_length + VALUES(body_length), authors = authors + VALUES(authors)";
+
+    private final DatabaseClient databaseClient;
+
+    public CommentReactiveStats(DatabaseClient commentDatabaseClient) {
+        this.databaseClient = commentDatabaseClient;
+    }
+
+    // what the comments contribute now, with their rows locked until the transaction ends
+    Mono<Map<Long, Contribution>> lock(Collection<Long> commentIds) {
+        return read(LOCK_SQL, commentIds);
+    }
+
+    Mono<Void> apply(Collection<Long> changed, Map<Long, Contribution> replaced) {
+        if (changed.isEmpty()) {
+            return Mono.empty();
+        }
+        return read(READ_SQL, changed).flatMap(written -> {
+            CommentStatsDelta delta = new CommentStatsDelta(changed, replaced, written);
+            return Flux.fromIterable(delta.authors().entrySet())
+                    .concatMap(author -> applyAuthor(author.getKey(), author.getValue()))
+                    .reduce(0L, Long::sum)
+                    .flatMap(authorsAdded -> applyTotals(delta.overall(), authorsAdded));
+        });
+    }
+
+    private Mono<Long> applyAuthor(String email, Totals delta) {
+        return databaseClient.sql(AUTHOR_UPSERT_SQL)
+                .bind("email", email)
+                .bind("comments", delta.comments())
+                .bind("bodyLength", delta.bodyLength())
+                .then()
+                .then(databaseClient.sql(AUTHOR_COUNT_SQL)
+                        .bind("email", email)
+                        .map(row -> row.get(0, Long.class))
+                        .one())
+                .flatMap(count -> {
+                    Mono<Void> cleanup = count == 0
+                            ? databaseClient.sql(AUTHOR_DELETE_SQL).bind("email", email).then()
+                            : Mono.empty();
+                    return cleanup.thenReturn((long) CommentStatsDelta.authorsAdded(delta, count));
+                });
+    }
+
+    private Mono<Void> applyTotals(Totals overall, long authorsAdded) {
+        if (overall.equals(Totals.NONE) && authorsAdded == 0) {
+            return Mono.empty();
+        }
+        return databaseClient.sql(SLOT_UPSERT_SQL)
+                .bind("slot", ThreadLocalRandom.current().nextInt(CommentJdbcStatsIndex.SLOTS))
+                .bind("comments", overall.comments())
+                .bind("bodyLength", overall.bodyLength())
+                .bind("authors", authorsAdded)
+                .then();
+    }
+
+    private Mono<Map<Long, Contribution>> read(String sql, Collection<Long> ids) {
+        return databaseClient.sql(sql)
+                .bind("ids", ids)
+                .map(row -> {
+                    Long bodyLength = row.get("body_length", Long.class);
+                    return Map.entry(row.get("id", Long.class),
+                            new Contribution(row.get("email", String.class), bodyLength == null ? 0 : bodyLength));
+                })
+                .all()
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue);
+    }
+
+}
@@ -1,6 +1,87 @@
 package com.example.testing.comment;
 
-import org.springframework.data.jpa.repository.JpaRepository;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.ListCrudRepository;
+import org.springframework.data.repository.ListPagingAndSortingRepository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+
+// hinted reads are served from Hibernate's query cache until the comment table is next written;
+// only the CRUD and paging contract, which the in-memory engine implements in full as well
+public interface CommentRepository extends ListCrudRepository<Comment, Long>, ListPagingAndSortingRepository<Comment, Long> {
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Override
+    long count();
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Override
+    Page<Comment> findAll(Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Query("""
+            select new com.example.testing.comment.CommentResponse(c.id, c.name, c.email, c.body, c.version)
+            from Comment c
+            where c.id = :id
+            """)
+    Optional<CommentResponse> findResponseById(Long id);
+
+    // not cached: the ids of a lookup batch rarely come together twice
+    @Query("""
+            select new com.example.testing.comment.CommentResponse(c.id, c.name, c.email, c.body, c.version)
+            from Comment c
+            where c.id in :ids
+            """)
+    List<CommentResponse> findResponsesByIdIn(Collection<Long> ids);
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Query("select c.version from Comment c where c.id = :id")
+    Optional<Integer> findVersionById(Long id);
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Query(value = """
+            select new com.example.testing.comment.CommentResponse(c.id, c.name, c.email, substring(c.body, 1, :bodyLength), c.version)
+            from Comment c
+            """,
+            countQuery = "select count(c) from Comment c")
+    Page<CommentResponse> findAllResponses(int bodyLength, Pageable pageable);
+
+    // not cached: cursor walks and index rebuilds read each slice once
+    @Query("""
+            select new com.example.testing.comment.CommentResponse(c.id, c.name, c.email, substring(c.body, 1, :bodyLength), c.version)
+            from Comment c
+            where c.id > :id
+            """)
+    Slice<CommentResponse> findResponsesByIdGreaterThan(Long id, int bodyLength, Pageable pageable);
+
+    // walks idx_comment_email_id from the cursor, so each page costs the same however deep it is
+    @Query("""
+            select new com.example.testing.comment.CommentResponse(c.id, c.name, c.email, substring(c.body, 1, :bodyLength), c.version)
+            from Comment c
+            where c.email = :email and c.id > :id
+            """)
+    Slice<CommentResponse> findResponsesByEmailAndIdGreaterThan(String email, Long id, int bodyLength, Pageable pageable);
+
+    @Modifying
+    @Query("""
+            update Comment c
+            set c.name = :name, c.email = :email, c.body = :body, c.version = c.version + 1
+            where c.id = :id and c.version = coalesce(:version, c.version)
+            """)
+    int updateById(Long id, String name, String email, String body, Integer version);
+
+    @Modifying
+    @Query("delete from Comment c where c.id = :id and c.version = coalesce(:version, c.version)")
+    int deleteCommentById(Long id, Integer version);
 
-public interface CommentRepository extends JpaRepository<Comment, Long> {
 }
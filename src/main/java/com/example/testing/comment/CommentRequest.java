@@ -3,5 +3,12 @@ package com.example.testing.comment;
 public record CommentRequest(
         String name,
         String email,
-        String body
-) {}
+        String body,
+        Integer version
+) {
+
+    public CommentRequest(String name, String email, String body) {
+        this(name, email, body, null);
+    }
+
+}
@@ -4,5 +4,6 @@ public record CommentResponse(
         Long id,
         String name,
         String email,
-        String body
+        String body,
+        Integer version
 ) {}
@@ -0,0 +1,270 @@
+package com.example.testing.comment;
+
+import io.micrometer.observation.annotation.Observed;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.util.QueryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Lucene index over comment name, email and body, memory-mapped so it lives in
+ * the page cache rather than the heap. It is kept in a temporary directory that
+ * is deleted on close, so every instance and application context in a JVM has
+ * its own index and write lock; {@code comments.search.directory} fixes the
+ * directory instead, for one instance at a time. It is rebuilt from the database in the background on startup, searches
+ * return partial results until that finishes, and then follows
+ * {@link CommentChangeEvent}s; searches see changes as soon as the next searcher
+ * refresh picks them up.
+ */
+@Component
+public class CommentSearchIndex implements SmartInitializingSingleton, AutoCloseable {
+
+    private static final String ID = "id";
+    private static final String NAME = "name";
+    private static final String EMAIL = "email";
+    private static final String BODY = "body";
+    private static final String VERSION = "version";
+    private static final Map<String, Float> FIELD_BOOSTS = Map.of(NAME, 2f, EMAIL, 1.5f, BODY, 1f);
+
+    private static final int REBUILD_PAGE_SIZE = 1000;
+    // deep pages get more expensive with every page, so ranking stops here
+    private static final int MAX_RESULT_WINDOW = 10_000;
+
+    private final CommentRepository repository;
+    private final Analyzer analyzer = new StandardAnalyzer();
+    private final QueryBuilder queryBuilder = new QueryBuilder(analyzer);
+    private final Path temporaryDirectory;
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    // while a rebuild runs, events record the ids they indexed so the rebuild does not overwrite them
+    // with rows it read before the change; the lock keeps that check and the write together
+    private final ReentrantLock changeLock = new ReentrantLock();
+    private volatile Set<Long> changedDuringRebuild;
+    private Thread rebuilder;
+
+    private static final Logger logger = LoggerFactory.getLogger(CommentSearchIndex.class);
+
+    public CommentSearchIndex(CommentRepository repository, CommentProperties properties) throws IOException {
+        this.repository = repository;
+        Path configured = properties.search().directory();
+        this.temporaryDirectory = configured == null ? Files.createTempDirectory("comment-search") : null;
+        MMapDirectory directory = new MMapDirectory(
+                configured == null ? temporaryDirectory : Files.createDirectories(configured));
+        IndexWriterConfig config = new IndexWriterConfig(analyzer).setOpenMode(IndexWriterConfig.OpenMode.CREATE);
+        this.writer = new IndexWriter(directory, config);
+        this.searcherManager = new SearcherManager(writer, null);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuilder = new Thread(() -> {
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                logger.error("Could not rebuild the search index", e);
+            }
+        }, "comment-search-rebuild");
+        rebuilder.setDaemon(true);
+        rebuilder.start();
+    }
+
+    public void rebuild() {
+        rebuildLock.lock();
+        long startNanos = System.nanoTime();
+        try {
+            writer.deleteAll();
+            Set<Long> changed = ConcurrentHashMap.newKeySet();
+            changedDuringRebuild = changed;
+            long lastId = 0;
+            Slice<CommentResponse> slice;
+            do {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                slice = repository.findResponsesByIdGreaterThan(
+                        lastId, CommentService.FULL_BODY, PageRequest.of(0, REBUILD_PAGE_SIZE, Sort.by("id")));
+                changeLock.lock();
+                try {
+                    for (CommentResponse comment : slice) {
+                        if (!changed.contains(comment.id())) {
+                            writer.updateDocument(idTerm(comment.id()), document(comment));
+                        }
+                        lastId = comment.id();
+                    }
+                } finally {
+                    changeLock.unlock();
+                }
+            } while (slice.hasNext());
+            searcherManager.maybeRefreshBlocking();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            changedDuringRebuild = null;
+            rebuildLock.unlock();
+        }
+        logger.info("Indexed {} comments for search in {} ms",
+                writer.getDocStats().numDocs, (System.nanoTime() - startNanos) / 1_000_000);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCommentChange(CommentChangeEvent event) {
+        // the change is committed, so a rebuild that starts later reads it anyway
+        Set<Long> changed = changedDuringRebuild;
+        if (changed == null) {
+            index(event);
+            return;
+        }
+        changeLock.lock();
+        try {
+            event.saved().forEach(comment -> changed.add(comment.id()));
+            changed.addAll(event.deletedIds());
+            index(event);
+        } finally {
+            changeLock.unlock();
+        }
+    }
+
+    private void index(CommentChangeEvent event) {
+        try {
+            for (CommentResponse comment : event.saved()) {
+                writer.updateDocument(idTerm(comment.id()), document(comment));
+            }
+            for (Long id : event.deletedIds()) {
+                writer.deleteDocuments(idTerm(id));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Observed(name = "comments.search")
+    public Page<CommentResponse> search(String text, Pageable pageable) {
+        Query query = query(text);
+        if (query == null) {
+            return Page.empty(pageable);
+        }
+
+        int window = (int) Math.min(pageable.getOffset() + pageable.getPageSize(), MAX_RESULT_WINDOW);
+        try {
+            searcherManager.maybeRefresh();
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                TopDocs topDocs = searcher.search(query, Math.max(window, 1));
+                StoredFields storedFields = searcher.storedFields();
+                List<CommentResponse> content = new ArrayList<>(pageable.getPageSize());
+                for (int i = (int) pageable.getOffset(); i < topDocs.scoreDocs.length; i++) {
+                    content.add(response(storedFields.document(topDocs.scoreDocs[i].doc)));
+                }
+                return new PageImpl<>(content, pageable, topDocs.totalHits.value);
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (rebuilder != null) {
+            rebuilder.interrupt();
+            try {
+                rebuilder.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        searcherManager.close();
+        writer.close();
+        if (temporaryDirectory != null) {
+            FileSystemUtils.deleteRecursively(temporaryDirectory);
+        }
+    }
+
+    // every analyzed term is optional, so comments matching more of them rank higher
+    private Query query(String text) {
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        boolean hasClauses = false;
+        for (Map.Entry<String, Float> field : FIELD_BOOSTS.entrySet()) {
+            Query fieldQuery = queryBuilder.createBooleanQuery(field.getKey(), text, BooleanClause.Occur.SHOULD);
+            if (fieldQuery != null) {
+                builder.add(new BoostQuery(fieldQuery, field.getValue()), BooleanClause.Occur.SHOULD);
+                hasClauses = true;
+            }
+        }
+        return hasClauses ? builder.build() : null;
+    }
+
+    private static Term idTerm(Long id) {
+        return new Term(ID, String.valueOf(id));
+    }
+
+    private static Document document(CommentResponse comment) {
+        Document document = new Document();
+        document.add(new StringField(ID, String.valueOf(comment.id()), Field.Store.YES));
+        document.add(new TextField(NAME, nullToEmpty(comment.name()), Field.Store.YES));
+        document.add(new TextField(EMAIL, nullToEmpty(comment.email()), Field.Store.YES));
+        document.add(new TextField(BODY, nullToEmpty(comment.body()), Field.Store.YES));
+        if (comment.version() != null) {
+            document.add(new StoredField(VERSION, comment.version()));
+        }
+        return document;
+    }
+
+    private static CommentResponse response(Document document) {
+        IndexableField version = document.getField(VERSION);
+        return new CommentResponse(
+                Long.valueOf(document.get(ID)),
+                document.get(NAME),
+                document.get(EMAIL),
+                document.get(BODY),
+                version == null ? null : version.numericValue().intValue()
+        );
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+}
@@ -1,63 +1,152 @@
 package com.example.testing.comment;
 
+import io.micrometer.observation.annotation.Observed;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
 
 @Service
 @RequiredArgsConstructor
+@Observed(name = "comments.service")
 public class CommentService {
 
     private final CommentMapper mapper;
     private final CommentRepository repository;
+    private final CommentCache cache;
+    private final CommentLookupBatcher lookups;
+    private final CommentStatsIndex stats;
+    private final CommentMetrics metrics;
+    private final ApplicationEventPublisher events;
+
+    static final int MAX_CURSOR_PAGE_SIZE = 2000;
+    // body is a MySQL TEXT column, which never holds more than 65,535 characters
+    static final int FULL_BODY = 65_535;
 
     private static final Logger logger = LoggerFactory.getLogger(CommentService.class);
 
-    private Comment findCommentById(Long commentId) {
-        return repository.findById(commentId).orElseThrow(() -> {
-            logger.error("Comment not found with id {}", commentId);
-            return new CommentNotFoundException(commentId);
+    // not transactional: a connection held while waiting on a lookup batch would cap batches at the pool size
+    public CommentResponse getCommentById(Long commentId) {
+        return cache.get(commentId).orElseGet(() -> {
+            CommentResponse response = lookups.find(commentId).orElseThrow(() -> notFound(commentId));
+            cache.put(response);
+            return response;
         });
     }
 
-    public CommentResponse getCommentById(Long commentId) {
-        return mapper.toResponse(findCommentById(commentId));
+    // answers conditional requests without reading the body
+    @Transactional(readOnly = true)
+    public int getCommentVersion(Long commentId) {
+        return cache.get(commentId)
+                .map(CommentResponse::version)
+                .or(() -> repository.findVersionById(commentId))
+                .orElseThrow(() -> notFound(commentId));
+    }
+
+    @Transactional(readOnly = true)
+    public Page<CommentResponse> getAllComments(Pageable pageable, Integer preview) {
+        Page<CommentResponse> page = repository.findAllResponses(bodyLength(preview), pageable);
+        metrics.pageRows(page.getNumberOfElements());
+        return page;
     }
 
-    public Page<CommentResponse> getAllComments(Pageable pageable) {
-        return repository.findAll(pageable).map(mapper::toResponse);
+    @Transactional(readOnly = true)
+    public CommentSlice getCommentsAfter(String cursor, int size, Integer preview) {
+        CommentCursor position = CommentCursor.decode(cursor);
+        Pageable pageable = PageRequest.of(0, Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE)), Sort.by("id"));
+
+        return slice(repository.findResponsesByIdGreaterThan(position.lastId(), bodyLength(preview), pageable));
+    }
+
+    @Transactional(readOnly = true)
+    public CommentSlice getCommentsByEmail(String email, String cursor, int size, Integer preview) {
+        CommentCursor position = CommentCursor.decode(cursor);
+        Pageable pageable = PageRequest.of(0, Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE)), Sort.by("id"));
+
+        return slice(repository.findResponsesByEmailAndIdGreaterThan(email, position.lastId(), bodyLength(preview), pageable));
     }
 
+    // one transaction with the outbox row that announces the new comment
+    @Transactional
     public CommentResponse createComment(CommentRequest request) {
         logger.info("Creating a new comment {}", request);
         Comment commentToBeSaved = mapper.toEntity(request);
         commentToBeSaved = repository.save(commentToBeSaved);
 
+        CommentResponse response = mapper.toResponse(commentToBeSaved);
+        events.publishEvent(CommentChangeEvent.saved(response));
+
         logger.info("Successfully created comment with id {}", commentToBeSaved.getId());
-        return mapper.toResponse(commentToBeSaved);
+        return response;
     }
 
+    @Transactional
     public CommentResponse updateComment(Long commentId, CommentRequest request) {
         logger.info("Updating comment with id {}", commentId);
-        Comment commentToBeUpdated = findCommentById(commentId);
-        // updating fields
-        commentToBeUpdated.setName(request.name());
-        commentToBeUpdated.setEmail(request.email());
-        commentToBeUpdated.setBody(request.body());
+        stats.beforeChange(List.of(commentId));
+        if (repository.updateById(commentId, request.name(), request.email(), request.body(), request.version()) == 0) {
+            throw notFoundOrConflict(commentId, request.version());
+        }
+
+        // the row stays locked until commit, so the version read back is the one this update wrote
+        Integer newVersion = request.version() != null
+                ? Integer.valueOf(request.version() + 1)
+                : repository.findVersionById(commentId).orElseThrow(() -> notFound(commentId));
+        CommentResponse response = mapper.toResponse(commentId, request, newVersion);
+        cache.put(response);
+        events.publishEvent(CommentChangeEvent.saved(response));
 
         logger.info("Successfully updated comment with id {}", commentId);
-        return mapper.toResponse(repository.save(commentToBeUpdated));
+        return response;
     }
 
-    public void deleteComment(Long commentId) {
+    @Transactional
+    public void deleteComment(Long commentId, Integer expectedVersion) {
         logger.info("Deleting comment with id {}", commentId);
-        Comment commentToBeDeleted = findCommentById(commentId);
+        stats.beforeChange(List.of(commentId));
+        if (repository.deleteCommentById(commentId, expectedVersion) == 0) {
+            throw notFoundOrConflict(commentId, expectedVersion);
+        }
 
-        repository.delete(commentToBeDeleted);
+        cache.markDeleted(commentId);
+        events.publishEvent(CommentChangeEvent.deleted(commentId));
         logger.info("Successfully deleted comment with id {}", commentId);
     }
 
+    private RuntimeException notFoundOrConflict(Long commentId, Integer expectedVersion) {
+        if (expectedVersion != null && repository.existsById(commentId)) {
+            logger.warn("Comment with id {} is no longer at version {}", commentId, expectedVersion);
+            metrics.versionConflict();
+            return new CommentVersionConflictException(commentId, expectedVersion);
+        }
+        return notFound(commentId);
+    }
+
+    private CommentSlice slice(Slice<CommentResponse> slice) {
+        String nextCursor = slice.hasNext()
+                ? new CommentCursor(slice.getContent().get(slice.getNumberOfElements() - 1).id()).encode()
+                : null;
+        metrics.pageRows(slice.getNumberOfElements());
+        return new CommentSlice(slice.getContent(), nextCursor, slice.hasNext());
+    }
+
+    static int bodyLength(Integer preview) {
+        return preview == null ? FULL_BODY : Math.max(preview, 0);
+    }
+
+    private CommentNotFoundException notFound(Long commentId) {
+        logger.error("Comment not found with id {}", commentId);
+        metrics.notFound();
+        return new CommentNotFoundException(commentId);
+    }
+
 }
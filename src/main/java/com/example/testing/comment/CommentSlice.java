@@ -0,0 +1,9 @@
+package com.example.testing.comment;
+
+import java.util.List;
+
+public record CommentSlice(
+        List<CommentResponse> content,
+        String nextCursor,
+        boolean hasNext
+) {}
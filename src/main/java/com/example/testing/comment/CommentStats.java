@@ -0,0 +1,8 @@
+package com.example.testing.comment;
+
+public record CommentStats(
+        long comments,
+        long authors,
+        long totalBodyLength,
+        double averageBodyLength
+) {}
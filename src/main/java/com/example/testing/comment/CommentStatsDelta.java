@@ -0,0 +1,84 @@
+package com.example.testing.comment;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * What one transaction changes in the stats tables, worked out from what its
+ * comments contributed before and after. Shared by the servlet stack's
+ * {@link CommentJdbcStatsIndex} and the reactive stack's
+ * {@link CommentReactiveStats}, so both keep the tables the same way.
+ */
+final class CommentStatsDelta {
+
+    // sorted, so concurrent transactions lock author rows in the same order
+    private final SortedMap<String, Totals> authors = new TreeMap<>();
+    private Totals overall = Totals.NONE;
+
+    CommentStatsDelta(Collection<Long> changed, Map<Long, Contribution> replaced, Map<Long, Contribution> written) {
+        for (Long id : changed) {
+            // a comment nothing was read for before it changed is new
+            Contribution before = replaced.getOrDefault(id, Contribution.NONE);
+            Contribution after = written.getOrDefault(id, Contribution.NONE);
+            overall = overall.plus(after.totals()).minus(before.totals());
+            if (before.email() != null) {
+                authors.merge(before.email(), before.totals().negate(), Totals::plus);
+            }
+            if (after.email() != null) {
+                authors.merge(after.email(), after.totals(), Totals::plus);
+            }
+        }
+        authors.values().removeIf(Totals.NONE::equals);
+    }
+
+    SortedMap<String, Totals> authors() {
+        return authors;
+    }
+
+    Totals overall() {
+        return overall;
+    }
+
+    /**
+     * How the number of authors moves once an author row holds {@code count}
+     * comments after {@code delta} was added: rows are deleted when they reach
+     * zero, so a count that is all this transaction's is a new author.
+     */
+    static int authorsAdded(Totals delta, long count) {
+        if (count == 0) {
+            return -1;
+        }
+        return count == delta.comments() ? 1 : 0;
+    }
+
+    record Contribution(String email, long bodyLength) {
+
+        static final Contribution NONE = new Contribution(null, -1);
+
+        Totals totals() {
+            return this == NONE ? Totals.NONE : new Totals(1, bodyLength);
+        }
+
+    }
+
+    record Totals(long comments, long bodyLength) {
+
+        static final Totals NONE = new Totals(0, 0);
+
+        Totals plus(Totals other) {
+            return new Totals(comments + other.comments, bodyLength + other.bodyLength);
+        }
+
+        Totals minus(Totals other) {
+            return plus(other.negate());
+        }
+
+        Totals negate() {
+            return new Totals(-comments, -bodyLength);
+        }
+
+    }
+
+}
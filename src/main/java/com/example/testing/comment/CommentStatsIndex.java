@@ -0,0 +1,27 @@
+package com.example.testing.comment;
+
+import java.util.Collection;
+
+/**
+ * Comment counts and body lengths, overall and per author email. The summary is
+ * kept up to date by the writes themselves, so answering costs the same however
+ * many comments there are.
+ */
+public interface CommentStatsIndex {
+
+    CommentStats stats();
+
+    CommentAuthorStats author(String email);
+
+    /**
+     * Called inside the writing transaction before comments are updated or
+     * deleted, for an index that has to read what the write replaces.
+     */
+    default void beforeChange(Collection<Long> commentIds) {
+    }
+
+    static double average(long length, long count) {
+        return count == 0 ? 0 : (double) length / count;
+    }
+
+}
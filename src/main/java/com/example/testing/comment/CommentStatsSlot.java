@@ -0,0 +1,29 @@
+package com.example.testing.comment;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// maps the overall totals CommentJdbcStatsIndex keeps, so it is created with the rest of the schema
+@Data
+@Entity
+@NoArgsConstructor
+@Table(name = "comment_stats")
+public class CommentStatsSlot {
+
+    @Id
+    private Integer slot;
+
+    @Column(nullable = false)
+    private Long comments;
+
+    @Column(nullable = false)
+    private Long bodyLength;
+
+    @Column(nullable = false)
+    private Long authors;
+
+}
@@ -0,0 +1,13 @@
+package com.example.testing.comment;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class CommentVersionConflictException extends RuntimeException {
+
+    public CommentVersionConflictException(Long id, Integer expectedVersion) {
+        super(String.format("Comment with id %s is no longer at version %s", id, expectedVersion));
+    }
+
+}
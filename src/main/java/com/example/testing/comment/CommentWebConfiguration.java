@@ -0,0 +1,60 @@
+package com.example.testing.comment;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.web.config.EnableSpringDataWebSupport;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import static org.springframework.data.web.config.EnableSpringDataWebSupport.PageSerializationMode.VIA_DTO;
+
+/**
+ * Pages are written as {@code content} plus a small {@code page} block instead of
+ * the full {@code PageImpl}, and every endpoint can also answer in CBOR or Smile
+ * when the client asks for it in {@code Accept}; JSON stays the default. The
+ * optional rate and concurrency limits run in front of every comment endpoint.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@EnableSpringDataWebSupport(pageSerializationMode = VIA_DTO)
+public class CommentWebConfiguration implements WebMvcConfigurer {
+
+    private static final String COMMENT_ENDPOINTS = "/api/comments/**";
+
+    private final ObjectProvider<CommentRateLimiter> rateLimiter;
+    private final ObjectProvider<CommentConcurrencyLimiter> concurrencyLimiter;
+
+    public CommentWebConfiguration(ObjectProvider<CommentRateLimiter> rateLimiter,
+                                   ObjectProvider<CommentConcurrencyLimiter> concurrencyLimiter) {
+        this.rateLimiter = rateLimiter;
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    // the cheap rate check goes first, so rejected clients never take a concurrency slot
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        rateLimiter.ifAvailable(limiter -> registry.addInterceptor(limiter).addPathPatterns(COMMENT_ENDPOINTS));
+        // streaming imports, exports and change streams are long by design and would read as overload
+        concurrencyLimiter.ifAvailable(limiter -> registry.addInterceptor(limiter).addPathPatterns(COMMENT_ENDPOINTS)
+                .excludePathPatterns("/api/comments/import", "/api/comments/export", "/api/comments/changes"));
+    }
+
+    // built from Boot's builder so spring.jackson.* settings apply to every format
+    @Bean
+    MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+
+}
@@ -0,0 +1,290 @@
+package com.example.testing.comment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Asynchronous comment creation. An accepted comment gets its id up front, is
+ * appended and synced to the {@link CommentJournal} and then queued; a single
+ * writer thread drains the queue in large batches, one transaction per batch.
+ * Whatever the journal still holds on startup is written before new comments are
+ * accepted, so an acknowledged comment survives a crash; startup fails if the
+ * database cannot take it within {@code comments.write-behind.replay-timeout}.
+ */
+@Component
+public class CommentWriteBehind implements SmartInitializingSingleton, DisposableBean {
+
+    private static final long POLL_MILLIS = 100;
+    private static final Duration MAX_BACKOFF = Duration.ofSeconds(30);
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(30);
+
+    private final ObjectMapper objectMapper;
+    private final CommentMapper mapper;
+    private final CommentIdAllocator idAllocator;
+    private final CommentBatchRepository batchRepository;
+    private final CommentMetrics metrics;
+    private final ApplicationEventPublisher events;
+    private final TransactionTemplate transactionTemplate;
+    private final CommentProperties.WriteBehind properties;
+
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    // bounds the accepted but unwritten comments, which includes the batch being written
+    private final Semaphore capacity;
+    private CommentJournal journal;
+    private Thread writer;
+    private volatile boolean running;
+    private volatile boolean stopping;
+
+    private static final Logger logger = LoggerFactory.getLogger(CommentWriteBehind.class);
+
+    public CommentWriteBehind(ObjectMapper objectMapper,
+                              CommentMapper mapper,
+                              CommentIdAllocator idAllocator,
+                              CommentBatchRepository batchRepository,
+                              CommentMetrics metrics,
+                              ApplicationEventPublisher events,
+                              TransactionTemplate transactionTemplate,
+                              CommentProperties properties) {
+        this.objectMapper = objectMapper;
+        this.mapper = mapper;
+        this.idAllocator = idAllocator;
+        this.batchRepository = batchRepository;
+        this.metrics = metrics;
+        this.events = events;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties.writeBehind();
+        this.capacity = new Semaphore(this.properties.queueCapacity());
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        try {
+            // replayed even when disabled, comments acknowledged before the switch are still owed
+            replay();
+            if (!properties.enabled()) {
+                return;
+            }
+            journal = new CommentJournal(properties.journal(), properties.segmentSize().toBytes(), objectMapper);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        metrics.writeBehindQueue(queue);
+        running = true;
+        writer = new Thread(this::drain, "comment-write-behind");
+        writer.start();
+    }
+
+    public boolean isEnabled() {
+        return running;
+    }
+
+    /**
+     * Returns once the comment is durable in the journal; it becomes readable
+     * after the writer has committed it.
+     */
+    public CommentResponse accept(CommentRequest request) {
+        if (!running || !capacity.tryAcquire()) {
+            metrics.writeBehindRejected();
+            throw new CommentQueueFullException();
+        }
+        boolean queued = false;
+        try {
+            CommentResponse comment = mapper.toResponse(idAllocator.next(), request, 0);
+            CommentJournal.Position position = journal.append(comment);
+            journal.sync(position);
+            queued = queue.add(new Pending(comment, position.segment(), System.nanoTime()));
+            return comment;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (!queued) {
+                capacity.release();
+            }
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        stopping = true;
+        if (!running) {
+            return;
+        }
+        running = false;
+        writer.join(SHUTDOWN_TIMEOUT.toMillis());
+        journal.close();
+    }
+
+    private void replay() throws IOException {
+        List<CommentResponse> comments = CommentJournal.read(properties.journal(), objectMapper);
+        if (comments.isEmpty()) {
+            return;
+        }
+        logger.info("Replaying {} journaled comments", comments.size());
+        long deadline = System.nanoTime() + properties.replayTimeout().toNanos();
+        BooleanSupplier giveUp = () -> stopping || System.nanoTime() - deadline > 0;
+        for (int offset = 0; offset < comments.size(); offset += properties.batchSize()) {
+            List<CommentResponse> batch = comments.subList(offset, Math.min(offset + properties.batchSize(), comments.size()));
+            if (!write(batch, true, giveUp)) {
+                // the journal stays as it is for the next start
+                throw new IllegalStateException("Could not replay " + comments.size()
+                        + " journaled comments within " + properties.replayTimeout());
+            }
+        }
+        CommentJournal.deleteAll(properties.journal());
+    }
+
+    private void drain() {
+        List<Pending> batch = new ArrayList<>(properties.batchSize());
+        boolean retrying = false;
+        long backoffMillis = POLL_MILLIS;
+        while (running || !queue.isEmpty() || !batch.isEmpty()) {
+            try {
+                if (batch.isEmpty()) {
+                    Pending first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, properties.batchSize() - 1);
+                }
+                if (!write(batch.stream().map(Pending::comment).toList(), retrying, () -> !running)) {
+                    return;
+                }
+                committed(batch);
+                batch.clear();
+                retrying = false;
+                backoffMillis = POLL_MILLIS;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // the batch is kept and tried again, it is in the journal either way
+                if (!running) {
+                    logger.error("Write-behind writer failed, leaving {} comments to the journal", batch.size(), e);
+                    return;
+                }
+                logger.error("Write-behind writer failed, retrying {} comments in {} ms", batch.size(), backoffMillis, e);
+                if (!sleep(backoffMillis)) {
+                    return;
+                }
+                backoffMillis = Math.min(backoffMillis * 2, MAX_BACKOFF.toMillis());
+                // the failure may have come after the commit
+                retrying = true;
+            }
+        }
+    }
+
+    /**
+     * Writes the comments, retrying while the database is unreachable. Returns
+     * false if it gave up, because the application is stopping or replay ran out
+     * of time; the comments are then left to the journal.
+     */
+    private boolean write(List<CommentResponse> comments, boolean mayExist, BooleanSupplier giveUp) {
+        long backoffMillis = POLL_MILLIS;
+        while (true) {
+            try {
+                try {
+                    insert(comments, mayExist);
+                } catch (DataAccessException e) {
+                    if (isTransient(e)) {
+                        throw e;
+                    }
+                    // one bad comment must not hold back the rest of its batch
+                    comments.forEach(this::insertOrDrop);
+                }
+                return true;
+            } catch (DataAccessException e) {
+                if (giveUp.getAsBoolean()) {
+                    logger.warn("Could not write {} comments, leaving them to the journal", comments.size(), e);
+                    return false;
+                }
+                logger.warn("Could not write {} comments, retrying in {} ms", comments.size(), backoffMillis, e);
+                if (!sleep(backoffMillis)) {
+                    return false;
+                }
+                backoffMillis = Math.min(backoffMillis * 2, MAX_BACKOFF.toMillis());
+                // the failed attempt may have committed without us hearing about it
+                mayExist = true;
+            }
+        }
+    }
+
+    private void insertOrDrop(CommentResponse comment) {
+        try {
+            insert(List.of(comment), true);
+        } catch (DataAccessException e) {
+            if (isTransient(e)) {
+                throw e;
+            }
+            logger.error("Dropping comment with id {}, the database refused to store it", comment.id(), e);
+            metrics.writeBehindDropped();
+        }
+    }
+
+    private void insert(List<CommentResponse> comments, boolean mayExist) {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<CommentResponse> missing = mayExist ? withoutExisting(comments) : comments;
+            batchRepository.batchInsert(missing);
+            events.publishEvent(CommentChangeEvent.saved(missing));
+        });
+    }
+
+    private List<CommentResponse> withoutExisting(List<CommentResponse> comments) {
+        Set<Long> existingIds = batchRepository.findExistingIds(comments.stream().map(CommentResponse::id).toList());
+        return comments.stream().filter(comment -> !existingIds.contains(comment.id())).toList();
+    }
+
+    private void committed(List<Pending> batch) {
+        long now = System.nanoTime();
+        for (Pending pending : batch) {
+            metrics.writeBehindLag(now - pending.acceptedNanos());
+            try {
+                journal.committed(pending.segment(), 1);
+            } catch (IOException e) {
+                logger.warn("Could not delete a written journal segment", e);
+            }
+        }
+        capacity.release(batch.size());
+    }
+
+    private static boolean isTransient(DataAccessException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException;
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private record Pending(CommentResponse comment, CommentJournal.Segment segment, long acceptedNanos) {}
+
+}
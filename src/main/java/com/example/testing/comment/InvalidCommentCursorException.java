@@ -0,0 +1,13 @@
+package com.example.testing.comment;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidCommentCursorException extends RuntimeException {
+
+    public InvalidCommentCursorException(String cursor) {
+        super(String.format("Invalid comment cursor %s", cursor));
+    }
+
+}
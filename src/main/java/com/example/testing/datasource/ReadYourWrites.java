@@ -0,0 +1,44 @@
+package com.example.testing.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * Marks the current thread as serving a client that wrote recently, so its
+ * read-only transactions go to the primary instead of a possibly lagging replica.
+ */
+public final class ReadYourWrites {
+
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+
+    private ReadYourWrites() {
+    }
+
+    static void pin() {
+        PINNED.set(Boolean.TRUE);
+    }
+
+    static void unpin() {
+        PINNED.remove();
+    }
+
+    public static boolean isPinned() {
+        return PINNED.get() != null;
+    }
+
+    /**
+     * Runs a read against the primary even in a read-only transaction, for results
+     * that outlive any replica lag, such as the ones that fill a cache.
+     */
+    public static <T> T onPrimary(Supplier<T> read) {
+        if (isPinned()) {
+            return read.get();
+        }
+        pin();
+        try {
+            return read.get();
+        } finally {
+            unpin();
+        }
+    }
+
+}
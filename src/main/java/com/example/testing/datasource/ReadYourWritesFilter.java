@@ -0,0 +1,73 @@
+package com.example.testing.datasource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Hands a short-lived cookie to clients that send a write and routes their reads
+ * to the primary while it lasts. Clients that do not keep cookies simply read
+ * from the replicas.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String COOKIE_NAME = "comments-read-primary";
+
+    private static final Set<String> READ_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+
+    private final Duration window;
+
+    public ReadYourWritesFilter(Duration window) {
+        this.window = window;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return window.isZero();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!READ_METHODS.contains(request.getMethod())) {
+            Cookie cookie = new Cookie(COOKIE_NAME, "1");
+            // cookies expire in whole seconds, so the window is rounded up rather than dropped
+            cookie.setMaxAge((int) Math.max(1, (window.toMillis() + 999) / 1000));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            response.addCookie(cookie);
+        }
+
+        if (!hasCookie(request)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        ReadYourWrites.pin();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReadYourWrites.unpin();
+        }
+    }
+
+    private static boolean hasCookie(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return false;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE_NAME.equals(cookie.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
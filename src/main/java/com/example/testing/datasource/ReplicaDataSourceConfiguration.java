@@ -0,0 +1,79 @@
+package com.example.testing.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits reads from writes once at least one replica is configured. Writes and
+ * read-write transactions use the primary from {@code spring.datasource};
+ * {@code @Transactional(readOnly = true)} work goes to the replicas.
+ * Hibernate's second-level and query caches are switched off, as they would
+ * keep whatever a lagging replica returned; the replicas take over their job
+ * of offloading reads from the primary.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "comments.datasource", name = "replicas[0].url")
+public class ReplicaDataSourceConfiguration {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    ReplicaRoutingDataSource replicaDataSource(HikariDataSource primaryDataSource, ReplicaProperties properties) {
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < properties.replicas().size(); i++) {
+            ReplicaProperties.Replica replica = properties.replicas().get(i);
+            // replicas share the primary's pool and driver settings, only the target differs
+            HikariDataSource dataSource = new HikariDataSource();
+            primaryDataSource.copyStateTo(dataSource);
+            dataSource.setPoolName("replica-" + i);
+            dataSource.setJdbcUrl(replica.url());
+            dataSource.setUsername(replica.username() != null ? replica.username() : primaryDataSource.getUsername());
+            dataSource.setPassword(replica.password() != null ? replica.password() : primaryDataSource.getPassword());
+            replicas.add(dataSource);
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, properties.healthCheckInterval());
+    }
+
+    // the physical connection is only chosen at the first statement, once the transaction's read-only flag is known
+    @Bean
+    @Primary
+    DataSource dataSource(HikariDataSource primaryDataSource, ReplicaRoutingDataSource replicaDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(replicaDataSource);
+        return dataSource;
+    }
+
+    @Bean
+    HibernatePropertiesCustomizer replicaHibernateCacheCustomizer() {
+        return hibernateProperties -> {
+            hibernateProperties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, false);
+            hibernateProperties.put(AvailableSettings.USE_QUERY_CACHE, false);
+        };
+    }
+
+    @Bean
+    FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(ReplicaProperties properties) {
+        FilterRegistrationBean<ReadYourWritesFilter> registration =
+                new FilterRegistrationBean<>(new ReadYourWritesFilter(properties.readYourWrites()));
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+
+}
@@ -0,0 +1,22 @@
+package com.example.testing.datasource;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+@ConfigurationProperties("comments.datasource")
+public record ReplicaProperties(
+        @DefaultValue List<Replica> replicas,
+        @DefaultValue("5s") Duration healthCheckInterval,
+        @DefaultValue("0s") Duration readYourWrites
+) {
+
+    public record Replica(
+            String url,
+            String username,
+            String password
+    ) {}
+
+}
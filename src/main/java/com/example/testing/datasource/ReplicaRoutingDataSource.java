@@ -0,0 +1,138 @@
+package com.example.testing.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The data source behind read-only transactions: hands out connections from the
+ * healthy replicas in turn and falls back to the primary when none is available
+ * or the caller has to read its own writes.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements InitializingBean, DisposableBean {
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final Duration healthCheckInterval;
+    private final AtomicInteger next = new AtomicInteger();
+    private ScheduledExecutorService healthChecker;
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    public ReplicaRoutingDataSource(DataSource primary, List<? extends DataSource> replicas, Duration healthCheckInterval) {
+        this.primary = primary;
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        this.healthCheckInterval = healthCheckInterval;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return route(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return route(target -> target.getConnection(username, password));
+    }
+
+    private Connection route(ConnectionSource source) throws SQLException {
+        if (!ReadYourWrites.isPinned()) {
+            for (int attempt = 0; attempt < replicas.size(); attempt++) {
+                Replica replica = replicas.get(Math.floorMod(next.getAndIncrement(), replicas.size()));
+                if (!replica.healthy) {
+                    continue;
+                }
+                try {
+                    return source.connect(replica.dataSource);
+                } catch (SQLException | RuntimeException e) {
+                    replica.markDown(e);
+                }
+            }
+        }
+        return source.connect(primary);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = healthCheckInterval.toMillis();
+        healthChecker.scheduleWithFixedDelay(this::checkHealth, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    void checkHealth() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection()) {
+                if (connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                    replica.markUp();
+                } else {
+                    replica.markDown(null);
+                }
+            } catch (SQLException | RuntimeException e) {
+                replica.markDown(e);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+        }
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSource {
+
+        Connection connect(DataSource target) throws SQLException;
+
+    }
+
+    private static class Replica {
+
+        private final DataSource dataSource;
+        private volatile boolean healthy = true;
+
+        Replica(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        void markUp() {
+            if (!healthy) {
+                logger.info("Replica {} is back, routing reads to it again", dataSource);
+                healthy = true;
+            }
+        }
+
+        void markDown(Exception cause) {
+            if (healthy) {
+                logger.warn("Replica {} is unavailable, reading from the remaining replicas or the primary", dataSource, cause);
+                healthy = false;
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,42 @@
+package com.example.testing.comment;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CommentAcceptEncodingTest {
+
+    @Test
+    void givenGzipListed_whenAcceptsGzip_thenTrue() {
+        // when & then
+        assertThat(CommentAcceptEncoding.acceptsGzip("gzip")).isTrue();
+        assertThat(CommentAcceptEncoding.acceptsGzip("deflate, GZIP;q=0.5")).isTrue();
+        assertThat(CommentAcceptEncoding.acceptsGzip("x-gzip")).isTrue();
+    }
+
+    @Test
+    void givenGzipWithZeroQuality_whenAcceptsGzip_thenFalse() {
+        // when & then
+        assertThat(CommentAcceptEncoding.acceptsGzip("gzip;q=0")).isFalse();
+        assertThat(CommentAcceptEncoding.acceptsGzip("br, gzip ; q=0.000")).isFalse();
+        assertThat(CommentAcceptEncoding.acceptsGzip("*, gzip;q=0")).isFalse();
+    }
+
+    @Test
+    void givenOnlyWildcard_whenAcceptsGzip_thenFollowWildcardQuality() {
+        // when & then
+        assertThat(CommentAcceptEncoding.acceptsGzip("*")).isTrue();
+        assertThat(CommentAcceptEncoding.acceptsGzip("identity, *;q=0")).isFalse();
+    }
+
+    @Test
+    void givenNoGzip_whenAcceptsGzip_thenFalse() {
+        // when & then
+        assertThat(CommentAcceptEncoding.acceptsGzip(null)).isFalse();
+        assertThat(CommentAcceptEncoding.acceptsGzip("")).isFalse();
+        assertThat(CommentAcceptEncoding.acceptsGzip("br, deflate")).isFalse();
+        assertThat(CommentAcceptEncoding.acceptsGzip("gzipped")).isFalse();
+        assertThat(CommentAcceptEncoding.acceptsGzip("gzip;q=high")).isFalse();
+    }
+
+}
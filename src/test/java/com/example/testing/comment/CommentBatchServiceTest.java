@@ -0,0 +1,131 @@
+package com.example.testing.comment;
+
+import com.example.testing.comment.CommentBatchResult.Status;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CommentBatchServiceTest {
+
+    @Mock
+    CommentJdbcRepository jdbcRepository;
+
+    @Mock
+    CommentIdAllocator idAllocator;
+
+    @Mock
+    CommentCache commentCache;
+
+    @Mock
+    CommentStatsIndex statsIndex;
+
+    @Mock
+    ApplicationEventPublisher events;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    CommentBatchService batchService;
+
+    @BeforeEach
+    void setUp() {
+        CommentProperties properties = CommentTestDataFactory.properties();
+        CommentMetrics metrics = new CommentMetrics(new SimpleMeterRegistry(), properties);
+        batchService = new CommentBatchService(new CommentMapper(), idAllocator, jdbcRepository, commentCache, statsIndex,
+                metrics, events, new TransactionTemplate(transactionManager), properties);
+    }
+
+    @Test
+    void givenCommentRequests_whenCreateComments_thenReturnAllocatedIds() {
+        // given
+        List<CommentRequest> requests = List.of(
+                CommentTestDataFactory.request("comment-1"),
+                CommentTestDataFactory.request("comment-2")
+        );
+        when(idAllocator.next(2)).thenReturn(List.of(7L, 8L));
+
+        // when
+        List<CommentBatchResult> results = batchService.createComments(requests);
+
+        // then
+        assertThat(results).containsExactly(
+                new CommentBatchResult(0, 7L, Status.CREATED, 0),
+                new CommentBatchResult(1, 8L, Status.CREATED, 0)
+        );
+        List<CommentResponse> created = List.of(
+                new CommentMapper().toResponse(7L, requests.get(0), 0),
+                new CommentMapper().toResponse(8L, requests.get(1), 0)
+        );
+        verify(jdbcRepository, times(1)).batchInsert(created);
+        verify(events, times(1)).publishEvent(CommentChangeEvent.saved(created));
+    }
+
+    @Test
+    void givenStaleAndMissingComments_whenUpdateComments_thenReportEachItem() {
+        // given
+        List<CommentBatchUpdate> updates = List.of(
+                new CommentBatchUpdate(1L, 0, CommentTestDataFactory.request("updated-1")),
+                new CommentBatchUpdate(2L, 0, CommentTestDataFactory.request("stale-2")),
+                new CommentBatchUpdate(3L, null, CommentTestDataFactory.request("missing-3"))
+        );
+        when(jdbcRepository.batchUpdate(updates)).thenReturn(new int[]{1, 0, 0});
+        when(jdbcRepository.findExistingIds(List.of(2L, 3L))).thenReturn(Set.of(2L));
+
+        // when
+        List<CommentBatchResult> results = batchService.updateComments(updates);
+
+        // then
+        assertThat(results).containsExactly(
+                new CommentBatchResult(0, 1L, Status.UPDATED, 1),
+                new CommentBatchResult(1, 2L, Status.CONFLICT, null),
+                new CommentBatchResult(2, 3L, Status.NOT_FOUND, null)
+        );
+        verify(commentCache, times(1)).put(argThat(response -> response.version() == 1));
+    }
+
+    @Test
+    void givenUnversionedUpdate_whenUpdateComments_thenCacheVersionWritten() {
+        // given
+        List<CommentBatchUpdate> updates = List.of(new CommentBatchUpdate(1L, null, CommentTestDataFactory.request("updated-1")));
+        when(jdbcRepository.batchUpdate(updates)).thenReturn(new int[]{1});
+        when(jdbcRepository.findVersions(List.of(1L))).thenReturn(Map.of(1L, 4));
+
+        // when
+        List<CommentBatchResult> results = batchService.updateComments(updates);
+
+        // then
+        assertThat(results).containsExactly(new CommentBatchResult(0, 1L, Status.UPDATED, 4));
+        verify(commentCache, times(1)).put(argThat(response -> response.version() == 4));
+        verify(commentCache, never()).invalidate(1L);
+    }
+
+    @Test
+    void givenExistingAndMissingIds_whenDeleteComments_thenMarkOnlyDeletedInCache() {
+        // given
+        when(jdbcRepository.batchDelete(anyList())).thenReturn(new int[]{1, 0});
+
+        // when
+        List<CommentBatchResult> results = batchService.deleteComments(List.of(1L, 999L));
+
+        // then
+        assertThat(results).extracting(CommentBatchResult::status).containsExactly(Status.DELETED, Status.NOT_FOUND);
+        verify(commentCache, times(1)).markDeleted(1L);
+        verify(commentCache, never()).markDeleted(999L);
+    }
+
+}
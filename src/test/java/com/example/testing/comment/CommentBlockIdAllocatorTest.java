@@ -0,0 +1,93 @@
+package com.example.testing.comment;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Connection;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CommentBlockIdAllocatorTest {
+
+    JdbcTemplate jdbcTemplate = new JdbcTemplate(
+            new DriverManagerDataSource("jdbc:h2:mem:ids;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", ""));
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("CREATE TABLE comment (id BIGINT PRIMARY KEY)");
+        jdbcTemplate.execute("INSERT INTO comment VALUES (41), (42)");
+        // created by the JPA schema in the application
+        jdbcTemplate.execute("CREATE TABLE comment_id_block (id INT PRIMARY KEY, next_id BIGINT NOT NULL)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP TABLE comment");
+        jdbcTemplate.execute("DROP TABLE comment_id_block");
+    }
+
+    @Test
+    void givenExistingComments_whenNext_thenContinueAfterHighestId() {
+        // given
+        CommentIdAllocator allocator = allocator(3);
+
+        // when
+        List<Long> ids = List.of(allocator.next(), allocator.next(), allocator.next(), allocator.next());
+
+        // then
+        assertThat(ids).containsExactly(43L, 44L, 45L, 46L);
+        assertThat(jdbcTemplate.queryForObject("SELECT next_id FROM comment_id_block", Long.class)).isEqualTo(49L);
+    }
+
+    @Test
+    void givenTwoAllocators_whenNext_thenNeverHandOutTheSameId() {
+        // given
+        CommentIdAllocator first = allocator(3);
+        CommentIdAllocator second = allocator(3);
+
+        // when
+        List<Long> firstIds = first.next(4);
+        List<Long> secondIds = second.next(2);
+
+        // then
+        assertThat(firstIds).containsExactly(43L, 44L, 45L, 46L);
+        assertThat(secondIds).containsExactly(47L, 48L);
+        assertThat(first.next()).isEqualTo(50L);
+    }
+
+    @Test
+    void givenEveryPooledConnectionHeld_whenNext_thenStillReserveBlock() throws Exception {
+        // given
+        try (HikariDataSource pool = new HikariDataSource()) {
+            pool.setJdbcUrl("jdbc:h2:mem:ids;MODE=MySQL;DB_CLOSE_DELAY=-1");
+            pool.setUsername("sa");
+            pool.setMaximumPoolSize(1);
+            pool.setConnectionTimeout(1_000);
+            CommentBlockIdAllocator allocator = new CommentBlockIdAllocator(pool,
+                    CommentTestDataFactory.properties(Map.of("comments.ids.block-size", "3")));
+
+            // when
+            long id;
+            try (Connection held = pool.getConnection()) {
+                id = allocator.next();
+            } finally {
+                allocator.destroy();
+            }
+
+            // then
+            assertThat(id).isEqualTo(43L);
+        }
+    }
+
+    private CommentIdAllocator allocator(int blockSize) {
+        return new CommentBlockIdAllocator(jdbcTemplate.getDataSource(),
+                CommentTestDataFactory.properties(Map.of("comments.ids.block-size", String.valueOf(blockSize))));
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.example.testing.comment;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CommentCacheTest {
+
+    CommentCache commentCache;
+
+    @BeforeEach
+    void setUp() {
+        CommentProperties properties = CommentTestDataFactory.properties();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        commentCache = new CommentCache(properties, registry, new CommentMetrics(registry, properties), new CommentInterner(true));
+    }
+
+    @Test
+    void givenNewerVersionCached_whenPutOlderVersion_thenKeepNewerVersion() {
+        // given
+        CommentResponse updated = new CommentResponse(1L, "updated-comment", "email@example.com", "body", 2);
+        CommentResponse stale = new CommentResponse(1L, "stale-comment", "email@example.com", "body", 1);
+        commentCache.put(updated);
+
+        // when
+        commentCache.put(stale);
+
+        // then
+        assertThat(commentCache.get(1L)).contains(updated);
+    }
+
+    @Test
+    void givenCommentsBySameAuthor_whenPut_thenShareAuthorStrings() {
+        // given
+        commentCache.put(new CommentResponse(1L, new String("author"), new String("author@example.com"), "first", 0));
+
+        // when
+        commentCache.put(new CommentResponse(2L, new String("author"), new String("author@example.com"), "second", 0));
+
+        // then
+        CommentResponse first = commentCache.get(1L).orElseThrow();
+        CommentResponse second = commentCache.get(2L).orElseThrow();
+        assertThat(second.name()).isSameAs(first.name());
+        assertThat(second.email()).isSameAs(first.email());
+    }
+
+    @Test
+    void givenDeletedComment_whenPutOlderVersion_thenThrowCommentNotFoundException() {
+        // given
+        CommentResponse stale = new CommentResponse(1L, "stale-comment", "email@example.com", "body", 1);
+        commentCache.markDeleted(1L);
+
+        // when
+        commentCache.put(stale);
+
+        // then
+        assertThrows(CommentNotFoundException.class, () -> commentCache.get(1L));
+    }
+
+}
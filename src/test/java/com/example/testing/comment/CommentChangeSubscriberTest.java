@@ -0,0 +1,168 @@
+package com.example.testing.comment;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CommentChangeSubscriberTest {
+
+    RecordingEmitter emitter = new RecordingEmitter();
+    Queue<Runnable> tasks = new ArrayDeque<>();
+    CommentOutbox outbox = mock(CommentOutbox.class);
+
+    @Test
+    void givenSlowClient_whenSameCommentChangesTwice_thenSendOnlyTheLatestChange() {
+        // given
+        CommentChangeSubscriber subscriber = new CommentChangeSubscriber(emitter, tasks::add, 10);
+        subscriber.start(null, 0, outbox);
+
+        // when
+        subscriber.offer(updated(1, 1L));
+        subscriber.offer(updated(2, 2L));
+        subscriber.offer(updated(3, 1L));
+        runTasks();
+
+        // then
+        assertThat(emitter.ids).containsExactly("2", "3");
+    }
+
+    @Test
+    void givenLastEventId_whenStart_thenReplayMissedChangesBeforeLiveOnes() {
+        // given
+        when(outbox.firstSeq()).thenReturn(1L);
+        when(outbox.readAfter(eq(1L), anyInt())).thenReturn(List.of(updated(2, 2L), updated(3, 3L), updated(4, 4L)));
+        CommentChangeSubscriber subscriber = new CommentChangeSubscriber(emitter, tasks::add, 10);
+        subscriber.offer(updated(4, 4L));
+        subscriber.offer(updated(5, 5L));
+
+        // when
+        subscriber.start(1L, 3, outbox);
+        runTasks();
+
+        // then
+        assertThat(emitter.ids).containsExactly("2", "3", "4", "5");
+    }
+
+    @Test
+    void givenPurgedChanges_whenStart_thenSendReset() {
+        // given
+        when(outbox.firstSeq()).thenReturn(50L);
+        CommentChangeSubscriber subscriber = new CommentChangeSubscriber(emitter, tasks::add, 10);
+
+        // when
+        subscriber.start(1L, 60, outbox);
+
+        // then
+        assertThat(emitter.ids).containsExactly("60");
+        assertThat(emitter.names).containsExactly(CommentChangeSubscriber.RESET);
+    }
+
+    @Test
+    void givenFullBacklog_whenOffer_thenRefuse() {
+        // given
+        CommentChangeSubscriber subscriber = new CommentChangeSubscriber(emitter, tasks::add, 2);
+        subscriber.start(null, 0, outbox);
+
+        // when
+        boolean first = subscriber.offer(updated(1, 1L));
+        boolean second = subscriber.offer(updated(2, 2L));
+        boolean third = subscriber.offer(updated(3, 3L));
+
+        // then
+        assertThat(List.of(first, second, third)).containsExactly(true, true, false);
+    }
+
+    @Test
+    void givenSendBlockedPastWriteTimeout_whenEvictIfStalled_thenCloseAndCompleteOnceTheSendReturns() throws Exception {
+        // given
+        StalledEmitter stalled = new StalledEmitter();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CommentChangeSubscriber subscriber = new CommentChangeSubscriber(stalled, executor, 10);
+        subscriber.start(null, 0, outbox);
+        subscriber.offer(updated(1, 1L));
+        assertThat(stalled.sending.await(5, TimeUnit.SECONDS)).isTrue();
+        long timeout = TimeUnit.MINUTES.toNanos(1);
+        CountDownLatch returned = new CountDownLatch(1);
+
+        // when
+        boolean early = subscriber.evictIfStalled(System.nanoTime(), timeout, returned::countDown);
+        boolean overrun = subscriber.evictIfStalled(System.nanoTime() + timeout, timeout, returned::countDown);
+        subscriber.offer(updated(2, 2L));
+        stalled.release.countDown();
+
+        // then
+        assertThat(returned.await(5, TimeUnit.SECONDS)).isTrue();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(List.of(early, overrun)).containsExactly(false, true);
+        assertThat(subscriber.isClosed()).isTrue();
+        assertThat(stalled.ids).containsExactly("1");
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private static CommentChange updated(long seq, Long commentId) {
+        return new CommentChange(seq, CommentChange.Type.UPDATED, commentId,
+                new CommentResponse(commentId, "name", "email@test.com", "body", (int) seq));
+    }
+
+    static class RecordingEmitter extends SseEmitter {
+
+        final List<String> ids = new ArrayList<>();
+        final List<String> names = new ArrayList<>();
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            String event = builder.build().stream()
+                    .filter(part -> part.getData() instanceof String)
+                    .map(part -> (String) part.getData())
+                    .reduce("", String::concat);
+            event.lines().forEach(line -> {
+                if (line.startsWith("id:")) {
+                    ids.add(line.substring(3));
+                } else if (line.startsWith("event:")) {
+                    names.add(line.substring(6));
+                }
+            });
+        }
+
+    }
+
+    static class StalledEmitter extends RecordingEmitter {
+
+        final CountDownLatch sending = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            sending.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            super.send(builder);
+        }
+
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.example.testing.comment;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CommentConcurrencyLimiterTest {
+
+    static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    static final long SLOW = TimeUnit.SECONDS.toNanos(1);
+    static final long WINDOW = TimeUnit.MILLISECONDS.toNanos(100);
+
+    CommentConcurrencyLimiter limiter = limiter();
+
+    @Test
+    void givenLimitReached_whenTryAcquire_thenShed() {
+        // given
+        for (int i = 0; i < 4; i++) {
+            assertThat(limiter.tryAcquire()).isTrue();
+        }
+
+        // when & then
+        assertThat(limiter.tryAcquire()).isFalse();
+        limiter.release(FAST, false, System.nanoTime());
+        assertThat(limiter.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void givenSlowOrFailedRequests_whenRelease_thenBackOffMultiplicativelyAndRecoverAdditively() {
+        // given
+        long now = System.nanoTime();
+        limiter.tryAcquire();
+        limiter.tryAcquire();
+
+        // when
+        limiter.release(SLOW, false, now);
+        limiter.release(FAST, true, now + WINDOW);
+
+        // then
+        assertThat(limiter.limit()).isEqualTo(1);
+        limiter.tryAcquire();
+        limiter.release(FAST, false, now + WINDOW);
+        assertThat(limiter.limit()).isEqualTo(2);
+    }
+
+    @Test
+    void givenManySlowRequestsWithinOneWindow_whenRelease_thenBackOffOnce() {
+        // given
+        long now = System.nanoTime();
+        for (int i = 0; i < 4; i++) {
+            limiter.tryAcquire();
+        }
+
+        // when
+        limiter.release(SLOW, false, now);
+        limiter.release(SLOW, false, now + 1);
+        limiter.release(SLOW, true, now + WINDOW - 1);
+
+        // then
+        assertThat(limiter.limit()).isEqualTo(2);
+        limiter.release(SLOW, false, now + WINDOW);
+        assertThat(limiter.limit()).isEqualTo(1);
+    }
+
+    @Test
+    void givenRejections_whenCount_thenReuseOneCounterPerReason() {
+        // given
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        CommentMetrics metrics = new CommentMetrics(registry, CommentTestDataFactory.properties());
+
+        // when
+        metrics.concurrencyRejected();
+        metrics.concurrencyRejected();
+        metrics.rateRejected();
+
+        // then
+        assertThat(registry.get("comments.requests.rejected").tag("reason", "concurrency").counter().count()).isEqualTo(2);
+        assertThat(registry.get("comments.requests.rejected").tag("reason", "rate").counter().count()).isEqualTo(1);
+    }
+
+    private static CommentConcurrencyLimiter limiter() {
+        CommentProperties properties = CommentTestDataFactory.properties(Map.of(
+                "comments.concurrency-limit.initial-limit", "4",
+                "comments.concurrency-limit.latency-threshold", "100ms",
+                "comments.concurrency-limit.backoff-ratio", "0.5"
+        ));
+        return new CommentConcurrencyLimiter(properties, new CommentMetrics(new SimpleMeterRegistry(), properties));
+    }
+
+}
@@ -1,12 +1,14 @@
 package com.example.testing.comment;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
@@ -16,11 +18,14 @@ import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
 import java.util.Arrays;
+import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -44,6 +49,9 @@ class CommentControllerTest {
     @Autowired
     CommentRepository commentRepository;
 
+    @Autowired
+    CommentSearchIndex searchIndex;
+
     private String baseUrl;
 
     @DynamicPropertySource
@@ -74,7 +82,61 @@ class CommentControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.content", hasSize(2)))
                 .andExpect(jsonPath("$.content[0].name", is("comment-1")))
-                .andExpect(jsonPath("$.content[1].name", is("comment-2")));
+                .andExpect(jsonPath("$.content[1].name", is("comment-2")))
+                .andExpect(jsonPath("$.page.totalElements", is(2)));
+    }
+
+    @Test
+    void givenPreviewParameter_whenGetAllComments_thenReturnTruncatedBodies() throws Exception {
+        // given
+        saveCommentsToDB(new Comment(null, "comment-1", "email@example.com", CommentTestDataFactory.body(500)));
+
+        // when & then
+        mvc.perform(get(baseUrl).param("preview", "40"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].body", is(CommentTestDataFactory.body(500).substring(0, 40))));
+    }
+
+    @Test
+    void givenEmptyCursor_whenGetCommentsAfter_thenReturnFirstSliceWithNextCursor() throws Exception {
+        // given
+        Comment c1 = CommentTestDataFactory.comment("comment-1");
+        Comment c2 = CommentTestDataFactory.comment("comment-2");
+        Comment c3 = CommentTestDataFactory.comment("comment-3");
+        saveCommentsToDB(c1, c2, c3);
+
+        // when & then
+        mvc.perform(get(baseUrl)
+                        .param("after", "")
+                        .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(2)))
+                .andExpect(jsonPath("$.content[0].name", is("comment-1")))
+                .andExpect(jsonPath("$.hasNext", is(true)))
+                .andExpect(jsonPath("$.nextCursor", is(new CommentCursor(c2.getId()).encode())));
+    }
+
+    @Test
+    void givenMalformedCursor_whenGetCommentsAfter_thenReturn400BadRequestStatus() throws Exception {
+        // when & then
+        mvc.perform(get(baseUrl).param("after", "%%%"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void givenIndexedComments_whenSearchComments_thenReturnMatchingComments() throws Exception {
+        // given
+        saveCommentsToDB(
+                new Comment(null, "comment-1", "email@example.com", "integration testing with containers"),
+                new Comment(null, "comment-2", "email@example.com", "nothing to see here")
+        );
+        searchIndex.rebuild();
+
+        // when & then
+        mvc.perform(get(baseUrl + "/search").param("q", "containers"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.content[0].name", is("comment-1")));
     }
 
     @Test
@@ -91,6 +153,77 @@ class CommentControllerTest {
                 .andExpect(jsonPath("$.body", is(existingComment.getBody())));
     }
 
+    @Test
+    void givenCborAccept_whenGetCommentById_thenReturnCbor() throws Exception {
+        // given
+        Comment existingComment = saveCommentToDB(CommentTestDataFactory.comment("existing-comment"));
+
+        // when
+        byte[] body = mvc.perform(get(baseUrl + "/{id}", existingComment.getId())
+                        .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // then
+        assertThat(new CBORMapper().readValue(body, CommentResponse.class).name()).isEqualTo("existing-comment");
+    }
+
+    @Test
+    void givenCurrentETag_whenGetCommentById_thenReturn304NotModified() throws Exception {
+        // given
+        Comment existingComment = saveCommentToDB(CommentTestDataFactory.comment("existing-comment"));
+        String etag = mvc.perform(get(baseUrl + "/{id}", existingComment.getId()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // when & then
+        mvc.perform(get(baseUrl + "/{id}", existingComment.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void givenStaleIfMatch_whenUpdateComment_thenReturn412PreconditionFailedStatus() throws Exception {
+        // given
+        Comment existingComment = saveCommentToDB(CommentTestDataFactory.comment("existing-comment"));
+        CommentRequest request = CommentTestDataFactory.request("updated-comment");
+
+        // when & then
+        mvc.perform(put(baseUrl + "/{id}", existingComment.getId())
+                        .header(HttpHeaders.IF_MATCH, CommentETag.of(existingComment.getId(), existingComment.getVersion() + 1))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void givenWildcardIfMatchOnMissingComment_whenUpdateOrDeleteComment_thenReturn412PreconditionFailedStatus() throws Exception {
+        // given
+        long commentId = 999_999;
+
+        // when & then
+        mvc.perform(put(baseUrl + "/{id}", commentId)
+                        .header(HttpHeaders.IF_MATCH, "*")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(CommentTestDataFactory.request("updated-comment"))))
+                .andExpect(status().isPreconditionFailed());
+        mvc.perform(delete(baseUrl + "/{id}", commentId)
+                        .header(HttpHeaders.IF_MATCH, "*"))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void givenCurrentIfMatch_whenDeleteComment_thenReturnNoContent() throws Exception {
+        // given
+        Comment existingComment = saveCommentToDB(CommentTestDataFactory.comment("existing-comment"));
+
+        // when & then
+        mvc.perform(delete(baseUrl + "/{id}", existingComment.getId())
+                        .header(HttpHeaders.IF_MATCH, CommentETag.of(existingComment.getId(), existingComment.getVersion())))
+                .andExpect(status().isNoContent());
+    }
+
     @Test
     void givenNonExistingCommentId_whenGetCommentById_thenReturn404NotFoundStatus() throws Exception {
         // given
@@ -114,6 +247,70 @@ class CommentControllerTest {
                 .andExpect(jsonPath("$.name", is(request.name())));
     }
 
+    @Test
+    void givenNdjsonBody_whenImportComments_thenPersistAllComments() throws Exception {
+        // given
+        String ndjson = objectMapper.writeValueAsString(CommentTestDataFactory.request("imported-1")) + "\n"
+                + objectMapper.writeValueAsString(CommentTestDataFactory.request("imported-2")) + "\n";
+
+        // when & then
+        mvc.perform(post(baseUrl + "/import")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(ndjson))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported", is(2)));
+    }
+
+    @Test
+    void givenStoredComments_whenExportComments_thenStreamNdjson() throws Exception {
+        // given
+        saveCommentsToDB(CommentTestDataFactory.comment("comment-1"), CommentTestDataFactory.comment("comment-2"));
+
+        // when
+        String export = mvc.perform(get(baseUrl + "/export"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        // then
+        List<String> lines = export.lines().toList();
+        assertThat(lines).hasSize(2);
+        assertThat(objectMapper.readValue(lines.get(1), CommentResponse.class).name()).isEqualTo("comment-2");
+    }
+
+    @Test
+    void givenCommentRequests_whenCreateCommentsInBatch_thenReturnPerItemResults() throws Exception {
+        // given
+        List<CommentRequest> requests = List.of(
+                CommentTestDataFactory.request("batch-comment-1"),
+                CommentTestDataFactory.request("batch-comment-2")
+        );
+
+        // when & then
+        mvc.perform(post(baseUrl + "/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requests)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].status", is("CREATED")))
+                .andExpect(jsonPath("$[1].status", is("CREATED")));
+    }
+
+    @Test
+    void givenStaleVersion_whenUpdateCommentsInBatch_thenReportConflict() throws Exception {
+        // given
+        Comment existingComment = saveCommentToDB(CommentTestDataFactory.comment("existing-comment"));
+        List<CommentBatchUpdate> updates = List.of(new CommentBatchUpdate(
+                existingComment.getId(), existingComment.getVersion() + 1, CommentTestDataFactory.request("updated-comment")));
+
+        // when & then
+        mvc.perform(patch(baseUrl + "/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updates)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status", is("CONFLICT")));
+    }
+
     @Test
     void givenCommentIdAndCommentRequest_whenUpdateComment_thenReturnUpdatedComment() throws Exception {
         // given
@@ -133,6 +330,20 @@ class CommentControllerTest {
                 .andExpect(jsonPath("$.body", is(updateRequest.body())));
     }
 
+    @Test
+    void givenStaleVersion_whenUpdateComment_thenReturn409ConflictStatus() throws Exception {
+        // given
+        Comment existingComment = saveCommentToDB(CommentTestDataFactory.comment("existing-comment"));
+        CommentRequest updateRequest = new CommentRequest(
+                "updated-comment", "email@example.com", "updated-body", existingComment.getVersion() + 1);
+
+        // when & then
+        mvc.perform(put(baseUrl + "/{id}", existingComment.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updateRequest)))
+                .andExpect(status().isConflict());
+    }
+
     @Test
     void givenCommentId_whenDeleteComment_thenReturnNoContent() throws Exception {
         // given
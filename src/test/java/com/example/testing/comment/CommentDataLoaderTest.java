@@ -0,0 +1,29 @@
+package com.example.testing.comment;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CommentDataLoaderTest {
+
+    CommentImporter importer = mock(CommentImporter.class);
+    CommentRepository repository = mock(CommentRepository.class);
+    CommentDataLoader loader = new CommentDataLoader(importer, repository);
+
+    @Test
+    void givenUnreachableDatabase_whenLoad_thenLogInsteadOfThrowing() throws Exception {
+        // given
+        when(repository.count()).thenThrow(new DataAccessResourceFailureException("down"));
+
+        // when & then
+        assertThatCode(loader::load).doesNotThrowAnyException();
+        verify(importer, never()).importComments(any());
+    }
+
+}
@@ -0,0 +1,43 @@
+package com.example.testing.comment;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CommentETagTest {
+
+    @Test
+    void givenOwnETag_whenExpectedVersion_thenReturnVersion() {
+        // given
+        String etag = CommentETag.of(12L, 3);
+
+        // when & then
+        assertThat(CommentETag.expectedVersion(12L, etag)).isEqualTo(3);
+    }
+
+    @Test
+    void givenWildcard_whenExpectedVersion_thenReturnNull() {
+        // when & then
+        assertThat(CommentETag.expectedVersion(12L, "*")).isNull();
+    }
+
+    @Test
+    void givenETagOfAnotherComment_whenExpectedVersion_thenThrowCommentPreconditionFailedException() {
+        // when & then
+        assertThrows(
+                CommentPreconditionFailedException.class,
+                () -> CommentETag.expectedVersion(12L, CommentETag.of(13L, 3))
+        );
+    }
+
+    @Test
+    void givenWeakETag_whenExpectedVersion_thenThrowCommentPreconditionFailedException() {
+        // when & then
+        assertThrows(
+                CommentPreconditionFailedException.class,
+                () -> CommentETag.expectedVersion(12L, "W/" + CommentETag.of(12L, 3))
+        );
+    }
+
+}
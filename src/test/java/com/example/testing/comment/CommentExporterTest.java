@@ -0,0 +1,77 @@
+package com.example.testing.comment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+@ExtendWith(MockitoExtension.class)
+class CommentExporterTest {
+
+    @Mock
+    CommentJdbcRepository jdbcRepository;
+
+    CommentExporter exporter;
+
+    List<CommentResponse> comments = List.of(
+            new CommentResponse(1L, "comment-1", "email@example.com", "body-1", 0),
+            new CommentResponse(2L, "comment-2", "email@example.com", "body-2", 0)
+    );
+
+    @BeforeEach
+    void setUp() {
+        exporter = new CommentExporter(new ObjectMapper(), jdbcRepository);
+
+        doAnswer(invocation -> {
+            Consumer<CommentResponse> action = invocation.getArgument(0);
+            comments.forEach(action);
+            return null;
+        }).when(jdbcRepository).streamAll(any());
+    }
+
+    @Test
+    void givenStoredComments_whenExportComments_thenWriteOneJsonObjectPerLine() throws Exception {
+        // given
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // when
+        long exported = exporter.exportComments(out);
+
+        // then
+        assertThat(exported).isEqualTo(2);
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo("""
+                {"id":1,"name":"comment-1","email":"email@example.com","body":"body-1","version":0}
+                {"id":2,"name":"comment-2","email":"email@example.com","body":"body-2","version":0}
+                """);
+    }
+
+    @Test
+    void givenDisconnectedClient_whenExportComments_thenStopWithIOException() {
+        // given
+        OutputStream disconnected = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        // when & then
+        IOException ex = assertThrows(IOException.class, () -> exporter.exportComments(disconnected));
+        assertThat(ex).hasMessage("Broken pipe");
+    }
+
+}
@@ -0,0 +1,104 @@
+package com.example.testing.comment;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CommentIdMapTest {
+
+    @Test
+    void givenManyInsertsAndRemovals_whenGet_thenSeeOnlyLiveComments() {
+        // given
+        CommentIdMap map = new CommentIdMap(4);
+        for (long id = 1; id <= 10_000; id++) {
+            long key = id;
+            map.compute(id, current -> comment(key, 0));
+        }
+        for (long id = 1; id <= 10_000; id += 2) {
+            map.compute(id, current -> null);
+        }
+
+        // when & then
+        assertThat(map.size()).isEqualTo(5_000);
+        assertThat(map.get(1)).isNull();
+        assertThat(map.get(2)).isEqualTo(comment(2, 0));
+        assertThat(map.get(10_001)).isNull();
+        List<CommentResponse> all = new ArrayList<>();
+        map.forEach(all::add);
+        assertThat(all).hasSize(5_000).allMatch(comment -> comment.id() % 2 == 0);
+    }
+
+    @Test
+    void givenConditionalChange_whenCompute_thenReturnPreviousComment() {
+        // given
+        CommentIdMap map = new CommentIdMap(1);
+        map.compute(7, current -> comment(7, 0));
+
+        // when
+        CommentResponse previous = map.compute(7, current -> comment(7, current.version() + 1));
+        CommentResponse unchanged = map.compute(7, current -> current);
+
+        // then
+        assertThat(previous).isEqualTo(comment(7, 0));
+        assertThat(unchanged).isEqualTo(comment(7, 1));
+    }
+
+    @Test
+    void givenConcurrentWriters_whenReadWithoutLocks_thenNeverSeeAnotherCommentsValue() throws Exception {
+        // given
+        CommentIdMap map = new CommentIdMap(2);
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int writer = 0; writer < 2; writer++) {
+                long offset = writer;
+                writers.add(executor.submit(() -> {
+                    for (long id = 1 + offset; id <= 20_000; id += 2) {
+                        long key = id;
+                        map.compute(id, current -> comment(key, 0));
+                        if (id % 3 == 0) {
+                            map.compute(id, current -> null);
+                        }
+                    }
+                }));
+            }
+
+            // when
+            Future<Integer> reader = executor.submit(() -> {
+                int mismatches = 0;
+                while (running.get()) {
+                    for (long id = 1; id <= 20_000; id += 97) {
+                        CommentResponse comment = map.get(id);
+                        if (comment != null && comment.id() != id) {
+                            mismatches++;
+                        }
+                    }
+                }
+                return mismatches;
+            });
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+            running.set(false);
+
+            // then
+            assertThat(reader.get()).isZero();
+            assertThat(map.size()).isEqualTo(20_000 - 20_000 / 3);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static CommentResponse comment(long id, int version) {
+        return new CommentResponse(id, "comment-" + id, "email@example.com", "body", version);
+    }
+
+}
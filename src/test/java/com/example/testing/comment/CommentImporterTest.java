@@ -0,0 +1,103 @@
+package com.example.testing.comment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CommentImporterTest {
+
+    @Mock
+    CommentJdbcRepository jdbcRepository;
+
+    @Mock
+    CommentIdAllocator idAllocator;
+
+    @Mock
+    ApplicationEventPublisher events;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    CommentImporter importer;
+
+    List<Integer> batchSizes = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        CommentProperties properties = CommentTestDataFactory.properties(Map.of("comments.importer.batch-size", "2"));
+        importer = new CommentImporter(new ObjectMapper(), new CommentMapper(), idAllocator, jdbcRepository, events,
+                new TransactionTemplate(transactionManager), properties);
+
+        when(idAllocator.next(anyInt())).thenAnswer(invocation ->
+                LongStream.rangeClosed(1, invocation.<Integer>getArgument(0)).boxed().toList());
+        doAnswer(invocation -> {
+            List<?> batch = invocation.getArgument(0);
+            batchSizes.add(batch.size());
+            return null;
+        }).when(jdbcRepository).batchInsert(anyList());
+    }
+
+    @Test
+    void givenJsonArray_whenImportComments_thenInsertInFixedSizeBatches() throws Exception {
+        // given
+        String json = """
+                [
+                  {"name": "comment-1", "email": "email@example.com", "body": "body-1"},
+                  {"name": "comment-2", "email": "email@example.com", "body": "body-2"},
+                  {"name": "comment-3", "email": "email@example.com", "body": "body-3"}
+                ]
+                """;
+
+        // when
+        CommentImportResult result = importer.importComments(stream(json));
+
+        // then
+        assertThat(result.imported()).isEqualTo(3);
+        assertThat(batchSizes).containsExactly(2, 1);
+        verify(events, times(2)).publishEvent(any(CommentChangeEvent.class));
+    }
+
+    @Test
+    void givenNdjson_whenImportComments_thenInsertEveryLine() throws Exception {
+        // given
+        String ndjson = """
+                {"name": "comment-1", "email": "email@example.com", "body": "body-1"}
+                {"name": "comment-2", "email": "email@example.com", "body": "body-2"}
+                """;
+
+        // when
+        CommentImportResult result = importer.importComments(stream(ndjson));
+
+        // then
+        assertThat(result.imported()).isEqualTo(2);
+        assertThat(batchSizes).containsExactly(2);
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
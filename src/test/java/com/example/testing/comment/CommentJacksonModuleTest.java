@@ -0,0 +1,43 @@
+package com.example.testing.comment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CommentJacksonModuleTest {
+
+    private static final String JSON = """
+            {"name": "author", "email": "author@example.com", "body": "body", "version": 3}
+            """;
+
+    @Test
+    void givenInterningEnabled_whenReadRequests_thenShareAuthorStrings() throws Exception {
+        // given
+        ObjectMapper mapper = new ObjectMapper().registerModule(new CommentJacksonModule(new CommentInterner(true)));
+
+        // when
+        CommentRequest first = mapper.readValue(JSON, CommentRequest.class);
+        CommentRequest second = mapper.readValue(JSON, CommentRequest.class);
+
+        // then
+        assertThat(second).isEqualTo(first);
+        assertThat(second.name()).isSameAs(first.name());
+        assertThat(second.email()).isSameAs(first.email());
+        assertThat(second.body()).isNotSameAs(first.body());
+    }
+
+    @Test
+    void givenInterningDisabled_whenReadRequests_thenKeepOwnCopies() throws Exception {
+        // given
+        ObjectMapper mapper = new ObjectMapper().registerModule(new CommentJacksonModule(new CommentInterner(false)));
+
+        // when
+        CommentRequest first = mapper.readValue(JSON, CommentRequest.class);
+        CommentRequest second = mapper.readValue(JSON, CommentRequest.class);
+
+        // then
+        assertThat(second.name()).isNotSameAs(first.name());
+    }
+
+}
@@ -0,0 +1,67 @@
+package com.example.testing.comment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CommentJdbcOutboxTest {
+
+    JdbcTemplate jdbcTemplate = new JdbcTemplate(
+            new DriverManagerDataSource("jdbc:h2:mem:outbox;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", ""));
+
+    CommentJdbcOutbox outbox = new CommentJdbcOutbox(jdbcTemplate, new ObjectMapper());
+
+    // created by the JPA schema in the application
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("CREATE TABLE comment_change (seq BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "type VARCHAR(7) NOT NULL, comment_id BIGINT NOT NULL, payload MEDIUMTEXT)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP TABLE comment_change");
+    }
+
+    @Test
+    void givenChangeEvents_whenReadAfter_thenReturnChangesInSequenceOrder() {
+        // given
+        CommentResponse created = new CommentResponse(1L, "name", "email@test.com", "body", 0);
+        CommentResponse updated = new CommentResponse(2L, "name", "email@test.com", "body", 3);
+        outbox.onCommentChange(CommentChangeEvent.saved(List.of(created, updated)));
+        outbox.onCommentChange(CommentChangeEvent.deleted(1L));
+
+        // when
+        List<CommentChange> changes = outbox.readAfter(0, 10);
+
+        // then
+        assertThat(changes).containsExactly(
+                new CommentChange(1, CommentChange.Type.CREATED, 1L, created),
+                new CommentChange(2, CommentChange.Type.UPDATED, 2L, updated),
+                new CommentChange(3, CommentChange.Type.DELETED, 1L, null));
+        assertThat(outbox.readAfter(2, 10)).extracting(CommentChange::seq).containsExactly(3L);
+        assertThat(outbox.lastSeq()).isEqualTo(3);
+    }
+
+    @Test
+    void givenPurgedChanges_whenFirstSeq_thenStartAfterPurge() {
+        // given
+        outbox.onCommentChange(CommentChangeEvent.deleted(List.of(1L, 2L, 3L)));
+
+        // when
+        int purged = outbox.purgeUpTo(2);
+
+        // then
+        assertThat(purged).isEqualTo(2);
+        assertThat(outbox.firstSeq()).isEqualTo(3);
+        assertThat(outbox.lastSeq()).isEqualTo(3);
+    }
+
+}
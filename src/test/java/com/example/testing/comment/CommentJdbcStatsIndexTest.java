@@ -0,0 +1,128 @@
+package com.example.testing.comment;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CommentJdbcStatsIndexTest {
+
+    DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:stats;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+    JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+    TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+    CommentJdbcStatsIndex statsIndex = new CommentJdbcStatsIndex(jdbcTemplate, transactionTemplate);
+
+    // created by the JPA schema in the application
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("CREATE TABLE comment (id BIGINT PRIMARY KEY, name VARCHAR(255), email VARCHAR(255), "
+                + "body TEXT, version INT NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE comment_author_stats (email VARCHAR(255) PRIMARY KEY, comments BIGINT NOT NULL, "
+                + "body_length BIGINT NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE comment_stats (slot INT PRIMARY KEY, comments BIGINT NOT NULL, "
+                + "body_length BIGINT NOT NULL, authors BIGINT NOT NULL)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP TABLE comment");
+        jdbcTemplate.execute("DROP TABLE comment_author_stats");
+        jdbcTemplate.execute("DROP TABLE comment_stats");
+    }
+
+    @Test
+    void givenStoredComments_whenFirstStart_thenCountPerAuthor() {
+        // given
+        insert(1L, "alice@example.com", "12345");
+        insert(2L, "alice@example.com", "123");
+        insert(3L, "bob@example.com", "1");
+
+        // when
+        statsIndex.afterSingletonsInstantiated();
+        statsIndex.afterSingletonsInstantiated();
+
+        // then
+        assertThat(statsIndex.stats()).isEqualTo(new CommentStats(3, 2, 9, 3.0));
+        assertThat(statsIndex.author("alice@example.com")).isEqualTo(new CommentAuthorStats("alice@example.com", 2, 8, 4.0));
+        assertThat(statsIndex.author("carol@example.com")).isEqualTo(new CommentAuthorStats("carol@example.com", 0, 0, 0));
+    }
+
+    @Test
+    void givenCommittedWrites_whenStats_thenMoveUpdatedAndDropDeletedComments() {
+        // given
+        statsIndex.afterSingletonsInstantiated();
+        transactionTemplate.executeWithoutResult(status -> {
+            insert(1L, "alice@example.com", "1234");
+            insert(2L, "bob@example.com", "12");
+            statsIndex.onCommentChange(CommentChangeEvent.saved(List.of(comment(1L), comment(2L))));
+        });
+
+        // when
+        transactionTemplate.executeWithoutResult(status -> {
+            statsIndex.beforeChange(List.of(1L));
+            jdbcTemplate.update("UPDATE comment SET email = 'carol@example.com', body = '123456' WHERE id = 1");
+            statsIndex.onCommentChange(CommentChangeEvent.saved(comment(1L)));
+            statsIndex.beforeChange(List.of(2L));
+            jdbcTemplate.update("DELETE FROM comment WHERE id = 2");
+            statsIndex.onCommentChange(CommentChangeEvent.deleted(2L));
+        });
+
+        // then
+        assertThat(statsIndex.stats()).isEqualTo(new CommentStats(1, 1, 6, 6.0));
+        assertThat(statsIndex.author("alice@example.com").comments()).isZero();
+        assertThat(statsIndex.author("bob@example.com").comments()).isZero();
+        assertThat(statsIndex.author("carol@example.com")).isEqualTo(new CommentAuthorStats("carol@example.com", 1, 6, 6.0));
+    }
+
+    @Test
+    void givenRolledBackWrite_whenStats_thenCountNothing() {
+        // given
+        statsIndex.afterSingletonsInstantiated();
+
+        // when
+        transactionTemplate.executeWithoutResult(status -> {
+            insert(1L, "alice@example.com", "1234");
+            statsIndex.onCommentChange(CommentChangeEvent.saved(comment(1L)));
+            status.setRollbackOnly();
+        });
+
+        // then
+        assertThat(statsIndex.stats()).isEqualTo(new CommentStats(0, 0, 0, 0));
+    }
+
+    @Test
+    void givenAnotherInstanceWrote_whenStats_thenCountItsWrites() {
+        // given
+        statsIndex.afterSingletonsInstantiated();
+        CommentJdbcStatsIndex otherInstance = new CommentJdbcStatsIndex(jdbcTemplate, transactionTemplate);
+        otherInstance.afterSingletonsInstantiated();
+
+        // when
+        transactionTemplate.executeWithoutResult(status -> {
+            insert(1L, "alice@example.com", "1234");
+            otherInstance.onCommentChange(CommentChangeEvent.saved(comment(1L)));
+        });
+
+        // then
+        assertThat(statsIndex.stats()).isEqualTo(new CommentStats(1, 1, 4, 4.0));
+        assertThat(statsIndex.author("alice@example.com").comments()).isEqualTo(1);
+    }
+
+    private void insert(Long id, String email, String body) {
+        jdbcTemplate.update("INSERT INTO comment (id, name, email, body, version) VALUES (?, 'name', ?, ?, 0)", id, email, body);
+    }
+
+    // the index reads what was written back from the table, only the id matters here
+    private static CommentResponse comment(Long id) {
+        return new CommentResponse(id, "name", "email@example.com", "body", 0);
+    }
+
+}
@@ -0,0 +1,64 @@
+package com.example.testing.comment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CommentJournalTest {
+
+    ObjectMapper mapper = new ObjectMapper();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void givenCommittedComments_whenSegmentRolls_thenDeleteIt() throws Exception {
+        // given
+        CommentJournal journal = new CommentJournal(directory, 1, mapper);
+        CommentJournal.Position first = journal.append(comment(1L));
+        journal.sync(first);
+        journal.committed(first.segment(), 1);
+
+        // when
+        CommentJournal.Position second = journal.append(comment(2L));
+        journal.sync(second);
+
+        // then
+        assertThat(CommentJournal.read(directory, mapper)).containsExactly(comment(2L));
+        assertThat(segmentCount()).isEqualTo(1);
+        journal.close();
+    }
+
+    @Test
+    void givenTornLastLine_whenRead_thenSkipIt() throws Exception {
+        // given
+        CommentJournal journal = new CommentJournal(directory, 1024, mapper);
+        journal.sync(journal.append(comment(1L)));
+        journal.sync(journal.append(comment(2L)));
+        journal.close();
+        try (Stream<Path> segments = Files.list(directory)) {
+            Files.writeString(segments.findFirst().orElseThrow(), "{\"id\":3,\"na", StandardOpenOption.APPEND);
+        }
+
+        // when & then
+        assertThat(CommentJournal.read(directory, mapper)).containsExactly(comment(1L), comment(2L));
+    }
+
+    private long segmentCount() throws Exception {
+        try (Stream<Path> segments = Files.list(directory)) {
+            return segments.count();
+        }
+    }
+
+    private static CommentResponse comment(Long id) {
+        return new CommentResponse(id, "comment-" + id, "email@example.com", "body", 0);
+    }
+
+}
@@ -0,0 +1,173 @@
+package com.example.testing.comment;
+
+import com.example.testing.datasource.ReadYourWrites;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CommentLookupBatcherTest {
+
+    CommentRepository repository = mock(CommentRepository.class);
+    PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void givenLookupUnderWay_whenSameIdRequested_thenShareTheQuery() throws Exception {
+        // given
+        CommentLookupBatcher batcher = batcher("0s", 100);
+        CountDownLatch querying = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(repository.findResponseById(1L)).thenAnswer(invocation -> {
+            querying.countDown();
+            release.await();
+            return Optional.of(comment(1L));
+        });
+        List<Future<Optional<CommentResponse>>> lookups = new ArrayList<>();
+        lookups.add(executor.submit(() -> batcher.find(1L)));
+        querying.await();
+
+        // when
+        for (int i = 0; i < 5; i++) {
+            lookups.add(executor.submit(() -> batcher.find(1L)));
+        }
+        awaitShared(5);
+        release.countDown();
+
+        // then
+        for (Future<Optional<CommentResponse>> lookup : lookups) {
+            assertThat(lookup.get(5, TimeUnit.SECONDS)).contains(comment(1L));
+        }
+        verify(repository, times(1)).findResponseById(1L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void givenDistinctIdsWithinWindow_whenFind_thenReadThemInOneQuery() throws Exception {
+        // given
+        CommentLookupBatcher batcher = batcher("10s", 3);
+        when(repository.findResponsesByIdIn(any())).thenReturn(List.of(comment(1L), comment(2L)));
+
+        // when
+        Future<Optional<CommentResponse>> first = executor.submit(() -> batcher.find(1L));
+        Future<Optional<CommentResponse>> second = executor.submit(() -> batcher.find(2L));
+        Future<Optional<CommentResponse>> missing = executor.submit(() -> batcher.find(3L));
+
+        // then
+        assertThat(first.get(5, TimeUnit.SECONDS)).contains(comment(1L));
+        assertThat(second.get(5, TimeUnit.SECONDS)).contains(comment(2L));
+        assertThat(missing.get(5, TimeUnit.SECONDS)).isEmpty();
+        verify(repository, times(1)).findResponsesByIdIn(any(Collection.class));
+        verify(repository, never()).findResponseById(anyLong());
+        assertThat(meterRegistry.get("comments.lookup.batch.size").summary().max()).isEqualTo(3);
+    }
+
+    @Test
+    void givenFailingQuery_whenFind_thenRethrowAndForgetTheLookup() {
+        // given
+        CommentLookupBatcher batcher = batcher("0s", 100);
+        when(repository.findResponseById(1L))
+                .thenThrow(new DataAccessResourceFailureException("down"))
+                .thenReturn(Optional.of(comment(1L)));
+
+        // when & then
+        assertThatThrownBy(() -> batcher.find(1L)).isInstanceOf(DataAccessResourceFailureException.class);
+        assertThat(batcher.find(1L)).contains(comment(1L));
+    }
+
+    @Test
+    void givenReadReplicas_whenFind_thenQueryThePrimary() {
+        // given
+        CommentLookupBatcher batcher = batcher("0s", 100);
+        when(repository.findResponseById(1L))
+                .thenAnswer(invocation -> ReadYourWrites.isPinned() ? Optional.of(comment(1L)) : Optional.empty());
+
+        // when & then
+        assertThat(batcher.find(1L)).contains(comment(1L));
+        assertThat(ReadYourWrites.isPinned()).isFalse();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void givenSmallPool_whenMoreDistinctIdsThanConnections_thenReadThemInOneReadOnlyTransaction() throws Exception {
+        // given
+        try (HikariDataSource dataSource = new HikariDataSource()) {
+            dataSource.setJdbcUrl("jdbc:h2:mem:lookup-pool");
+            dataSource.setMaximumPoolSize(2);
+            dataSource.setConnectionTimeout(250);
+            transactionManager = new DataSourceTransactionManager(dataSource);
+            CommentLookupBatcher batcher = batcher("10s", 6);
+            when(repository.findResponsesByIdIn(any())).thenAnswer(invocation -> {
+                assertThat(TransactionSynchronizationManager.isCurrentTransactionReadOnly()).isTrue();
+                assertThat(dataSource.getHikariPoolMXBean().getActiveConnections()).isEqualTo(1);
+                return ((Collection<Long>) invocation.getArgument(0)).stream().map(CommentLookupBatcherTest::comment).toList();
+            });
+
+            // when
+            List<Future<Optional<CommentResponse>>> lookups = new ArrayList<>();
+            for (long id = 1; id <= 6; id++) {
+                long commentId = id;
+                lookups.add(executor.submit(() -> batcher.find(commentId)));
+            }
+
+            // then
+            for (int i = 0; i < lookups.size(); i++) {
+                assertThat(lookups.get(i).get(5, TimeUnit.SECONDS)).contains(comment(i + 1L));
+            }
+            verify(repository, times(1)).findResponsesByIdIn(any(Collection.class));
+            assertThat(meterRegistry.get("comments.lookup.batch.size").summary().max())
+                    .isGreaterThan(dataSource.getMaximumPoolSize());
+        }
+    }
+
+    private CommentLookupBatcher batcher(String window, int maxBatchSize) {
+        CommentProperties properties = CommentTestDataFactory.properties(Map.of(
+                "comments.lookup.window", window,
+                "comments.lookup.max-batch-size", Integer.toString(maxBatchSize)));
+        return new CommentLookupBatcher(repository, new CommentMetrics(meterRegistry, properties), transactionManager,
+                properties);
+    }
+
+    private void awaitShared(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("comments.lookup.shared").counter().count() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static CommentResponse comment(Long id) {
+        return new CommentResponse(id, "comment-" + id, "email@example.com", "body", 0);
+    }
+
+}
@@ -0,0 +1,118 @@
+package com.example.testing.comment;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mapping.PropertyReferenceException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CommentMemoryRepositoryTest {
+
+    @TempDir
+    Path directory;
+
+    CommentMemoryStore store;
+    CommentMemoryRepository repository;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        store = new CommentMemoryStore(CommentTestDataFactory.properties(Map.of(
+                "comments.memory.directory", directory.toString())));
+        store.afterPropertiesSet();
+        repository = new CommentMemoryRepository(store);
+        for (String name : new String[]{"delta", "alpha", "charlie", "bravo", "echo"}) {
+            repository.save(new Comment(null, name, name + "@example.com", "body of " + name));
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        store.destroy();
+    }
+
+    @Test
+    void givenSortByName_whenFindAllResponses_thenPageInThatOrder() {
+        // when
+        Page<CommentResponse> page = repository.findAllResponses(4, PageRequest.of(1, 2, Sort.by("name")));
+
+        // then
+        assertThat(page.getContent()).extracting(CommentResponse::name).containsExactly("charlie", "delta");
+        assertThat(page.getContent()).extracting(CommentResponse::body).containsOnly("body");
+        assertThat(page.getTotalElements()).isEqualTo(5);
+    }
+
+    @Test
+    void givenDescendingIdSort_whenFindAll_thenWalkIdsBackwards() {
+        // when
+        Page<Comment> page = repository.findAll(PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "id")));
+
+        // then
+        assertThat(page.getContent()).extracting(Comment::getId).containsExactly(5L, 4L);
+    }
+
+    @Test
+    void givenUnknownProperty_whenSorted_thenThrowPropertyReference() {
+        // when & then
+        assertThatThrownBy(() -> repository.findAll(PageRequest.of(0, 2, Sort.by("nope"))))
+                .isInstanceOf(PropertyReferenceException.class);
+    }
+
+    @Test
+    void givenLastId_whenFindResponsesByIdGreaterThan_thenReturnTheNextSlice() {
+        // when
+        Slice<CommentResponse> slice = repository.findResponsesByIdGreaterThan(2L, CommentService.FULL_BODY, PageRequest.of(0, 2, Sort.by("id")));
+
+        // then
+        assertThat(slice.getContent()).extracting(CommentResponse::id).containsExactly(3L, 4L);
+        assertThat(slice.hasNext()).isTrue();
+    }
+
+    @Test
+    void givenEmail_whenFindResponsesByEmailAndIdGreaterThan_thenPageThatAuthorsComments() {
+        // given
+        repository.updateById(3L, "charlie", "alpha@example.com", "moved", null);
+        repository.save(new Comment(null, "alpha", "alpha@example.com", "another"));
+
+        // when
+        Slice<CommentResponse> first = repository.findResponsesByEmailAndIdGreaterThan(
+                "alpha@example.com", 0L, CommentService.FULL_BODY, PageRequest.of(0, 2, Sort.by("id")));
+        Slice<CommentResponse> second = repository.findResponsesByEmailAndIdGreaterThan(
+                "alpha@example.com", 3L, CommentService.FULL_BODY, PageRequest.of(0, 2, Sort.by("id")));
+
+        // then
+        assertThat(first.getContent()).extracting(CommentResponse::id).containsExactly(2L, 3L);
+        assertThat(first.hasNext()).isTrue();
+        assertThat(second.getContent()).extracting(CommentResponse::id).containsExactly(6L);
+        assertThat(second.hasNext()).isFalse();
+        assertThat(repository.findResponsesByEmailAndIdGreaterThan(
+                "charlie@example.com", 0L, CommentService.FULL_BODY, PageRequest.of(0, 2))).isEmpty();
+    }
+
+    @Test
+    void givenStaleVersion_whenSave_thenThrowOptimisticLockingFailure() {
+        // given
+        Comment comment = repository.findById(1L).orElseThrow();
+        comment.setName("renamed");
+        repository.save(comment);
+
+        // when
+        Comment stale = new Comment(1L, "stale", "stale@example.com", "body", 0);
+
+        // then
+        assertThat(comment.getVersion()).isEqualTo(1);
+        assertThatThrownBy(() -> repository.save(stale)).isInstanceOf(ObjectOptimisticLockingFailureException.class);
+        assertThat(repository.findResponseById(1L)).get().extracting(CommentResponse::name).isEqualTo("renamed");
+    }
+
+}
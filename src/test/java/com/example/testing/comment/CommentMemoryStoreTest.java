@@ -0,0 +1,219 @@
+package com.example.testing.comment;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CommentMemoryStoreTest {
+
+    @TempDir
+    Path directory;
+
+    List<CommentMemoryStore> stores = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (CommentMemoryStore store : stores) {
+            store.destroy();
+        }
+    }
+
+    @Test
+    void givenExpectedVersion_whenUpdate_thenOnlyApplyWhileCurrent() throws Exception {
+        // given
+        CommentMemoryStore store = open();
+        store.insert(comment(store.next(), "first"));
+
+        // when
+        CommentResponse updated = store.update(1, "second", "email@example.com", "body", 0);
+        CommentResponse stale = store.update(1, "third", "email@example.com", "body", 0);
+
+        // then
+        assertThat(updated.version()).isEqualTo(1);
+        assertThat(stale).isNull();
+        assertThat(store.get(1).name()).isEqualTo("second");
+        assertThat(store.delete(1, 0)).isFalse();
+        assertThat(store.delete(1, 1)).isTrue();
+        assertThat(store.get(1)).isNull();
+    }
+
+    @Test
+    void givenExistingId_whenInsert_thenThrowDuplicateKey() throws Exception {
+        // given
+        CommentMemoryStore store = open();
+        store.insert(comment(store.next(), "first"));
+
+        // when & then
+        assertThatThrownBy(() -> store.insert(comment(1, "again"))).isInstanceOf(DuplicateKeyException.class);
+    }
+
+    @Test
+    void givenWritesAfterSnapshot_whenReopened_thenRecoverSnapshotAndLog() throws Exception {
+        // given
+        CommentMemoryStore store = open();
+        for (long id : store.next(3)) {
+            store.insert(comment(id, "comment-" + id));
+        }
+        store.snapshot();
+        store.update(2, "updated", "email@example.com", "body", 0);
+        store.delete(3, null);
+        crash(store);
+
+        // when
+        CommentMemoryStore recovered = open();
+
+        // then
+        List<CommentResponse> comments = new ArrayList<>();
+        recovered.streamAll(comments::add);
+        assertThat(comments).containsExactly(
+                new CommentResponse(1L, "comment-1", "email@example.com", "body", 0),
+                new CommentResponse(2L, "updated", "email@example.com", "body", 1));
+        assertThat(recovered.lastSequence()).isEqualTo(store.lastSequence());
+    }
+
+    @Test
+    void givenIdsHandedOutBeforeCrash_whenReopened_thenNeverHandThemOutAgain() throws Exception {
+        // given
+        CommentMemoryStore store = open();
+        List<Long> handedOut = store.next(3);
+        crash(store);
+
+        // when
+        long next = open().next();
+
+        // then
+        assertThat(next).isGreaterThan(handedOut.get(2));
+    }
+
+    @Test
+    void givenTornLastRecord_whenReopened_thenCutItOff() throws Exception {
+        // given
+        CommentMemoryStore store = open();
+        store.insert(comment(store.next(), "first"));
+        store.insert(comment(store.next(), "second"));
+        crash(store);
+        Path log;
+        try (Stream<Path> files = Files.list(directory)) {
+            log = files.filter(file -> file.toString().endsWith(".log")).findFirst().orElseThrow();
+        }
+        long size = Files.size(log);
+        Files.write(log, new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        // when
+        CommentMemoryStore recovered = open();
+
+        // then
+        assertThat(recovered.size()).isEqualTo(2);
+        assertThat(Files.size(log)).isEqualTo(size);
+    }
+
+    @Test
+    void givenEmailChangedBeforeCrash_whenReopened_thenIndexUnderCurrentEmail() throws Exception {
+        // given
+        CommentMemoryStore store = open();
+        for (long id : store.next(3)) {
+            store.insert(comment(id, "comment-" + id));
+        }
+        store.update(2, "moved", "other@example.com", "body", null);
+        store.delete(3, null);
+        crash(store);
+
+        // when
+        CommentMemoryStore recovered = open();
+
+        // then
+        assertThat(recovered.idsByEmail("email@example.com")).containsExactly(1L);
+        assertThat(recovered.idsByEmail("other@example.com")).containsExactly(2L);
+        assertThat(recovered.idsByEmail("missing@example.com")).isEmpty();
+    }
+
+    @Test
+    void givenWritesInTransaction_whenRolledBack_thenRevertThemDurably() throws Exception {
+        // given
+        CommentMemoryStore store = open();
+        store.insert(comment(store.next(), "kept"));
+        store.insert(comment(store.next(), "deleted"));
+        TransactionTemplate transaction = new TransactionTemplate(
+                new CommentMemoryConfiguration.CommentMemoryTransactionManager(store));
+
+        // when
+        transaction.executeWithoutResult(status -> {
+            store.update(1, "changed", "other@example.com", "body", 0);
+            store.delete(2, null);
+            store.insert(comment(store.next(), "inserted"));
+            status.setRollbackOnly();
+        });
+        crash(store);
+        CommentMemoryStore recovered = open();
+
+        // then
+        for (CommentMemoryStore reverted : List.of(store, recovered)) {
+            List<CommentResponse> comments = new ArrayList<>();
+            reverted.streamAll(comments::add);
+            assertThat(comments).containsExactly(comment(1, "kept"), comment(2, "deleted"));
+            assertThat(reverted.idsByEmail("other@example.com")).isEmpty();
+        }
+    }
+
+    @Test
+    void givenWritesAndRecovery_whenStats_thenCountPerAuthor() throws Exception {
+        // given
+        CommentMemoryStore store = open();
+        store.insert(new CommentResponse(store.next(), "alice", "alice@example.com", "1234", 0));
+        store.insert(new CommentResponse(store.next(), "bob", "bob@example.com", "12", 0));
+        store.update(1, "alice", "carol@example.com", "123456", 0);
+        store.delete(2, null);
+        new TransactionTemplate(new CommentMemoryConfiguration.CommentMemoryTransactionManager(store))
+                .executeWithoutResult(status -> {
+                    store.insert(new CommentResponse(store.next(), "dave", "dave@example.com", "1", 0));
+                    status.setRollbackOnly();
+                });
+        crash(store);
+
+        // when
+        CommentMemoryStore recovered = open();
+
+        // then
+        for (CommentMemoryStore counted : List.of(store, recovered)) {
+            assertThat(counted.stats()).isEqualTo(new CommentStats(1, 1, 6, 6.0));
+            assertThat(counted.author("alice@example.com").comments()).isZero();
+            assertThat(counted.author("carol@example.com")).isEqualTo(new CommentAuthorStats("carol@example.com", 1, 6, 6.0));
+        }
+    }
+
+    private CommentMemoryStore open() throws Exception {
+        CommentMemoryStore store = new CommentMemoryStore(CommentTestDataFactory.properties(Map.of(
+                "comments.memory.directory", directory.toString(),
+                "comments.memory.stripes", "4",
+                "comments.ids.block-size", "2")));
+        store.afterPropertiesSet();
+        stores.add(store);
+        return store;
+    }
+
+    // leaves the files as they are, without the snapshot a clean shutdown takes
+    private void crash(CommentMemoryStore store) throws Exception {
+        stores.remove(store);
+        CommentMemoryLog log = (CommentMemoryLog) ReflectionTestUtils.getField(store, "log");
+        log.close();
+    }
+
+    private static CommentResponse comment(long id, String name) {
+        return new CommentResponse(id, name, "email@example.com", "body", 0);
+    }
+
+}
@@ -0,0 +1,71 @@
+package com.example.testing.comment;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CommentPayloadMetricsFilterTest {
+
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    CommentPayloadMetricsFilter filter = new CommentPayloadMetricsFilter(
+            new CommentMetrics(registry, CommentTestDataFactory.properties()));
+
+    @Test
+    void givenResponsesOnSameUri_whenFilter_thenRecordEachOnOneSummary() throws Exception {
+        // given
+        MockHttpServletRequest first = request("/api/comments/1");
+        MockHttpServletRequest second = request("/api/comments/2");
+
+        // when
+        filter.doFilter(first, new MockHttpServletResponse(), (req, res) -> res.getOutputStream().write(new byte[10]));
+        filter.doFilter(second, new MockHttpServletResponse(), (req, res) -> res.getOutputStream().write(new byte[30]));
+
+        // then
+        assertThat(registry.find("comments.response.size").summaries()).hasSize(1);
+        DistributionSummary summary = registry.get("comments.response.size").tag("uri", "/api/comments/{id}").summary();
+        assertThat(summary.count()).isEqualTo(2);
+        assertThat(summary.totalAmount()).isEqualTo(40);
+    }
+
+    @Test
+    void givenAsyncResponse_whenFilter_thenRecordAllBytesOnceCompleted() throws Exception {
+        // given
+        MockHttpServletRequest request = request("/api/comments/changes");
+        AtomicReference<HttpServletResponse> asyncResponse = new AtomicReference<>();
+        AtomicReference<AsyncContext> asyncContext = new AtomicReference<>();
+
+        // when
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            asyncContext.set(req.startAsync(req, res));
+            asyncResponse.set((HttpServletResponse) res);
+            res.getOutputStream().write(new byte[5]);
+        });
+        assertThat(registry.find("comments.response.size").summary()).isNull();
+        asyncResponse.get().getOutputStream().write(new byte[20]);
+        asyncContext.get().complete();
+
+        // then
+        DistributionSummary summary = registry.get("comments.response.size").summary();
+        assertThat(summary.count()).isEqualTo(1);
+        assertThat(summary.totalAmount()).isEqualTo(25);
+    }
+
+    private static MockHttpServletRequest request(String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE,
+                uri.endsWith("changes") ? "/api/comments/changes" : "/api/comments/{id}");
+        request.setAsyncSupported(true);
+        return request;
+    }
+
+}
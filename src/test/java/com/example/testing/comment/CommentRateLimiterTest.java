@@ -0,0 +1,56 @@
+package com.example.testing.comment;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CommentRateLimiterTest {
+
+    static final CommentRateLimiter.Key CLIENT = new CommentRateLimiter.Key("10.0.0.1", "GET", "/api/comments/{id}");
+
+    CommentRateLimiter limiter = limiter();
+
+    @Test
+    void givenBurstSpent_whenTryAcquire_thenRejectUntilNextToken() {
+        // given
+        long now = 0;
+        IntStream.range(0, 5).forEach(i -> assertThat(limiter.tryAcquire(CLIENT, false, now)).isZero());
+
+        // when
+        long waitNanos = limiter.tryAcquire(CLIENT, false, now);
+
+        // then
+        assertThat(waitNanos).isEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+        assertThat(limiter.tryAcquire(CLIENT, false, now + waitNanos)).isZero();
+        assertThat(limiter.tryAcquire(CLIENT, false, now + waitNanos)).isPositive();
+    }
+
+    @Test
+    void givenReadLimitSpent_whenWriteOrOtherClient_thenAdmitFromOwnBucket() {
+        // given
+        IntStream.range(0, 5).forEach(i -> limiter.tryAcquire(CLIENT, false, 0));
+        CommentRateLimiter.Key write = new CommentRateLimiter.Key("10.0.0.1", "PUT", "/api/comments/{id}");
+        CommentRateLimiter.Key otherClient = new CommentRateLimiter.Key("10.0.0.2", "GET", "/api/comments/{id}");
+
+        // when & then
+        assertThat(limiter.tryAcquire(write, true, 0)).isZero();
+        assertThat(limiter.tryAcquire(write, true, 0)).isEqualTo(TimeUnit.SECONDS.toNanos(1));
+        assertThat(limiter.tryAcquire(otherClient, false, 0)).isZero();
+    }
+
+    private static CommentRateLimiter limiter() {
+        CommentProperties properties = CommentTestDataFactory.properties(Map.of(
+                "comments.rate-limit.reads-per-second", "10",
+                "comments.rate-limit.read-burst", "5",
+                "comments.rate-limit.writes-per-second", "1",
+                "comments.rate-limit.write-burst", "1"
+        ));
+        return new CommentRateLimiter(properties, new CommentMetrics(new SimpleMeterRegistry(), properties));
+    }
+
+}
@@ -0,0 +1,278 @@
+package com.example.testing.comment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CommentReactiveServiceTest {
+
+    ConnectionFactory connectionFactory = ConnectionFactories.get(
+            "r2dbc:h2:mem:///reactive;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+
+    DatabaseClient databaseClient = DatabaseClient.create(connectionFactory);
+
+    CommentProperties properties = CommentTestDataFactory.properties(Map.of("comments.batch.chunk-size", "2"));
+
+    CommentReactiveService service = new CommentReactiveService(
+            new CommentMapper(),
+            new CommentReactiveRepository(databaseClient),
+            new CommentReactiveStats(databaseClient),
+            new ObjectMapper(),
+            new SequenceIdAllocator(),
+            new CommentMetrics(new SimpleMeterRegistry(), properties),
+            TransactionalOperator.create(new R2dbcTransactionManager(connectionFactory)),
+            properties);
+
+    @BeforeEach
+    void setUp() {
+        databaseClient.sql("CREATE TABLE comment (id BIGINT PRIMARY KEY, name VARCHAR(255), email VARCHAR(255), "
+                + "body TEXT, version INT NOT NULL)").then().block();
+        databaseClient.sql("CREATE TABLE comment_change (seq BIGINT AUTO_INCREMENT PRIMARY KEY, type VARCHAR(7) NOT NULL, "
+                + "comment_id BIGINT NOT NULL, payload MEDIUMTEXT)").then().block();
+        databaseClient.sql("CREATE TABLE comment_author_stats (email VARCHAR(255) PRIMARY KEY, comments BIGINT NOT NULL, "
+                + "body_length BIGINT NOT NULL)").then().block();
+        databaseClient.sql("CREATE TABLE comment_stats (slot INT PRIMARY KEY, comments BIGINT NOT NULL, "
+                + "body_length BIGINT NOT NULL, authors BIGINT NOT NULL)").then().block();
+    }
+
+    @AfterEach
+    void tearDown() {
+        databaseClient.sql("DROP TABLE comment").then().block();
+        databaseClient.sql("DROP TABLE comment_change").then().block();
+        databaseClient.sql("DROP TABLE comment_author_stats").then().block();
+        databaseClient.sql("DROP TABLE comment_stats").then().block();
+    }
+
+    @Test
+    void givenComments_whenGetAllCommentsSortedByName_thenReturnPageWithPreviews() {
+        // given
+        create("b", "b@test.com", "second body");
+        create("a", "a@test.com", "first body");
+        create("c", "c@test.com", "third body");
+
+        // when / then
+        StepVerifier.create(service.getAllComments(PageRequest.of(0, 2, Sort.by("name")), 5))
+                .assertNext(page -> {
+                    assertThat(page.getContent()).extracting(CommentResponse::name).containsExactly("a", "b");
+                    assertThat(page.getContent()).extracting(CommentResponse::body).containsExactly("first", "secon");
+                    assertThat(page.getTotalElements()).isEqualTo(3);
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void givenManyComments_whenStreamCommentsWithLimitedDemand_thenEmitOnlyWhatWasRequested() {
+        // given
+        IntStream.range(0, 10).forEach(i -> create("name" + i, "email@test.com", "body"));
+
+        // when / then
+        StepVerifier.create(service.streamComments(null), 3)
+                .expectNextMatches(comment -> comment.id() == 1)
+                .expectNextCount(2)
+                .expectNoEvent(Duration.ofMillis(100))
+                .thenRequest(1)
+                .expectNextMatches(comment -> comment.id() == 4)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void givenCommentsBySeveralAuthors_whenGetCommentsByEmail_thenPageThroughThatAuthorOnly() {
+        // given
+        create("a", "a@test.com", "1");
+        create("b", "b@test.com", "2");
+        create("a", "a@test.com", "3");
+        create("a", "a@test.com", "4");
+
+        // when
+        CommentSlice first = service.getCommentsByEmail("a@test.com", null, 2, null).block();
+        CommentSlice second = service.getCommentsByEmail("a@test.com", first.nextCursor(), 2, null).block();
+
+        // then
+        assertThat(first.content()).extracting(CommentResponse::body).containsExactly("1", "3");
+        assertThat(first.hasNext()).isTrue();
+        assertThat(second.content()).extracting(CommentResponse::body).containsExactly("4");
+        assertThat(second.hasNext()).isFalse();
+    }
+
+    @Test
+    void givenCurrentVersion_whenUpdateComment_thenIncrementVersion() {
+        // given
+        CommentResponse created = create("name", "email@test.com", "body");
+
+        // when / then
+        StepVerifier.create(service.updateComment(created.id(), new CommentRequest("new", "email@test.com", "new body", 0)))
+                .expectNext(new CommentResponse(created.id(), "new", "email@test.com", "new body", 1))
+                .verifyComplete();
+        StepVerifier.create(service.updateComment(created.id(), new CommentRequest("newer", "email@test.com", "body", null)))
+                .expectNext(new CommentResponse(created.id(), "newer", "email@test.com", "body", 2))
+                .verifyComplete();
+    }
+
+    @Test
+    void givenStaleVersion_whenUpdateComment_thenThrowVersionConflictAndKeepComment() {
+        // given
+        CommentResponse created = create("name", "email@test.com", "body");
+        service.updateComment(created.id(), new CommentRequest("new", "email@test.com", "body", 0)).block();
+
+        // when / then
+        StepVerifier.create(service.updateComment(created.id(), new CommentRequest("stale", "email@test.com", "body", 0)))
+                .expectError(CommentVersionConflictException.class)
+                .verify();
+        assertThat(service.getCommentById(created.id()).block().name()).isEqualTo("new");
+    }
+
+    @Test
+    void givenMissingComment_whenUpdateOrDeleteComment_thenThrowNotFound() {
+        // when / then
+        StepVerifier.create(service.updateComment(42L, new CommentRequest("name", "email@test.com", "body", 0)))
+                .expectError(CommentNotFoundException.class)
+                .verify();
+        StepVerifier.create(service.deleteComment(42L, null))
+                .expectError(CommentNotFoundException.class)
+                .verify();
+    }
+
+    @Test
+    void givenStaleVersion_whenDeleteComment_thenThrowVersionConflict() {
+        // given
+        CommentResponse created = create("name", "email@test.com", "body");
+
+        // when / then
+        StepVerifier.create(service.deleteComment(created.id(), 3))
+                .expectError(CommentVersionConflictException.class)
+                .verify();
+        StepVerifier.create(service.deleteComment(created.id(), 0)).verifyComplete();
+        StepVerifier.create(service.getCommentById(created.id()))
+                .expectError(CommentNotFoundException.class)
+                .verify();
+    }
+
+    @Test
+    void givenMoreRequestsThanOneChunk_whenCreateComments_thenReturnResultsInRequestOrder() {
+        // given
+        List<CommentRequest> requests = new ArrayList<>();
+        IntStream.range(0, 5).forEach(i -> requests.add(CommentTestDataFactory.request("name" + i)));
+
+        // when
+        List<CommentBatchResult> results = service.createComments(requests).block();
+
+        // then
+        assertThat(results).extracting(CommentBatchResult::index).containsExactly(0, 1, 2, 3, 4);
+        assertThat(results).extracting(CommentBatchResult::id).containsExactly(1L, 2L, 3L, 4L, 5L);
+        assertThat(service.getCommentById(5L).block().name()).isEqualTo("name4");
+    }
+
+    @Test
+    void givenWrites_whenCommitted_thenRecordEachChangeInOutbox() {
+        // given
+        CommentResponse created = create("name", "email@test.com", "body");
+
+        // when
+        service.updateComment(created.id(), new CommentRequest("new", "email@test.com", "new body", 0)).block();
+        service.deleteComment(created.id(), 1).block();
+
+        // then
+        assertThat(changes()).containsExactly(
+                "CREATED " + created.id() + " {\"id\":1,\"name\":\"name\",\"email\":\"email@test.com\",\"body\":\"body\",\"version\":0}",
+                "UPDATED " + created.id() + " {\"id\":1,\"name\":\"new\",\"email\":\"email@test.com\",\"body\":\"new body\",\"version\":1}",
+                "DELETED " + created.id() + " null");
+    }
+
+    @Test
+    void givenRejectedWrites_whenUpdateOrDelete_thenRecordNoChange() {
+        // given
+        CommentResponse created = create("name", "email@test.com", "body");
+        databaseClient.sql("DELETE FROM comment_change").then().block();
+
+        // when
+        StepVerifier.create(service.updateComment(created.id(), new CommentRequest("stale", "email@test.com", "body", 3)))
+                .expectError(CommentVersionConflictException.class)
+                .verify();
+        StepVerifier.create(service.deleteComment(42L, null))
+                .expectError(CommentNotFoundException.class)
+                .verify();
+
+        // then
+        assertThat(changes()).isEmpty();
+    }
+
+    @Test
+    void givenWrites_whenCommitted_thenKeepStatsTables() {
+        // given
+        CommentResponse alice = create("alice", "alice@example.com", "1234");
+        CommentResponse bob = create("bob", "bob@example.com", "12");
+
+        // when
+        service.updateComment(alice.id(), new CommentRequest("carol", "carol@example.com", "123456", 0)).block();
+        service.deleteComment(bob.id(), 0).block();
+        StepVerifier.create(service.deleteComment(alice.id(), 0))
+                .expectError(CommentVersionConflictException.class)
+                .verify();
+
+        // then
+        assertThat(query("SELECT SUM(comments) || ' ' || SUM(body_length) || ' ' || SUM(authors) FROM comment_stats"))
+                .containsExactly("1 6 1");
+        assertThat(query("SELECT email || ' ' || comments || ' ' || body_length FROM comment_author_stats"))
+                .containsExactly("carol@example.com 1 6");
+    }
+
+    private List<String> query(String sql) {
+        return databaseClient.sql(sql)
+                .map(row -> row.get(0, String.class))
+                .all()
+                .collectList()
+                .block();
+    }
+
+    private List<String> changes() {
+        return databaseClient.sql("SELECT type, comment_id, payload FROM comment_change ORDER BY seq")
+                .map(row -> row.get("type", String.class) + " " + row.get("comment_id", Long.class) + " "
+                        + row.get("payload", String.class))
+                .all()
+                .collectList()
+                .block();
+    }
+
+    private CommentResponse create(String name, String email, String body) {
+        return service.createComment(new CommentRequest(name, email, body, null)).block();
+    }
+
+    private static final class SequenceIdAllocator implements CommentIdAllocator {
+
+        private final AtomicLong next = new AtomicLong(1);
+
+        @Override
+        public long next() {
+            return next.getAndIncrement();
+        }
+
+        @Override
+        public List<Long> next(int count) {
+            long first = next.getAndAdd(count);
+            return LongStream.range(first, first + count).boxed().toList();
+        }
+
+    }
+
+}
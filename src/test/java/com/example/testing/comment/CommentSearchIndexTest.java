@@ -0,0 +1,156 @@
+package com.example.testing.comment;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CommentSearchIndexTest {
+
+    @Mock
+    CommentRepository commentRepository;
+
+    @TempDir
+    Path directory;
+
+    CommentSearchIndex searchIndex;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        searchIndex = new CommentSearchIndex(commentRepository, CommentTestDataFactory.properties(Map.of(
+                "comments.search.directory", directory.toString())));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        searchIndex.close();
+    }
+
+    @Test
+    void givenStoredComments_whenRebuild_thenRankBestMatchFirst() {
+        // given
+        when(commentRepository.findResponsesByIdGreaterThan(anyLong(), anyInt(), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of(
+                        new CommentResponse(1L, "first", "alice@example.com", "spring boot testing", 0),
+                        new CommentResponse(2L, "second", "bob@example.com", "testing with testcontainers and more testing", 0),
+                        new CommentResponse(3L, "third", "carol@example.com", "unrelated", 0)
+                )));
+
+        // when
+        searchIndex.rebuild();
+        Page<CommentResponse> page = searchIndex.search("testing", PageRequest.of(0, 10));
+
+        // then
+        assertThat(page.getTotalElements()).isEqualTo(2);
+        assertThat(page.getContent()).extracting(CommentResponse::id).containsExactly(2L, 1L);
+    }
+
+    @Test
+    void givenChangeEventDuringRebuild_whenRebuildReadsOlderRow_thenKeepChangedComment() {
+        // given
+        when(commentRepository.findResponsesByIdGreaterThan(anyLong(), anyInt(), any(Pageable.class)))
+                .thenAnswer(invocation -> {
+                    searchIndex.onCommentChange(CommentChangeEvent.saved(
+                            new CommentResponse(1L, "first", "alice@example.com", "edited body", 1)));
+                    return new SliceImpl<>(List.of(
+                            new CommentResponse(1L, "first", "alice@example.com", "original body", 0),
+                            new CommentResponse(2L, "second", "bob@example.com", "original body", 0)));
+                });
+
+        // when
+        searchIndex.rebuild();
+        Page<CommentResponse> page = searchIndex.search("original edited", PageRequest.of(0, 10));
+
+        // then
+        assertThat(page.getContent()).extracting(CommentResponse::body)
+                .containsExactlyInAnyOrder("edited body", "original body");
+    }
+
+    @Test
+    void givenChangeEvents_whenSearch_thenReflectSavedAndDeletedComments() {
+        // given
+        searchIndex.onCommentChange(CommentChangeEvent.saved(List.of(
+                new CommentResponse(1L, "first", "alice@example.com", "original body", 0),
+                new CommentResponse(2L, "second", "bob@example.com", "another body", 0)
+        )));
+        searchIndex.onCommentChange(CommentChangeEvent.saved(
+                new CommentResponse(1L, "first", "alice@example.com", "edited body", 0)));
+        searchIndex.onCommentChange(CommentChangeEvent.deleted(2L));
+
+        // when
+        Page<CommentResponse> original = searchIndex.search("original", PageRequest.of(0, 10));
+        Page<CommentResponse> edited = searchIndex.search("edited", PageRequest.of(0, 10));
+        Page<CommentResponse> deleted = searchIndex.search("another", PageRequest.of(0, 10));
+
+        // then
+        assertThat(original.getContent()).isEmpty();
+        assertThat(edited.getContent()).containsExactly(
+                new CommentResponse(1L, "first", "alice@example.com", "edited body", 0));
+        assertThat(deleted.getContent()).isEmpty();
+    }
+
+    @Test
+    void givenManyMatches_whenSearchSecondPage_thenReturnRemainingResults() {
+        // given
+        searchIndex.onCommentChange(CommentChangeEvent.saved(List.of(
+                new CommentResponse(1L, "match", "a@example.com", "body", 0),
+                new CommentResponse(2L, "match", "b@example.com", "body", 0),
+                new CommentResponse(3L, "match", "c@example.com", "body", 0)
+        )));
+
+        // when
+        Page<CommentResponse> page = searchIndex.search("match", PageRequest.of(1, 2));
+
+        // then
+        assertThat(page.getTotalElements()).isEqualTo(3);
+        assertThat(page.getContent()).hasSize(1);
+    }
+
+    @Test
+    void givenNoDirectory_whenTwoIndexesOpen_thenEachKeepsItsOwnAndDeletesItOnClose() throws Exception {
+        // given
+        CommentProperties properties = CommentTestDataFactory.properties();
+        List<Path> before = temporaryIndexes();
+
+        // when
+        CommentSearchIndex first = new CommentSearchIndex(commentRepository, properties);
+        CommentSearchIndex second = new CommentSearchIndex(commentRepository, properties);
+        List<Path> open = temporaryIndexes();
+        first.onCommentChange(CommentChangeEvent.saved(new CommentResponse(1L, "match", "a@example.com", "body", 0)));
+        Page<CommentResponse> secondPage = second.search("match", PageRequest.of(0, 10));
+        first.close();
+        second.close();
+
+        // then
+        assertThat(open).hasSize(before.size() + 2);
+        assertThat(secondPage.getTotalElements()).isZero();
+        assertThat(temporaryIndexes()).containsExactlyInAnyOrderElementsOf(before);
+    }
+
+    private static List<Path> temporaryIndexes() throws Exception {
+        try (Stream<Path> paths = Files.list(Path.of(System.getProperty("java.io.tmpdir")))) {
+            return paths.filter(path -> path.getFileName().toString().startsWith("comment-search")).toList();
+        }
+    }
+
+}
@@ -5,10 +5,12 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 
 import java.util.List;
 import java.util.Optional;
@@ -17,6 +19,7 @@ import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -31,14 +34,28 @@ class CommentServiceTest {
     @Mock
     CommentRepository commentRepository;
 
+    @Mock
+    CommentCache commentCache;
+
+    @Mock
+    CommentLookupBatcher commentLookups;
+
+    @Mock
+    CommentStatsIndex commentStats;
+
+    @Mock
+    CommentMetrics commentMetrics;
+
+    @Mock
+    ApplicationEventPublisher events;
+
     @Test
     void givenExistingCommentId_whenGetCommentById_thenReturnCommentResponse() {
         // given
         Comment comment = CommentTestDataFactory.comment(1L, "test-comment");
         CommentResponse expected = CommentTestDataFactory.response(comment);
 
-        when(commentRepository.findById(anyLong())).thenReturn(Optional.of(comment));
-        when(commentMapper.toResponse(any(Comment.class))).thenReturn(expected);
+        when(commentLookups.find(anyLong())).thenReturn(Optional.of(expected));
 
         // when
         CommentResponse actual = commentService.getCommentById(comment.getId());
@@ -46,13 +63,29 @@ class CommentServiceTest {
         // then
         assertThat(actual).isNotNull();
         assertThat(actual).isEqualTo(expected);
+        verify(commentCache, times(1)).put(expected);
+        verify(commentRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    void givenCachedComment_whenGetCommentById_thenReturnCachedResponseWithoutQuery() {
+        // given
+        CommentResponse cached = CommentTestDataFactory.response(CommentTestDataFactory.comment(1L, "cached-comment"));
+        when(commentCache.get(1L)).thenReturn(Optional.of(cached));
+
+        // when
+        CommentResponse actual = commentService.getCommentById(1L);
+
+        // then
+        assertThat(actual).isEqualTo(cached);
+        verifyNoInteractions(commentRepository);
     }
 
     @Test
     void givenNonExistingCommentId_whenGetCommentById_thenThrowCommentNotFoundException() {
         // given
         Long commentId = 999L;
-        when(commentRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(commentLookups.find(anyLong())).thenReturn(Optional.empty());
 
         // when
         CommentNotFoundException ex = assertThrows(
@@ -63,38 +96,120 @@ class CommentServiceTest {
         // then
         assertThat(ex).isNotNull();
         assertThat(ex).hasMessageContaining(String.valueOf(commentId));
+        verify(commentMetrics, times(1)).notFound();
+    }
+
+    @Test
+    void givenCachedComment_whenGetCommentVersion_thenReturnCachedVersionWithoutQuery() {
+        // given
+        CommentResponse cached = new CommentResponse(1L, "cached-comment", "email@example.com", "body", 7);
+        when(commentCache.get(1L)).thenReturn(Optional.of(cached));
+
+        // when
+        int version = commentService.getCommentVersion(1L);
+
+        // then
+        assertThat(version).isEqualTo(7);
+        verifyNoInteractions(commentRepository);
+    }
+
+    @Test
+    void givenUncachedComment_whenGetCommentVersion_thenQueryVersionOnly() {
+        // given
+        when(commentRepository.findVersionById(1L)).thenReturn(Optional.of(2));
+
+        // when
+        int version = commentService.getCommentVersion(1L);
+
+        // then
+        assertThat(version).isEqualTo(2);
+        verify(commentRepository, never()).findResponseById(anyLong());
+        verifyNoInteractions(commentLookups);
     }
 
     @Test
     void givenPageable_whenGetAllComments_thenReturnPaginatedResponse() {
         // given
-        List<Comment> comments = List.of(
-                CommentTestDataFactory.comment(1L, "comment-1"),
-                CommentTestDataFactory.comment(2L, "comment-2")
+        List<CommentResponse> responses = List.of(
+                CommentTestDataFactory.response(CommentTestDataFactory.comment(1L, "comment-1")),
+                CommentTestDataFactory.response(CommentTestDataFactory.comment(2L, "comment-2"))
         );
 
+        Pageable pageable = PageRequest.of(0, 10);
+        when(commentRepository.findAllResponses(65_535, pageable))
+                .thenReturn(new PageImpl<>(responses, pageable, responses.size()));
+
+        // when
+        Page<CommentResponse> response = commentService.getAllComments(pageable, null);
+
+        // then
+        assertThat(response).isNotNull();
+        assertThat(response.getContent()).containsExactlyElementsOf(responses);
+        verifyNoInteractions(commentMapper);
+    }
+
+    @Test
+    void givenPreview_whenGetAllComments_thenQueryTruncatedBodies() {
+        // given
+        Pageable pageable = PageRequest.of(0, 10);
+        when(commentRepository.findAllResponses(80, pageable)).thenReturn(Page.empty(pageable));
+
+        // when
+        commentService.getAllComments(pageable, 80);
+
+        // then
+        verify(commentRepository, times(1)).findAllResponses(80, pageable);
+    }
+
+    @Test
+    void givenCursor_whenGetCommentsAfter_thenReturnNextSliceWithCursor() {
+        // given
         List<CommentResponse> responses = List.of(
-                CommentTestDataFactory.response(comments.get(0)),
-                CommentTestDataFactory.response(comments.get(1))
+                CommentTestDataFactory.response(CommentTestDataFactory.comment(11L, "comment-11")),
+                CommentTestDataFactory.response(CommentTestDataFactory.comment(12L, "comment-12"))
         );
+        String cursor = new CommentCursor(10L).encode();
 
-        Pageable pageable = PageRequest.of(0, 10);
-        Page<Comment> commentPage = new PageImpl<>(comments, pageable, comments.size());
+        when(commentRepository.findResponsesByIdGreaterThan(eq(10L), eq(65_535), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(responses, PageRequest.of(0, 2), true));
 
-        when(commentRepository.findAll(pageable)).thenReturn(commentPage);
-        for (int i = 0; i < comments.size(); i++) {
-            when(commentMapper.toResponse(comments.get(i))).thenReturn(responses.get(i));
-        }
+        // when
+        CommentSlice slice = commentService.getCommentsAfter(cursor, 2, null);
+
+        // then
+        assertThat(slice.content()).hasSize(2);
+        assertThat(slice.hasNext()).isTrue();
+        assertThat(CommentCursor.decode(slice.nextCursor()).lastId()).isEqualTo(12L);
+    }
+
+    @Test
+    void givenEmailAndCursor_whenGetCommentsByEmail_thenReturnLastSliceWithoutCursor() {
+        // given
+        List<CommentResponse> responses = List.of(
+                CommentTestDataFactory.response(CommentTestDataFactory.comment(15L, "comment-15"))
+        );
+        String cursor = new CommentCursor(10L).encode();
+
+        when(commentRepository.findResponsesByEmailAndIdGreaterThan(eq("email@example.com"), eq(10L), eq(80), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(responses, PageRequest.of(0, 2), false));
 
         // when
-        Page<CommentResponse> response = commentService.getAllComments(pageable);
+        CommentSlice slice = commentService.getCommentsByEmail("email@example.com", cursor, 2, 80);
 
         // then
-        assertThat(response).isNotNull();
-        assertThat(response.getContent()).hasSize(responses.size());
-        for (int i = 0; i < comments.size(); i++) {
-            assertThat(response.getContent().get(i)).isEqualTo(responses.get(i));
-        }
+        assertThat(slice.content()).containsExactlyElementsOf(responses);
+        assertThat(slice.hasNext()).isFalse();
+        assertThat(slice.nextCursor()).isNull();
+    }
+
+    @Test
+    void givenMalformedCursor_whenGetCommentsAfter_thenThrowInvalidCommentCursorException() {
+        // when & then
+        assertThrows(
+                InvalidCommentCursorException.class,
+                () -> commentService.getCommentsAfter("not-a-cursor", 10, null)
+        );
+        verifyNoInteractions(commentRepository);
     }
 
     @Test
@@ -115,58 +230,104 @@ class CommentServiceTest {
         assertThat(actual).isNotNull();
         assertThat(actual).isEqualTo(expected);
         verify(commentRepository, times(1)).save(any(Comment.class));
+        verify(events, times(1)).publishEvent(CommentChangeEvent.saved(expected));
     }
 
     @Test
-    void givenCommentIdAndCommentRequest_whenUpdateComment_thenReturnUpdatedCommentResponse() {
+    void givenCommentIdAndCommentRequest_whenUpdateComment_thenUpdateWithoutLoadingComment() {
         // given
-        Comment existingComment = CommentTestDataFactory.comment(1L, "existing-comment");
-        Comment updatedComment = CommentTestDataFactory.comment(existingComment.getId(), "updated-comment");
-
+        Comment updatedComment = CommentTestDataFactory.comment(1L, "updated-comment");
         CommentRequest request = CommentTestDataFactory.request(updatedComment);
         CommentResponse expected = CommentTestDataFactory.response(updatedComment);
 
-        when(commentRepository.findById(anyLong())).thenReturn(Optional.of(existingComment));
-        when(commentRepository.save(existingComment)).thenReturn(updatedComment);
-        when(commentMapper.toResponse(updatedComment)).thenReturn(expected);
+        when(commentRepository.updateById(1L, request.name(), request.email(), request.body(), null)).thenReturn(1);
+        when(commentRepository.findVersionById(1L)).thenReturn(Optional.of(5));
+        when(commentMapper.toResponse(1L, request, 5)).thenReturn(expected);
 
         // when
-        CommentResponse actual = commentService.updateComment(existingComment.getId(), request);
+        CommentResponse actual = commentService.updateComment(1L, request);
 
         // then
-        assertThat(actual).isNotNull();
         assertThat(actual).isEqualTo(expected);
-        verify(commentRepository, times(1)).findById(existingComment.getId());
-        verify(commentRepository, times(1)).save(updatedComment);
+        verify(commentRepository, never()).findById(anyLong());
+        verify(commentCache, times(1)).put(expected);
+        verify(events, times(1)).publishEvent(CommentChangeEvent.saved(expected));
+    }
+
+    @Test
+    void givenExpectedVersion_whenUpdateComment_thenCacheNextVersion() {
+        // given
+        CommentRequest request = new CommentRequest("updated-comment", "email@example.com", "body", 3);
+        CommentResponse expected = new CommentResponse(1L, request.name(), request.email(), request.body(), 4);
+
+        when(commentRepository.updateById(1L, request.name(), request.email(), request.body(), 3)).thenReturn(1);
+        when(commentMapper.toResponse(1L, request, 4)).thenReturn(expected);
+
+        // when
+        commentService.updateComment(1L, request);
+
+        // then
+        verify(commentCache, times(1)).put(expected);
+        verify(commentRepository, never()).findVersionById(anyLong());
+    }
+
+    @Test
+    void givenStaleVersion_whenUpdateComment_thenThrowCommentVersionConflictException() {
+        // given
+        CommentRequest request = new CommentRequest("updated-comment", "email@example.com", "body", 3);
+        when(commentRepository.updateById(anyLong(), any(), any(), any(), any())).thenReturn(0);
+        when(commentRepository.existsById(1L)).thenReturn(true);
+
+        // when & then
+        assertThrows(
+                CommentVersionConflictException.class,
+                () -> commentService.updateComment(1L, request)
+        );
+        verifyNoInteractions(commentCache);
+        verify(commentMetrics, times(1)).versionConflict();
+    }
+
+    @Test
+    void givenNonExistingCommentId_whenUpdateComment_thenThrowCommentNotFoundException() {
+        // given
+        CommentRequest request = CommentTestDataFactory.request("updated-comment");
+        when(commentRepository.updateById(anyLong(), any(), any(), any(), any())).thenReturn(0);
+
+        // when & then
+        assertThrows(
+                CommentNotFoundException.class,
+                () -> commentService.updateComment(999L, request)
+        );
     }
 
     @Test
-    void givenExistingCommentId_whenDeleteComment_thenReturnExistingComment() {
+    void givenExistingCommentId_whenDeleteComment_thenDeleteWithoutLoadingComment() {
         // given
         Long commentId = 1L;
-        when(commentRepository.findById(anyLong())).thenReturn(Optional.of(new Comment()));
+        when(commentRepository.deleteCommentById(commentId, null)).thenReturn(1);
 
         // when & then
-        commentService.deleteComment(commentId);
-        verify(commentRepository, times(1)).findById(commentId);
-        verify(commentRepository, times(1)).delete(any(Comment.class));
+        commentService.deleteComment(commentId, null);
+        verify(commentRepository, never()).findById(anyLong());
+        verify(commentCache, times(1)).markDeleted(commentId);
+        verify(events, times(1)).publishEvent(CommentChangeEvent.deleted(commentId));
     }
 
     @Test
     void givenNonExistingCommentId_whenDeleteComment_thenThrowCommentNotFoundException() {
         // given
         Long commentId = 999L;
-        when(commentRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(commentRepository.deleteCommentById(commentId, null)).thenReturn(0);
 
         // when & then
         CommentNotFoundException ex = assertThrows(
                 CommentNotFoundException.class,
-                () -> commentService.deleteComment(commentId)
+                () -> commentService.deleteComment(commentId, null)
         );
 
         assertThat(ex).isNotNull();
         assertThat(ex).hasMessageContaining(String.valueOf(commentId));
-        verify(commentRepository, never()).delete(any(Comment.class));
+        verify(commentCache, never()).markDeleted(anyLong());
     }
 
-}
\ No newline at end of file
+}
@@ -1,5 +1,10 @@
 package com.example.testing.comment;
 
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+
+import java.util.Map;
+
 public class CommentTestDataFactory {
 
     public static Comment comment(String name) {
@@ -22,8 +27,30 @@ public class CommentTestDataFactory {
         return new CommentRequest(name, "email@example.com", "default-comment-request-body");
     }
 
+    public static CommentRequest request(String name, int bodyLength) {
+        return new CommentRequest(name, "email@example.com", body(bodyLength));
+    }
+
+    public static String body(int length) {
+        String words = "lorem ipsum dolor sit amet consectetur adipiscing elit sed do eiusmod tempor ";
+        StringBuilder body = new StringBuilder(length);
+        while (body.length() < length) {
+            body.append(words, 0, Math.min(words.length(), length - body.length()));
+        }
+        return body.toString();
+    }
+
     public static CommentResponse response(Comment c) {
-        return new CommentResponse(c.getId(), c.getName(), c.getEmail(), c.getBody());
+        return new CommentResponse(c.getId(), c.getName(), c.getEmail(), c.getBody(), c.getVersion());
+    }
+
+    public static CommentProperties properties() {
+        return properties(Map.of());
+    }
+
+    public static CommentProperties properties(Map<String, String> overrides) {
+        return new Binder(new MapConfigurationPropertySource(overrides))
+                .bindOrCreate("comments", CommentProperties.class);
     }
 
 }
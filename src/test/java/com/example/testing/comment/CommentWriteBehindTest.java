@@ -0,0 +1,182 @@
+package com.example.testing.comment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CommentWriteBehindTest {
+
+    @Mock
+    CommentIdAllocator idAllocator;
+
+    @Mock
+    CommentJdbcRepository jdbcRepository;
+
+    @Mock
+    ApplicationEventPublisher events;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path journal;
+
+    ObjectMapper objectMapper = new ObjectMapper();
+
+    CommentWriteBehind writeBehind;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        writeBehind.destroy();
+    }
+
+    @Test
+    void givenAcceptedComment_whenWriterDrains_thenInsertItAndEmptyJournal() throws Exception {
+        // given
+        when(idAllocator.next()).thenReturn(7L);
+        writeBehind = writeBehind(10);
+        writeBehind.afterSingletonsInstantiated();
+
+        // when
+        CommentResponse accepted = writeBehind.accept(CommentTestDataFactory.request("comment-1"));
+
+        // then
+        assertThat(accepted.id()).isEqualTo(7L);
+        verify(jdbcRepository, timeout(2000)).batchInsert(List.of(accepted));
+        verify(events, timeout(2000)).publishEvent(CommentChangeEvent.saved(List.of(accepted)));
+        writeBehind.destroy();
+        assertThat(CommentJournal.read(journal, objectMapper)).isEmpty();
+    }
+
+    @Test
+    void givenFullQueue_whenAccept_thenReject() throws Exception {
+        // given
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(idAllocator.next()).thenReturn(1L, 2L);
+        doAnswer(invocation -> {
+            writing.countDown();
+            release.await();
+            return null;
+        }).when(jdbcRepository).batchInsert(anyList());
+        writeBehind = writeBehind(1);
+        writeBehind.afterSingletonsInstantiated();
+        writeBehind.accept(CommentTestDataFactory.request("comment-1"));
+        writing.await();
+
+        // when & then
+        assertThatThrownBy(() -> writeBehind.accept(CommentTestDataFactory.request("comment-2")))
+                .isInstanceOf(CommentQueueFullException.class);
+        release.countDown();
+    }
+
+    @Test
+    void givenJournalFromPreviousRun_whenStart_thenWriteOnlyMissingComments() throws Exception {
+        // given
+        CommentResponse written = new CommentResponse(1L, "comment-1", "email@example.com", "body", 0);
+        CommentResponse lost = new CommentResponse(2L, "comment-2", "email@example.com", "body", 0);
+        CommentJournal previous = new CommentJournal(journal, 1024, objectMapper);
+        previous.sync(previous.append(written));
+        previous.sync(previous.append(lost));
+        when(jdbcRepository.findExistingIds(List.of(1L, 2L))).thenReturn(Set.of(1L));
+        writeBehind = writeBehind(10);
+
+        // when
+        writeBehind.afterSingletonsInstantiated();
+
+        // then
+        verify(jdbcRepository, times(1)).batchInsert(List.of(lost));
+        assertThat(CommentJournal.read(journal, objectMapper)).isEmpty();
+    }
+
+    @Test
+    void givenDatabaseBrieflyUnavailable_whenReplayOnStart_thenRetryUntilWritten() throws Exception {
+        // given
+        CommentResponse lost = new CommentResponse(2L, "comment-2", "email@example.com", "body", 0);
+        CommentJournal previous = new CommentJournal(journal, 1024, objectMapper);
+        previous.sync(previous.append(lost));
+        when(jdbcRepository.findExistingIds(List.of(2L)))
+                .thenThrow(new DataAccessResourceFailureException("down"))
+                .thenReturn(Set.of());
+        writeBehind = writeBehind(10);
+
+        // when
+        writeBehind.afterSingletonsInstantiated();
+
+        // then
+        verify(jdbcRepository, times(1)).batchInsert(List.of(lost));
+        assertThat(CommentJournal.read(journal, objectMapper)).isEmpty();
+        assertThat(writeBehind.isEnabled()).isTrue();
+    }
+
+    @Test
+    void givenDatabaseDownPastReplayTimeout_whenStart_thenFailAndKeepJournal() throws Exception {
+        // given
+        CommentResponse lost = new CommentResponse(2L, "comment-2", "email@example.com", "body", 0);
+        CommentJournal previous = new CommentJournal(journal, 1024, objectMapper);
+        previous.sync(previous.append(lost));
+        when(jdbcRepository.findExistingIds(List.of(2L))).thenThrow(new DataAccessResourceFailureException("down"));
+        writeBehind = writeBehind(10, "0s");
+
+        // when & then
+        assertThatThrownBy(() -> writeBehind.afterSingletonsInstantiated()).isInstanceOf(IllegalStateException.class);
+        assertThat(CommentJournal.read(journal, objectMapper)).containsExactly(lost);
+    }
+
+    @Test
+    void givenUnexpectedWriterFailure_whenDrain_thenRetryTheSameBatch() throws Exception {
+        // given
+        when(idAllocator.next()).thenReturn(7L);
+        doThrow(new IllegalStateException("listener failed")).doNothing().when(jdbcRepository).batchInsert(anyList());
+        when(jdbcRepository.findExistingIds(List.of(7L))).thenReturn(Set.of());
+        writeBehind = writeBehind(10);
+        writeBehind.afterSingletonsInstantiated();
+
+        // when
+        CommentResponse accepted = writeBehind.accept(CommentTestDataFactory.request("comment-1"));
+
+        // then
+        verify(jdbcRepository, timeout(2000).times(2)).batchInsert(List.of(accepted));
+        verify(events, timeout(2000)).publishEvent(CommentChangeEvent.saved(List.of(accepted)));
+        writeBehind.destroy();
+        assertThat(CommentJournal.read(journal, objectMapper)).isEmpty();
+    }
+
+    private CommentWriteBehind writeBehind(int queueCapacity) {
+        return writeBehind(queueCapacity, "2m");
+    }
+
+    private CommentWriteBehind writeBehind(int queueCapacity, String replayTimeout) {
+        CommentProperties properties = CommentTestDataFactory.properties(Map.of(
+                "comments.write-behind.enabled", "true",
+                "comments.write-behind.queue-capacity", String.valueOf(queueCapacity),
+                "comments.write-behind.journal", journal.toString(),
+                "comments.write-behind.replay-timeout", replayTimeout
+        ));
+        return new CommentWriteBehind(objectMapper, new CommentMapper(), idAllocator, jdbcRepository,
+                new CommentMetrics(new SimpleMeterRegistry(), properties), events,
+                new TransactionTemplate(transactionManager), properties);
+    }
+
+}
@@ -0,0 +1,130 @@
+package com.example.testing.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReplicaRoutingDataSourceTest {
+
+    // each database records its own name, so a query tells which one served it
+    DataSource primary = database("jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1");
+    DataSource replica = database("jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1");
+    DataSource unreachable = database("jdbc:h2:mem:missing;IFEXISTS=TRUE");
+
+    @BeforeEach
+    void setUp() {
+        new JdbcTemplate(primary).execute("CREATE TABLE instance (name VARCHAR(16)); INSERT INTO instance VALUES ('primary')");
+        new JdbcTemplate(replica).execute("CREATE TABLE instance (name VARCHAR(16)); INSERT INTO instance VALUES ('replica')");
+    }
+
+    @AfterEach
+    void tearDown() {
+        new JdbcTemplate(primary).execute("DROP TABLE instance");
+        new JdbcTemplate(replica).execute("DROP TABLE instance");
+        ReadYourWrites.unpin();
+    }
+
+    @Test
+    void givenReadOnlyTransaction_whenQuery_thenReadFromReplica() {
+        // given
+        ReplicaRoutingDataSource routing = routing(List.of(replica));
+
+        // when & then
+        assertThat(instance(routing, true)).isEqualTo("replica");
+    }
+
+    @Test
+    void givenReadWriteTransaction_whenQuery_thenReadFromPrimary() {
+        // given
+        ReplicaRoutingDataSource routing = routing(List.of(replica));
+
+        // when & then
+        assertThat(instance(routing, false)).isEqualTo("primary");
+    }
+
+    @Test
+    void givenUnhealthyReplica_whenReadOnlyQuery_thenReadFromRemainingReplicas() {
+        // given
+        ReplicaRoutingDataSource routing = routing(List.of(unreachable, replica));
+
+        // when
+        routing.checkHealth();
+
+        // then
+        assertThat(List.of(instance(routing, true), instance(routing, true), instance(routing, true)))
+                .containsOnly("replica");
+    }
+
+    @Test
+    void givenNoReachableReplica_whenReadOnlyQuery_thenFallBackToPrimary() {
+        // given
+        ReplicaRoutingDataSource routing = routing(List.of(unreachable));
+
+        // when & then
+        assertThat(instance(routing, true)).isEqualTo("primary");
+    }
+
+    @Test
+    void givenRecentWrite_whenReadOnlyQuery_thenReadFromPrimary() {
+        // given
+        ReplicaRoutingDataSource routing = routing(List.of(replica));
+        ReadYourWrites.pin();
+
+        // when & then
+        assertThat(instance(routing, true)).isEqualTo("primary");
+    }
+
+    @Test
+    void givenExplicitCredentials_whenGetConnection_thenConnectToReplica() throws Exception {
+        // given
+        ReplicaRoutingDataSource routing = routing(List.of(replica));
+
+        // when & then
+        try (Connection connection = routing.getConnection("sa", "")) {
+            assertThat(new JdbcTemplate(new SingleConnectionDataSource(connection, true))
+                    .queryForObject("SELECT name FROM instance", String.class)).isEqualTo("replica");
+        }
+    }
+
+    @Test
+    void givenReadOnPrimary_whenReadOnlyQuery_thenReadFromPrimaryAndUnpinAfterwards() {
+        // given
+        ReplicaRoutingDataSource routing = routing(List.of(replica));
+
+        // when & then
+        assertThat(ReadYourWrites.onPrimary(() -> instance(routing, true))).isEqualTo("primary");
+        assertThat(instance(routing, true)).isEqualTo("replica");
+    }
+
+    private ReplicaRoutingDataSource routing(List<DataSource> replicas) {
+        return new ReplicaRoutingDataSource(primary, replicas, Duration.ofSeconds(5));
+    }
+
+    // wired the way ReplicaDataSourceConfiguration wires it
+    private String instance(ReplicaRoutingDataSource routing, boolean readOnly) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primary);
+        dataSource.setReadOnlyDataSource(routing);
+        TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        transaction.setReadOnly(readOnly);
+        return transaction.execute(status ->
+                new JdbcTemplate(dataSource).queryForObject("SELECT name FROM instance", String.class));
+    }
+
+    private static DataSource database(String url) {
+        return new DriverManagerDataSource(url, "sa", "");
+    }
+
+}